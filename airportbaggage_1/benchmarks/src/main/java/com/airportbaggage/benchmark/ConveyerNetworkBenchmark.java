@@ -0,0 +1,116 @@
+package com.airportbaggage.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.airportbaggage.bean.BaggagePoint;
+import com.airportbaggage.bean.CompiledConveyerNetwork;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.bean.ScheduledFlight;
+import com.airportbaggage.bean.StandardGate;
+import com.airportbaggage.bean.StandardScheduledFlight;
+
+/**
+ * Benchmarks of building a conveyer network, adding bags to it from one or
+ * several scanner threads, and reading it back.
+ * 
+ * @author Shafik Mohammad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConveyerNetworkBenchmark {
+
+	private static final long SEED = 42L;
+
+	/**
+	 * The number of distinct bag ids, a power of two; bags added again are
+	 * updated
+	 */
+	private static final int BAG_ID_COUNT = 1 << 16;
+
+	@Param({ Topologies.CHAIN, Topologies.GRID, Topologies.CONCOURSE_TREE, Topologies.DENSE })
+	public String topology;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	private ConveyerNetwork network;
+	private BaggagePoint entryPoint;
+	private ScheduledFlight scheduledFlight;
+	private String[] bagIds;
+
+	/**
+	 * The next bag of each scanner thread. Scanners start at different bags,
+	 * so concurrent scanners mostly add different ones.
+	 */
+	@State(Scope.Thread)
+	public static class Scanner {
+		private static final AtomicInteger SCANNER_COUNT = new AtomicInteger();
+
+		int bag;
+
+		@Setup
+		public void setUp() {
+			bag = SCANNER_COUNT.getAndIncrement() * (BAG_ID_COUNT / 8);
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		Topologies.quietLogging();
+
+		network = Topologies.build(topology, size, SEED);
+		entryPoint = network.getBaggagePoint(Topologies.id(0));
+		scheduledFlight = new StandardScheduledFlight("F1", null, null, new StandardGate(Topologies.id(1)), null,
+				null, null);
+		bagIds = new String[BAG_ID_COUNT];
+
+		for (int bag = 0; bag < BAG_ID_COUNT; bag++) {
+			bagIds[bag] = Integer.toString(bag);
+		}
+	}
+
+	@Benchmark
+	public ConveyerNetwork addConnection() {
+		return Topologies.build(topology, size, SEED);
+	}
+
+	@Benchmark
+	public void addBag(Scanner scanner) {
+		network.addBag(bagIds[scanner.bag++ & (BAG_ID_COUNT - 1)], entryPoint, scheduledFlight);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void addBagConcurrently(Scanner scanner) {
+		network.addBag(bagIds[scanner.bag++ & (BAG_ID_COUNT - 1)], entryPoint, scheduledFlight);
+	}
+
+	@Benchmark
+	public Map<BaggagePoint, Map<BaggagePoint, Double>> getNetwork() {
+		return network.getNetwork();
+	}
+
+	@Benchmark
+	public CompiledConveyerNetwork compile() {
+		return network.compile();
+	}
+}
@@ -0,0 +1,104 @@
+package com.airportbaggage.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.airportbaggage.bean.BaggagePoint;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.util.InputFileProcessing;
+
+/**
+ * Benchmarks of parsing an input file, and of parsing it and routing its
+ * bags.
+ * 
+ * @author Shafik Mohammad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputFileProcessingBenchmark {
+
+	private static final long SEED = 42L;
+
+	private static final int FLIGHT_COUNT = 64;
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	@Param({ Topologies.CHAIN, Topologies.GRID, Topologies.CONCOURSE_TREE, Topologies.DENSE })
+	public String topology;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	@Param({ "1000", "100000" })
+	public int bagCount;
+
+	private byte[] input;
+
+	@Setup
+	public void setUp() {
+		Topologies.quietLogging();
+
+		ConveyerNetwork network = Topologies.build(topology, size, SEED);
+		Random random = new Random(SEED);
+		StringBuffer inputBuffer = new StringBuffer();
+
+		inputBuffer.append("# Section: Conveyor System\n");
+
+		for (Map.Entry<BaggagePoint, Map<BaggagePoint, Double>> entry : network.getNetwork().entrySet()) {
+			for (Map.Entry<BaggagePoint, Double> connection : entry.getValue().entrySet()) {
+				inputBuffer.append(entry.getKey().getId()).append(' ').append(connection.getKey().getId())
+						.append(' ').append(connection.getValue().intValue()).append('\n');
+			}
+		}
+
+		int baggagePointCount = network.compile().size();
+		inputBuffer.append("# Section: Departures\n");
+
+		for (int flight = 0; flight < FLIGHT_COUNT; flight++) {
+			int minutes = random.nextInt(MINUTES_PER_DAY);
+			inputBuffer.append(String.format("F%d %s DST %02d:%02d\n", flight,
+					Topologies.id(random.nextInt(baggagePointCount)), minutes / 60, minutes % 60));
+		}
+
+		inputBuffer.append("# Section: Bags\n");
+
+		for (int bag = 0; bag < bagCount; bag++) {
+			inputBuffer.append(String.format("%07d %s F%d\n", bag, Topologies.id(random.nextInt(baggagePointCount)),
+					random.nextInt(FLIGHT_COUNT)));
+		}
+
+		input = inputBuffer.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public InputFileProcessing processInputFile() throws IOException {
+		InputFileProcessing inputFileProcessing = new InputFileProcessing();
+		inputFileProcessing.processInputFile(new ByteArrayInputStream(input));
+
+		return inputFileProcessing;
+	}
+
+	@Benchmark
+	public String processInputFileAndRouteBags() throws IOException {
+		return processInputFile().routeBags();
+	}
+}
@@ -0,0 +1,138 @@
+package com.airportbaggage.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.bean.BaggagePoint;
+import com.airportbaggage.bean.CachedRouteTable;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.CompiledConveyerNetwork;
+import com.airportbaggage.bean.ContractionHierarchyRouteTable;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.bean.LandmarkRouteTable;
+import com.airportbaggage.bean.PrecomputedRouteTable;
+import com.airportbaggage.bean.RouteTable;
+import com.airportbaggage.bean.RoutingSnapshot;
+import com.airportbaggage.bean.StandardCheckedBag;
+import com.airportbaggage.bean.StandardGate;
+import com.airportbaggage.bean.StandardScheduledFlight;
+
+/**
+ * Benchmarks of initializing a bag router and of routing single bags and
+ * batches of bags, for every kind of route table.
+ * 
+ * @author Shafik Mohammad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouterBenchmark {
+
+	private static final long SEED = 42L;
+
+	/**
+	 * The number of precomputed route requests, a power of two
+	 */
+	private static final int QUERY_COUNT = 1024;
+
+	private static final int GATE_COUNT = 16;
+
+	@Param({ Topologies.CHAIN, Topologies.GRID, Topologies.CONCOURSE_TREE, Topologies.DENSE })
+	public String topology;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	@Param({ "precomputed", "cached", "landmark", "contraction-hierarchy" })
+	public String routeTable;
+
+	private CompiledConveyerNetwork network;
+	private BagRouter bagRouter;
+	private BaggagePoint[] sources;
+	private BaggagePoint[] destinations;
+	private List<CheckedBag> bags;
+	private int query;
+
+	@Setup
+	public void setUp() {
+		Topologies.quietLogging();
+
+		ConveyerNetwork conveyerNetwork = Topologies.build(topology, size, SEED);
+		network = conveyerNetwork.compile();
+		bagRouter = new BagRouter(newRouteTable(routeTable));
+		bagRouter.initialize(network);
+
+		Random random = new Random(SEED);
+		sources = new BaggagePoint[QUERY_COUNT];
+		destinations = new BaggagePoint[QUERY_COUNT];
+		bags = new ArrayList<CheckedBag>(QUERY_COUNT);
+
+		for (int request = 0; request < QUERY_COUNT; request++) {
+			sources[request] = network.getBaggagePoint(random.nextInt(network.size()));
+			destinations[request] = network.getBaggagePoint(random.nextInt(network.size()));
+		}
+
+		// bags enter anywhere but leave at a few gates, as they do in a
+		// terminal
+		for (int bag = 0; bag < QUERY_COUNT; bag++) {
+			StandardGate gate = new StandardGate(destinations[bag % GATE_COUNT].getId());
+			bags.add(new StandardCheckedBag(Integer.toString(bag),
+					new StandardScheduledFlight("F" + bag % GATE_COUNT, null, null, gate, null, null, null),
+					sources[bag]));
+		}
+	}
+
+	@Benchmark
+	public RoutingSnapshot initialize() {
+		return bagRouter.initialize(network);
+	}
+
+	@Benchmark
+	public String route() {
+		int request = query++ & (QUERY_COUNT - 1);
+
+		return bagRouter.route(sources[request], destinations[request]);
+	}
+
+	@Benchmark
+	public Map<CheckedBag, String> routeBatch() {
+		return bagRouter.route(bags);
+	}
+
+	static RouteTable newRouteTable(String routeTable) {
+		RouteTable newRouteTable;
+
+		if ("precomputed".equals(routeTable)) {
+			newRouteTable = new PrecomputedRouteTable();
+		} else if ("cached".equals(routeTable)) {
+			newRouteTable = new CachedRouteTable(GATE_COUNT * 4);
+		} else if ("landmark".equals(routeTable)) {
+			newRouteTable = new LandmarkRouteTable();
+		} else if ("contraction-hierarchy".equals(routeTable)) {
+			newRouteTable = new ContractionHierarchyRouteTable();
+		} else {
+			throw new IllegalArgumentException(String.format("Route table %s is not supported.", routeTable));
+		}
+
+		return newRouteTable;
+	}
+}
@@ -0,0 +1,136 @@
+package com.airportbaggage.benchmark;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.ConveyerNetwork;
+
+/**
+ * Builds conveyer networks of a given topology and size for the benchmarks.
+ * Baggage points are named P0, P1, ... and distances are drawn from a seeded
+ * random generator, so every run of a benchmark sees the same network.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class Topologies {
+
+	/**
+	 * Baggage points connected in a single line: the deepest searches
+	 */
+	public static final String CHAIN = "chain";
+
+	/**
+	 * Baggage points connected in a square grid: many routes of equal length
+	 */
+	public static final String GRID = "grid";
+
+	/**
+	 * A ticketing hub feeding concourses that branch into gates: the shape of
+	 * a real terminal, with every route through a few junctions
+	 */
+	public static final String CONCOURSE_TREE = "concourse-tree";
+
+	/**
+	 * Baggage points connected to many random others: the most connections
+	 * per baggage point
+	 */
+	public static final String DENSE = "dense";
+
+	/**
+	 * The parent logger of the project, held so its level is not lost
+	 */
+	private static final Logger PROJECT_LOGGER = Logger.getLogger("com.airportbaggage");
+
+	private static final int MAX_DISTANCE = 9;
+	private static final int CONCOURSE_BRANCHING = 4;
+	private static final int MAX_DENSE_DEGREE = 64;
+
+	private Topologies() {
+	}
+
+	/**
+	 * Builds a conveyer network.
+	 * 
+	 * @param topology
+	 *            The topology of the network.
+	 * @param size
+	 *            The number of baggage points, rounded down to a square for
+	 *            a grid.
+	 * @param seed
+	 *            The seed of the random distances.
+	 * @return The conveyer network.
+	 */
+	public static ConveyerNetwork build(String topology, int size, long seed) {
+		ConveyerNetwork network = new ConveyerNetwork();
+		Random random = new Random(seed);
+
+		if (CHAIN.equals(topology)) {
+			for (int baggagePoint = 1; baggagePoint < size; baggagePoint++) {
+				connect(network, random, baggagePoint - 1, baggagePoint);
+			}
+		} else if (GRID.equals(topology)) {
+			int side = Math.max(2, (int) Math.sqrt(size));
+
+			for (int baggagePoint = 0; baggagePoint < side * side; baggagePoint++) {
+				if (baggagePoint % side + 1 < side) {
+					connect(network, random, baggagePoint, baggagePoint + 1);
+				}
+
+				if (baggagePoint + side < side * side) {
+					connect(network, random, baggagePoint, baggagePoint + side);
+				}
+			}
+		} else if (CONCOURSE_TREE.equals(topology)) {
+			// P0 is the ticketing hub, the first children are the concourses
+			for (int baggagePoint = 1; baggagePoint < size; baggagePoint++) {
+				connect(network, random, (baggagePoint - 1) / CONCOURSE_BRANCHING, baggagePoint);
+			}
+		} else if (DENSE.equals(topology)) {
+			int degree = Math.min(size - 1, Math.max(3, Math.min(MAX_DENSE_DEGREE, size / 8)));
+
+			for (int baggagePoint = 1; baggagePoint < size; baggagePoint++) {
+				// a spanning line keeps the network connected
+				connect(network, random, baggagePoint - 1, baggagePoint);
+			}
+
+			for (int baggagePoint = 0; baggagePoint < size; baggagePoint++) {
+				for (int connection = 1; connection < degree / 2; connection++) {
+					int connectedBaggagePoint = random.nextInt(size);
+
+					if (connectedBaggagePoint != baggagePoint) {
+						connect(network, random, baggagePoint, connectedBaggagePoint);
+					}
+				}
+			}
+		} else {
+			throw new IllegalArgumentException(String.format("Topology %s is not supported.", topology));
+		}
+
+		return network;
+	}
+
+	/**
+	 * Logs only warnings of the project, as a production deployment would, so
+	 * the benchmarks do not measure console output.
+	 */
+	public static void quietLogging() {
+		PROJECT_LOGGER.setLevel(Level.WARNING);
+	}
+
+	/**
+	 * Gets the id of a baggage point of a built network.
+	 * 
+	 * @param baggagePoint
+	 *            The number of the baggage point.
+	 * @return A String that uniquely identifies the baggage point.
+	 */
+	public static String id(int baggagePoint) {
+		return "P" + baggagePoint;
+	}
+
+	private static void connect(ConveyerNetwork network, Random random, int baggagePoint,
+			int connectedBaggagePoint) {
+		network.addConnection(id(baggagePoint), id(connectedBaggagePoint), 1 + random.nextInt(MAX_DISTANCE));
+	}
+}
@@ -0,0 +1,127 @@
+package com.airportbaggage.bean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.airportbaggage.benchmark.Topologies;
+
+/**
+ * Checks that a route table persisted in a store maps back to the same
+ * routes, and that a truncated or damaged file is rejected and recomputed
+ * rather than answering with wrong routes.
+ * 
+ * @author Shafik Mohammad
+ */
+class RouteTableStoreTest {
+
+	private static final int SIZE = 60;
+	private static final long SEED = 7;
+
+	@TempDir
+	Path directory;
+
+	private CompiledConveyerNetwork network;
+	private PrecomputedRouteTable expected;
+	private RouteTableStore store;
+
+	@BeforeAll
+	static void quietLogging() {
+		Topologies.quietLogging();
+	}
+
+	@BeforeEach
+	void persistRouteTable() {
+		network = Topologies.build(Topologies.GRID, SIZE, SEED).compile();
+		expected = (PrecomputedRouteTable) new PrecomputedRouteTable().initialize(network);
+		store = new RouteTableStore(directory);
+		new BagRouter(new PrecomputedRouteTable()).initialize(network, store);
+	}
+
+	@Test
+	void roundTrip() throws IOException {
+		assertNotNull(Files.readAllBytes(store.getPath(network.getConfigurationHash())));
+
+		PrecomputedRouteTable loaded = store.load(new PrecomputedRouteTable(), network);
+
+		assertNotNull(loaded);
+		assertSameRoutes(loaded);
+	}
+
+	@Test
+	void otherNetworkIsNotLoaded() throws IOException {
+		CompiledConveyerNetwork otherNetwork = Topologies.build(Topologies.GRID, SIZE, SEED + 1).compile();
+
+		assertNull(store.load(new PrecomputedRouteTable(), otherNetwork));
+	}
+
+	@Test
+	void truncatedFileIsRecomputed() throws IOException {
+		Path file = store.getPath(network.getConfigurationHash());
+		byte[] persisted = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(persisted, persisted.length - 1));
+
+		assertRecomputed(file, persisted);
+	}
+
+	@Test
+	void flippedBitIsRecomputed() throws IOException {
+		Path file = store.getPath(network.getConfigurationHash());
+		byte[] persisted = Files.readAllBytes(file);
+		byte[] damaged = persisted.clone();
+		damaged[damaged.length - 100] ^= 1;
+		Files.write(file, damaged);
+
+		assertRecomputed(file, persisted);
+	}
+
+	/**
+	 * Asserts that the damaged file fails to load, and that initializing a
+	 * router from the store still answers the right routes and replaces the
+	 * file with an intact one.
+	 */
+	private void assertRecomputed(Path file, byte[] persisted) throws IOException {
+
+		try {
+			store.load(new PrecomputedRouteTable(), network);
+			fail("Damaged route table was loaded.");
+		} catch (IOException e) {
+			// expected
+		}
+
+		BagRouter bagRouter = new BagRouter(new PrecomputedRouteTable());
+		bagRouter.initialize(network, store);
+
+		assertSameRoutes(bagRouter.getSnapshot().getRouteTable());
+		assertArrayEquals(persisted, Files.readAllBytes(file));
+		assertSameRoutes(store.load(new PrecomputedRouteTable(), network));
+	}
+
+	private void assertSameRoutes(RouteTable routeTable) {
+
+		for (int source = 0; source < network.size(); source++) {
+			ShortestPathTree expectedTree = expected.getShortestPathTree(source);
+			ShortestPathTree shortestPathTree = routeTable.getShortestPathTree(source);
+
+			for (int destination = 0; destination < network.size(); destination++) {
+				String message = "route " + source + " to " + destination;
+				assertEquals(expectedTree.getDistance(destination), shortestPathTree.getDistance(destination),
+						message);
+				assertEquals(expectedTree.getPredecessor(destination), shortestPathTree.getPredecessor(destination),
+						message);
+			}
+		}
+	}
+}
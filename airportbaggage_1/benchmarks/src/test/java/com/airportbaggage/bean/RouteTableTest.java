@@ -0,0 +1,180 @@
+package com.airportbaggage.bean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.airportbaggage.benchmark.Topologies;
+
+/**
+ * Checks every route table against a plain Dijkstra search on random conveyer
+ * networks, both right after initialization and after a series of
+ * incremental updates. Between two different baggage points, each table
+ * answers with a route of the same distance as the search, walking
+ * connections that exist in the network, or with none if the search finds
+ * none.
+ * 
+ * @author Shafik Mohammad
+ */
+class RouteTableTest {
+
+	private static final long[] SEEDS = { 1, 2, 3, 4, 5 };
+	private static final int UPDATE_COUNT = 40;
+	private static final double TOLERANCE = 1e-9;
+
+	@BeforeAll
+	static void quietLogging() {
+		Topologies.quietLogging();
+	}
+
+	/**
+	 * Gets a prototype of every route table, configured small enough for the
+	 * test networks to span several caches, chunks and partitions.
+	 * 
+	 * @return The route table prototypes.
+	 */
+	static List<RouteTable> routeTables() {
+		List<RouteTable> routeTables = new ArrayList<RouteTable>();
+		routeTables.add(new PrecomputedRouteTable(1));
+		routeTables.add(new PrecomputedRouteTable(4));
+		routeTables.add(new CachedRouteTable(3));
+		routeTables.add(new LandmarkRouteTable(4));
+		routeTables.add(new ContractionHierarchyRouteTable());
+		routeTables.add(new OffHeapRouteTable(2, 1000));
+		routeTables.add(new PartitionedRouteTable(7));
+		routeTables.add(new PartitionedRouteTable(new ZonePartitioner() {
+
+			@Override
+			public String getZoneId(BaggagePoint baggagePoint) {
+				return String.valueOf(Integer.parseInt(baggagePoint.getId().substring(1)) % 5);
+			}
+		}, new LandmarkRouteTable(2)));
+		routeTables.add(new CongestionAwareRouteTable(new ConveyerLoad()));
+
+		return routeTables;
+	}
+
+	@ParameterizedTest
+	@MethodSource("routeTables")
+	void initializeMatchesDijkstra(RouteTable prototype) {
+
+		for (long seed : SEEDS) {
+			int size = 20 + (int) seed * 10;
+			CompiledConveyerNetwork network = randomNetwork(seed, size, size * (1 + (int) seed % 3)).compile();
+			BagRouter bagRouter = new BagRouter(prototype);
+			bagRouter.initialize(network);
+
+			assertMatchesDijkstra(bagRouter.getSnapshot().getRouteTable(), network, prototype + ", seed " + seed);
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("routeTables")
+	void updateMatchesDijkstra(RouteTable prototype) {
+
+		for (long seed : SEEDS) {
+			Random random = new Random(seed * 31);
+			int size = 40;
+			ConveyerNetwork conveyerNetwork = randomNetwork(seed, size, 70);
+			CompiledConveyerNetwork network = conveyerNetwork.compile();
+			BagRouter bagRouter = new BagRouter(prototype);
+			bagRouter.initialize(network);
+
+			for (int step = 0; step < UPDATE_COUNT; step++) {
+				String baggagePointId = Topologies.id(random.nextInt(size + 5));
+				String connectedBaggagePointId = Topologies.id(random.nextInt(size + 5));
+
+				if (baggagePointId.equals(connectedBaggagePointId)) {
+					continue;
+				}
+
+				if (random.nextInt(3) == 0 && network.indexOf(baggagePointId) >= 0
+						&& network.indexOf(connectedBaggagePointId) >= 0) {
+					conveyerNetwork.removeConnection(baggagePointId, connectedBaggagePointId);
+				} else {
+					conveyerNetwork.addConnection(baggagePointId, connectedBaggagePointId, 1 + random.nextInt(9));
+				}
+				network = conveyerNetwork.compile();
+				bagRouter.update(network, baggagePointId, connectedBaggagePointId);
+
+				assertMatchesDijkstra(bagRouter.getSnapshot().getRouteTable(), network,
+						prototype + ", seed " + seed + ", step " + step);
+			}
+		}
+	}
+
+	/**
+	 * Builds a random conveyer network. Some baggage points may be left
+	 * unconnected from the rest, so unreachable destinations are covered too.
+	 */
+	private static ConveyerNetwork randomNetwork(long seed, int size, int connectionCount) {
+		Random random = new Random(seed);
+		ConveyerNetwork conveyerNetwork = new ConveyerNetwork();
+
+		for (int connection = 0; connection < connectionCount; connection++) {
+			int baggagePoint = random.nextInt(size);
+			int connectedBaggagePoint = random.nextInt(size);
+
+			if (baggagePoint != connectedBaggagePoint) {
+				conveyerNetwork.addConnection(Topologies.id(baggagePoint), Topologies.id(connectedBaggagePoint),
+						1 + random.nextInt(9));
+			}
+		}
+
+		return conveyerNetwork;
+	}
+
+	private static void assertMatchesDijkstra(RouteTable routeTable, CompiledConveyerNetwork network, String name) {
+		DijkstraSearch dijkstraSearch = new DijkstraSearch(network);
+
+		for (int source = 0; source < network.size(); source++) {
+			ShortestPathTree shortestPathTree = dijkstraSearch.computeShortestPathTree(source);
+
+			for (int destination = 0; destination < network.size(); destination++) {
+
+				if (source == destination) {
+					continue;
+				}
+
+				ShortestRoute shortestRoute = routeTable.getShortestRoute(source, destination);
+				double distance = shortestPathTree.getDistance(destination);
+				String message = name + ", route " + source + " to " + destination;
+
+				if (Double.isInfinite(distance)) {
+					assertNull(shortestRoute, message);
+				} else {
+					assertNotNull(shortestRoute, message);
+					assertEquals(distance, shortestRoute.getDistance(), TOLERANCE, message);
+					assertWalksNetwork(shortestRoute, network, source, destination, message);
+				}
+			}
+		}
+	}
+
+	private static void assertWalksNetwork(ShortestRoute shortestRoute, CompiledConveyerNetwork network, int source,
+			int destination, String message) {
+		List<BaggagePoint> path = shortestRoute.getPath();
+		assertEquals(source, network.indexOf(path.get(0)), message);
+		assertEquals(destination, network.indexOf(path.get(path.size() - 1)), message);
+
+		double distance = 0;
+
+		for (int step = 1; step < path.size(); step++) {
+			int connection = network.findConnection(network.indexOf(path.get(step - 1)),
+					network.indexOf(path.get(step)));
+			assertTrue(connection >= 0, message + ": no connection " + path.get(step - 1) + " " + path.get(step));
+			distance += network.getDistance(connection);
+		}
+
+		assertEquals(shortestRoute.getDistance(), distance, TOLERANCE, message);
+	}
+}
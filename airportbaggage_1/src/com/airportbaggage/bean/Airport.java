@@ -65,4 +65,29 @@ public interface Airport {
 	 * @return The flight, if found; null, otherwise.
 	 */
 	ScheduledFlight getScheduledFlight(String flightId);
+
+	/**
+	 * Gets the time-ordered schedule of the scheduled flights, kept up to date
+	 * as flights are added.
+	 * 
+	 * @return The flight schedule.
+	 */
+	FlightSchedule getFlightSchedule();
+
+	/**
+	 * Adds a listener notified when any scheduled flight of the airport
+	 * changes, including flights added later.
+	 * 
+	 * @param flightListener
+	 *            The flight listener.
+	 */
+	void addFlightListener(FlightListener flightListener);
+
+	/**
+	 * Removes a flight listener.
+	 * 
+	 * @param flightListener
+	 *            The flight listener.
+	 */
+	void removeFlightListener(FlightListener flightListener);
 }
\ No newline at end of file
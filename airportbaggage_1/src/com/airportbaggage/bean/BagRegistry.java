@@ -0,0 +1,195 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * A registry of checked bags that any number of scanner threads can add to
+ * and update at the same time. Bags are held in a concurrent hash map, so
+ * registrations of different bags rarely contend for a common lock, and each
+ * registration is computed atomically on the entry of its bag. Every bag
+ * keeps the sequence number of its first registration, which gives the order
+ * bags were added in.
+ * 
+ * The ids of the bags carried by each scheduled flight are indexed as well.
+ * The index is updated while a registration is computed, so registrations of
+ * the same bag update it in the order they are applied. Lookups still check
+ * every bag's current flight, as the index of a flight may be read between
+ * the removal and the addition of a bag.
+ * 
+ * @author Shafik Mohammad
+ */
+final class BagRegistry {
+
+	private static final Comparator<Registration> REGISTRATION_ORDER = new Comparator<Registration>() {
+		@Override
+		public int compare(Registration registration, Registration otherRegistration) {
+			return Long.compare(registration.sequence, otherRegistration.sequence);
+		}
+	};
+
+	private final ConcurrentHashMap<String, Registration> bags;
+	private final AtomicLong sequence;
+
+	/**
+	 * The ids of the bags carried by each flight, indexed by flight id
+	 */
+	private final ConcurrentHashMap<String, Set<String>> bagIdsByFlight;
+
+	/**
+	 * A bag together with the sequence number of its first registration
+	 */
+	private static class Registration {
+		final long sequence;
+		final CheckedBag bag;
+
+		Registration(long sequence, CheckedBag bag) {
+			this.sequence = sequence;
+			this.bag = bag;
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param concurrencyLevel
+	 *            The estimated number of threads registering bags at the
+	 *            same time.
+	 */
+	BagRegistry(int concurrencyLevel) {
+		bags = new ConcurrentHashMap<String, Registration>(16, 0.75f, concurrencyLevel);
+		sequence = new AtomicLong();
+		bagIdsByFlight = new ConcurrentHashMap<String, Set<String>>(16, 0.75f, concurrencyLevel);
+	}
+
+	/**
+	 * Adds a bag, or replaces the bag registered with the same id while
+	 * keeping its place in the registration order.
+	 * 
+	 * @param bag
+	 *            The bag to register.
+	 * @return True, if the bag was not registered before; false, otherwise.
+	 */
+	boolean register(final CheckedBag bag) {
+		final boolean[] added = new boolean[1];
+
+		bags.compute(bag.getId(), new BiFunction<String, Registration, Registration>() {
+			@Override
+			public Registration apply(String bagId, Registration registration) {
+				added[0] = null == registration;
+				index(bagId, added[0] ? null : getFlightId(registration.bag), getFlightId(bag));
+
+				return new Registration(added[0] ? sequence.getAndIncrement() : registration.sequence, bag);
+			}
+		});
+
+		return added[0];
+	}
+
+	/**
+	 * Moves a bag id from the index of its previous flight to that of its
+	 * current one. Only called while the registration of the bag is being
+	 * computed, so the index follows registrations of a bag in their order.
+	 */
+	private void index(String bagId, String previousFlightId, String flightId) {
+		if (null != previousFlightId && !previousFlightId.equals(flightId)) {
+			Set<String> previousBagIds = bagIdsByFlight.get(previousFlightId);
+
+			if (null != previousBagIds) {
+				previousBagIds.remove(bagId);
+			}
+		}
+
+		if (null != flightId) {
+			Set<String> bagIds = bagIdsByFlight.get(flightId);
+
+			if (null == bagIds) {
+				Set<String> newBagIds = ConcurrentHashMap.<String> newKeySet();
+				bagIds = bagIdsByFlight.putIfAbsent(flightId, newBagIds);
+				bagIds = null == bagIds ? newBagIds : bagIds;
+			}
+
+			bagIds.add(bagId);
+		}
+	}
+
+	/**
+	 * Gets a registered bag.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The bag, if registered; null, otherwise.
+	 */
+	CheckedBag get(String bagId) {
+		Registration registration = bags.get(bagId);
+
+		return null == registration ? null : registration.bag;
+	}
+
+	int size() {
+		return bags.size();
+	}
+
+	/**
+	 * Gets the registered bags in the order they were first registered. Bags
+	 * registered while the list is being taken may or may not be included.
+	 * 
+	 * @return An unmodifiable list of bags.
+	 */
+	List<CheckedBag> getBags() {
+		Registration[] registrations = bags.values().toArray(new Registration[0]);
+		Arrays.sort(registrations, REGISTRATION_ORDER);
+
+		List<CheckedBag> orderedBags = new ArrayList<CheckedBag>(registrations.length);
+
+		for (Registration registration : registrations) {
+			orderedBags.add(registration.bag);
+		}
+
+		return Collections.unmodifiableList(orderedBags);
+	}
+
+	/**
+	 * Gets the registered bags carried by a scheduled flight, in the order
+	 * they were first registered.
+	 * 
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return An unmodifiable list of bags.
+	 */
+	List<CheckedBag> getBags(String flightId) {
+		Set<String> bagIds = bagIdsByFlight.get(flightId);
+		List<Registration> registrations = new ArrayList<Registration>(null == bagIds ? 0 : bagIds.size());
+
+		if (null != bagIds) {
+			for (String bagId : bagIds) {
+				Registration registration = bags.get(bagId);
+
+				if (null != registration && flightId.equals(getFlightId(registration.bag))) {
+					registrations.add(registration);
+				}
+			}
+		}
+
+		Collections.sort(registrations, REGISTRATION_ORDER);
+
+		List<CheckedBag> flightBags = new ArrayList<CheckedBag>(registrations.size());
+
+		for (Registration registration : registrations) {
+			flightBags.add(registration.bag);
+		}
+
+		return Collections.unmodifiableList(flightBags);
+	}
+
+	private static String getFlightId(CheckedBag bag) {
+		return null == bag.getScheduledFlight() ? null : bag.getScheduledFlight().getId();
+	}
+}
\ No newline at end of file
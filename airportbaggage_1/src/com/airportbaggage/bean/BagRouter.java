@@ -1,20 +1,33 @@
 package com.airportbaggage.bean;
 
-import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 import com.airportbaggage.bean.BaggagePoint;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.metrics.InitializeEvent;
+import com.airportbaggage.metrics.RouteBatchEvent;
 
 /**
  * The bag router. It has methods to route bags inside a conveyer network.
  * 
+ * Routes are answered from an immutable {@link RoutingSnapshot} published
+ * through an atomic reference. Initializing or updating the router builds the
+ * next snapshot while route requests keep reading the current one without
+ * locks, so routing continues through network reloads.
+ * 
+ * Route latencies and route table builds are recorded in the router's
+ * {@link RouterMetrics}, and builds and batches are also emitted as Java
+ * Flight Recorder events.
+ * 
  * @author Shafik Mohamamd
  */
 public class BagRouter {
@@ -22,53 +35,76 @@ public class BagRouter {
 	private static final Logger LOGGER = Logger.getLogger(BagRouter.class.getName());
 
 	private static final String OUTPUT_DISTANCE_FOR_UNCONNECTED_POINTS = "Not Connected";
+	private static final String OUTPUT_ID_FOR_MISSING_POINTS = "-";
 
 	/**
-	 * The shortest path adjacency-lists representation of the conveyer network
+	 * The snapshot route requests are answered from
 	 */
-	private Map<BaggagePoint, Map<BaggagePoint, ShortestRoute>> shortestPathsNetwork;
+	private final AtomicReference<RoutingSnapshot> snapshot;
 
 	/**
-	 * Holds information about the shortest path between two baggage points.
+	 * Serializes the builders of new snapshots; route requests never take it
 	 */
-	private class ShortestRoute {
-		Double distance;
-		List<BaggagePoint> path;
-		DecimalFormat decimalFormat;
-
-		/**
-		 * The canonical constructor.
-		 */
-		ShortestRoute(Double distance, List<BaggagePoint> path) {
-			this.distance = distance;
-			this.path = path;
-			this.decimalFormat = new DecimalFormat("0.#");
-		}
+	private final Object writeLock;
 
-		@Override
-		public String toString() {
-			StringBuffer shortestPath = new StringBuffer();
+	private final RouterMetrics metrics;
 
-			if (null != path) {
-				for (BaggagePoint baggagePoint : path) {
-					shortestPath.append(String.format("%s ", baggagePoint.getId()));
-				}
-				shortestPath.append(String.format(": %s", decimalFormat.format(distance)));
-			}
+	/**
+	 * The default constructor. Shortest routes between every pair of baggage
+	 * points are computed on the calling thread during initialization.
+	 */
+	public BagRouter() {
+		this(1);
+	}
 
-			return shortestPath.toString();
-		}
+	/**
+	 * A constructor that computes the shortest routes between every pair of
+	 * baggage points during initialization, for different source baggage
+	 * points in parallel.
+	 * 
+	 * @param parallelism
+	 *            The number of threads used to compute the shortest routes.
+	 *            Must be at least 1.
+	 */
+	public BagRouter(int parallelism) {
+		this(new PrecomputedRouteTable(parallelism));
 	}
 
 	/**
-	 * The default constructor.
+	 * A constructor that holds the shortest routes in the given route table.
+	 * 
+	 * @param routeTable
+	 *            The table holding the shortest routes of the conveyer
+	 *            network, e.g. a {@link CachedRouteTable} to compute routes on
+	 *            demand.
 	 */
-	public BagRouter() {
-		shortestPathsNetwork = new HashMap<BaggagePoint, Map<BaggagePoint, ShortestRoute>>();
+	public BagRouter(RouteTable routeTable) {
+		this.snapshot = new AtomicReference<RoutingSnapshot>(new RoutingSnapshot(0L, routeTable));
+		this.writeLock = new Object();
+		this.metrics = new RouterMetrics(snapshot);
 	}
 
 	/**
-	 * Gets the shortest route between two baggage points.
+	 * Gets the snapshot route requests are currently answered from.
+	 * 
+	 * @return The current routing snapshot.
+	 */
+	public RoutingSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Gets the metrics of the router.
+	 * 
+	 * @return The router metrics.
+	 */
+	public RouterMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gets the shortest route between two baggage points. The route is only
+	 * looked up; no bag is dispatched onto it.
 	 * 
 	 * @param source
 	 *            The baggage point from which the bag has to be routed.
@@ -79,33 +115,148 @@ public class BagRouter {
 	 */
 	public String route(BaggagePoint source, BaggagePoint destination) {
 
-		if (!shortestPathsNetwork.containsKey(source)) {
-			throw new IllegalArgumentException(
-					String.format("Baggage point source %s cannot be found.", source.getId()));
+		long start = System.nanoTime();
+		RouteTable routeTable = snapshot.get().getRouteTable();
+		CompiledConveyerNetwork network = routeTable.getNetwork();
+		int sourceIndex = indexOfSource(network, source);
+		int destinationIndex = indexOfDestination(network, destination);
+		ShortestRoute shortestRoute = null;
+
+		if (sourceIndex != destinationIndex) {
+			shortestRoute = routeTable.getShortestRoute(sourceIndex, destinationIndex);
 		}
 
-		if (!shortestPathsNetwork.containsKey(destination)) {
-			throw new IllegalArgumentException(
-					String.format("Baggage point destination %s cannot be found.", destination.getId()));
+		String formattedRoute = format(network, sourceIndex, destinationIndex, shortestRoute);
+		metrics.recordRoute(System.nanoTime() - start, sourceIndex == destinationIndex || null != shortestRoute);
+
+		return formattedRoute;
+	}
+
+	/**
+	 * Gets the shortest routes of a batch of checked bags, from the baggage
+	 * point where each bag was first scanned to the departure gate of its
+	 * scheduled flight. The whole batch is routed against one snapshot. The
+	 * bags are grouped by entry point, so the shortest path tree of each
+	 * distinct entry point is searched or looked up once for the whole batch,
+	 * unless routes depend on the load of the network, in which case bags are
+	 * dispatched one by one, in order, each counting in the load the next one
+	 * is routed against.
+	 * 
+	 * Bags without an entry point, scheduled flight or departure gate, or
+	 * whose entry point or departure gate is not in the network, are not
+	 * connected; they are logged and answered as such without failing the
+	 * rest of the batch.
+	 * 
+	 * @param bags
+	 *            The checked bags that have to be routed.
+	 * @return A map of Strings holding a delimiter-separated list of baggage
+	 *         points that forms the shortest route, indexed by the bag, in the
+	 *         iteration order of the bags.
+	 */
+	public Map<CheckedBag, String> route(Collection<? extends CheckedBag> bags) {
+
+		long start = System.nanoTime();
+		RouteBatchEvent event = new RouteBatchEvent();
+		event.begin();
+
+		RoutingSnapshot current = snapshot.get();
+		RouteTable routeTable = current.getRouteTable();
+		CompiledConveyerNetwork network = routeTable.getNetwork();
+		CheckedBag[] checkedBags = bags.toArray(new CheckedBag[bags.size()]);
+		int[] sources = new int[checkedBags.length];
+		int[] destinations = new int[checkedBags.length];
+		int[] bagCounts = new int[network.size() + 1];
+		String[] shortestRoutes = new String[checkedBags.length];
+		int routableCount = 0;
+
+		for (int bag = 0; bag < checkedBags.length; bag++) {
+			CheckedBag checkedBag = checkedBags[bag];
+			BaggagePoint departureGate = getDepartureGate(checkedBag);
+
+			sources[bag] = null == checkedBag.getEntryPoint() ? -1 : network.indexOf(checkedBag.getEntryPoint());
+			destinations[bag] = null == departureGate ? -1 : network.indexOf(departureGate);
+
+			if (sources[bag] < 0 || destinations[bag] < 0) {
+				LOGGER.warning(String.format(
+						"Bag %s has no entry point or departure gate, or one that cannot be found.",
+						checkedBag.getId()));
+			} else {
+				bagCounts[sources[bag] + 1]++;
+				routableCount++;
+			}
 		}
 
-		String shortestRoute;
+		int unconnectedCount = checkedBags.length - routableCount;
 
-		if (source.equals(destination)) {
-			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
-			path.add(source);
-			path.add(source);
-			shortestRoute = new ShortestRoute(0d, path).toString();
+		if (routeTable.isLoadDependent()) {
+			// each bag changes the load the next one is routed against
+			for (int bag = 0; bag < checkedBags.length; bag++) {
+				ShortestRoute shortestRoute = null;
+
+				if (sources[bag] >= 0 && destinations[bag] >= 0) {
+					if (sources[bag] != destinations[bag]) {
+						shortestRoute = routeTable.dispatch(sources[bag], destinations[bag]);
+
+						if (null == shortestRoute) {
+							unconnectedCount++;
+						}
+					}
+
+					shortestRoutes[bag] = format(network, sources[bag], destinations[bag], shortestRoute);
+				}
+			}
 		} else {
-			if (shortestPathsNetwork.get(source).containsKey(destination)) {
-				shortestRoute = shortestPathsNetwork.get(source).get(destination).toString();
-			} else {
-				shortestRoute = String.format("%s %s : %s", source.getId(), destination.getId(),
-						OUTPUT_DISTANCE_FOR_UNCONNECTED_POINTS);
+			// group the bags by entry point with a counting sort
+			for (int source = 0; source < network.size(); source++) {
+				bagCounts[source + 1] += bagCounts[source];
+			}
+
+			int[] groupedBags = new int[routableCount];
+
+			for (int bag = 0; bag < checkedBags.length; bag++) {
+				if (sources[bag] >= 0 && destinations[bag] >= 0) {
+					groupedBags[bagCounts[sources[bag]]++] = bag;
+				}
+			}
+
+			ShortestPathTree shortestPathTree = null;
+
+			for (int bag : groupedBags) {
+				if (null == shortestPathTree || shortestPathTree.getSource() != sources[bag]) {
+					shortestPathTree = routeTable.getShortestPathTree(sources[bag]);
+				}
+
+				ShortestRoute shortestRoute = shortestPathTree.getShortestRoute(destinations[bag]);
+
+				if (null == shortestRoute && sources[bag] != destinations[bag]) {
+					unconnectedCount++;
+				}
+
+				shortestRoutes[bag] = format(network, sources[bag], destinations[bag], shortestRoute);
 			}
 		}
 
-		return shortestRoute;
+		Map<CheckedBag, String> routes = new LinkedHashMap<CheckedBag, String>(checkedBags.length * 2);
+
+		for (int bag = 0; bag < checkedBags.length; bag++) {
+			routes.put(checkedBags[bag], null != shortestRoutes[bag] ? shortestRoutes[bag]
+					: formatUnconnected(checkedBags[bag].getEntryPoint(), getDepartureGate(checkedBags[bag])));
+		}
+
+		metrics.recordBatch(System.nanoTime() - start, checkedBags.length, unconnectedCount);
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.setRouteTable(routeTable.getClass().getSimpleName());
+			event.setBagCount(checkedBags.length);
+			event.setUnconnectedCount(unconnectedCount);
+			event.setVersion(current.getVersion());
+			event.commit();
+		}
+
+		LOGGER.fine("Routed bags: " + checkedBags.length);
+
+		return routes;
 	}
 
 	/**
@@ -114,86 +265,217 @@ public class BagRouter {
 	 * 
 	 * @param network
 	 *            The conveyer network holding connected baggage points.
+	 * @return The published routing snapshot.
 	 */
-	public void initialize(Map<BaggagePoint, Map<BaggagePoint, Double>> network) {
+	public RoutingSnapshot initialize(Map<BaggagePoint, Map<BaggagePoint, Double>> network) {
+		return initialize(CompiledConveyerNetwork.compile(network));
+	}
 
-		// clear existing memoization
-		shortestPathsNetwork.clear();
+	/**
+	 * Computes the shortest routes between connected baggage points in a
+	 * compiled conveyer network, and publishes them once complete. Route
+	 * requests are answered from the previous snapshot in the meantime.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network holding connected baggage
+	 *            points.
+	 * @return The published routing snapshot.
+	 */
+	public RoutingSnapshot initialize(CompiledConveyerNetwork network) {
+		return initialize(network, (RouteTableStore) null);
+	}
 
-		// compute shortest paths
-		for (Map.Entry<BaggagePoint, Map<BaggagePoint, Double>> shortestPathsForSource : network.entrySet()) {
+	/**
+	 * Gets the shortest routes between connected baggage points in a compiled
+	 * conveyer network from a store of persisted route tables, and publishes
+	 * them. If the store holds no table for the configuration of the network,
+	 * the routes are computed and persisted for the next start.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network holding connected baggage
+	 *            points.
+	 * @param store
+	 *            The store of persisted route tables, or null to compute the
+	 *            routes without persisting them.
+	 * @return The published routing snapshot.
+	 */
+	public RoutingSnapshot initialize(CompiledConveyerNetwork network, RouteTableStore store) {
+
+		synchronized (writeLock) {
+			long start = System.nanoTime();
+			InitializeEvent event = new InitializeEvent();
+			event.begin();
+
+			RoutingSnapshot current = snapshot.get();
+			RouteTable routeTable = null == store ? current.getRouteTable().initialize(network)
+					: store.initialize(current.getRouteTable(), network);
+			RoutingSnapshot next = new RoutingSnapshot(current.getVersion() + 1, routeTable);
+			snapshot.set(next);
+			metrics.recordInitialize(System.nanoTime() - start);
+			commit(event, next, false);
+			LOGGER.fine("Initialized routes for baggage points: " + network.size() + ", version: "
+					+ next.getVersion());
+
+			return next;
+		}
+	}
 
-			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
-			path.add(shortestPathsForSource.getKey());
+	/**
+	 * Computes the shortest routes between connected baggage points in a
+	 * compiled conveyer network on another thread, and publishes them once
+	 * complete. Route requests are answered from the previous snapshot in the
+	 * meantime.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network holding connected baggage
+	 *            points.
+	 * @param executor
+	 *            The executor computing the shortest routes.
+	 * @return A future completed with the published routing snapshot.
+	 */
+	public CompletableFuture<RoutingSnapshot> initialize(final CompiledConveyerNetwork network,
+			Executor executor) {
 
-			Set<BaggagePoint> visitedBaggagePoints = new HashSet<BaggagePoint>();
-			visitedBaggagePoints.add(shortestPathsForSource.getKey());
+		return CompletableFuture.supplyAsync(new Supplier<RoutingSnapshot>() {
+			@Override
+			public RoutingSnapshot get() {
+				return initialize(network);
+			}
+		}, executor);
+	}
 
-			saveShortestPaths(network, path, visitedBaggagePoints, 0d);
+	/**
+	 * Updates the shortest routes after a single connection was added, removed
+	 * or changed its distance. Only the routes affected by the change are
+	 * recomputed, provided the network keeps the indexes of the baggage points
+	 * it was initialized with, as {@link ConveyerNetwork#compile()} does;
+	 * otherwise all routes are computed again. Route requests are answered
+	 * from the previous snapshot until the updated one is published.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network including the change.
+	 * @param baggagePointId
+	 *            A String that uniquely identifies one endpoint of the
+	 *            changed connection.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies the other endpoint of the
+	 *            changed connection.
+	 * @return The published routing snapshot.
+	 */
+	public RoutingSnapshot update(CompiledConveyerNetwork network, String baggagePointId, String connectedBaggagePointId) {
+
+		int baggagePoint = network.indexOf(baggagePointId);
+		int connectedBaggagePoint = network.indexOf(connectedBaggagePointId);
+
+		if (baggagePoint < 0) {
+			throw new IllegalArgumentException(String.format("Baggage point %s cannot be found.", baggagePointId));
 		}
-	}
 
-	private void saveShortestPaths(Map<BaggagePoint, Map<BaggagePoint, Double>> network, List<BaggagePoint> path,
-			Set<BaggagePoint> visitedBaggagePoints, double pathDistance) {
+		if (connectedBaggagePoint < 0) {
+			throw new IllegalArgumentException(
+					String.format("Baggage point %s cannot be found.", connectedBaggagePointId));
+		}
 
-		BaggagePoint source = path.get(path.size() - 1);
+		synchronized (writeLock) {
+			RoutingSnapshot current = snapshot.get();
+			RouteTable routeTable = current.getRouteTable();
 
-		for (Map.Entry<BaggagePoint, Double> destinations : network.get(source).entrySet()) {
-			BaggagePoint destination = destinations.getKey();
+			if (!network.isExtensionOf(routeTable.getNetwork())) {
+				LOGGER.info("Baggage point indexes changed, computing all routes again.");
+				return initialize(network);
+			}
 
-			if (!visitedBaggagePoints.contains(destination)) {
+			long start = System.nanoTime();
+			InitializeEvent event = new InitializeEvent();
+			event.begin();
 
-				List<BaggagePoint> nestedPath = new ArrayList<BaggagePoint>(path);
-				nestedPath.add(destination);
+			RoutingSnapshot next = new RoutingSnapshot(current.getVersion() + 1,
+					routeTable.update(network, baggagePoint, connectedBaggagePoint,
+							getDistance(routeTable.getNetwork(), baggagePointId, connectedBaggagePointId),
+							getDistance(network, baggagePointId, connectedBaggagePointId)));
+			snapshot.set(next);
+			metrics.recordUpdate(System.nanoTime() - start);
+			commit(event, next, true);
 
-				double nestedDistance = pathDistance + destinations.getValue();
-				saveShortestPath(path.get(0), destination, nestedPath, nestedDistance);
+			return next;
+		}
+	}
 
-				Set<BaggagePoint> nestedVisitedBaggagePoints = new HashSet<BaggagePoint>(visitedBaggagePoints);
-				nestedVisitedBaggagePoints.add(destination);
-				saveShortestPaths(network, nestedPath, nestedVisitedBaggagePoints, nestedDistance);
-			}
+	private static void commit(InitializeEvent event, RoutingSnapshot snapshot, boolean incremental) {
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.setRouteTable(snapshot.getRouteTable().getClass().getSimpleName());
+			event.setBaggagePointCount(snapshot.getNetwork().size());
+			event.setConnectionCount(snapshot.getNetwork().getConnectionCount());
+			event.setIncremental(incremental);
+			event.setVersion(snapshot.getVersion());
+			event.commit();
 		}
 	}
 
-	private void saveShortestPath(BaggagePoint source, BaggagePoint destination, List<BaggagePoint> path,
-			double distance) {
-		saveShortestPath(getSavedShortestPaths(source), destination, path, distance);
+	private double getDistance(CompiledConveyerNetwork network, String baggagePointId,
+			String connectedBaggagePointId) {
 
-		List<BaggagePoint> reversePath = new ArrayList<BaggagePoint>(path);
-		Collections.reverse(reversePath);
-		saveShortestPath(getSavedShortestPaths(destination), source, reversePath, distance);
+		int baggagePoint = network.indexOf(baggagePointId);
+		int connectedBaggagePoint = network.indexOf(connectedBaggagePointId);
+		int connection = baggagePoint < 0 || connectedBaggagePoint < 0 ? -1
+				: network.findConnection(baggagePoint, connectedBaggagePoint);
+
+		return connection < 0 ? Double.POSITIVE_INFINITY : network.getDistance(connection);
 	}
 
-	private void saveShortestPath(Map<BaggagePoint, ShortestRoute> savedShortestPaths, BaggagePoint destination,
-			List<BaggagePoint> path, double distance) {
+	private static int indexOfSource(CompiledConveyerNetwork network, BaggagePoint source) {
+		int sourceIndex = network.indexOf(source);
 
-		if (savedShortestPaths.containsKey(destination)) {
-			LOGGER.fine("Entry exists for shortest path to : " + destination.getId());
-			ShortestRoute savedShortestPath = savedShortestPaths.get(destination);
+		if (sourceIndex < 0) {
+			throw new IllegalArgumentException(
+					String.format("Baggage point source %s cannot be found.", source.getId()));
+		}
 
-			if (savedShortestPath.distance > distance) {
-				savedShortestPath.distance = distance;
-				savedShortestPath.path = path;
-			}
-		} else {
-			LOGGER.fine("Adding entry for shortest path to : " + destination.getId());
-			savedShortestPaths.put(destination, new ShortestRoute(distance, path));
+		return sourceIndex;
+	}
+
+	private static int indexOfDestination(CompiledConveyerNetwork network, BaggagePoint destination) {
+		int destinationIndex = network.indexOf(destination);
+
+		if (destinationIndex < 0) {
+			throw new IllegalArgumentException(
+					String.format("Baggage point destination %s cannot be found.", destination.getId()));
 		}
+
+		return destinationIndex;
 	}
 
-	private Map<BaggagePoint, ShortestRoute> getSavedShortestPaths(BaggagePoint baggagePoint) {
-		Map<BaggagePoint, ShortestRoute> savedShortestPaths;
+	private static BaggagePoint getDepartureGate(CheckedBag bag) {
+		return null == bag.getScheduledFlight() ? null : bag.getScheduledFlight().getDepartureGate();
+	}
 
-		if (shortestPathsNetwork.containsKey(baggagePoint)) {
-			savedShortestPaths = shortestPathsNetwork.get(baggagePoint);
-			LOGGER.fine("Entry exists for shortest paths for : " + baggagePoint.getId());
+	/**
+	 * Formats the answer for baggage points without a route, with a
+	 * placeholder for a baggage point that is missing altogether.
+	 */
+	private static String formatUnconnected(BaggagePoint source, BaggagePoint destination) {
+		return String.format("%s %s : %s", null == source ? OUTPUT_ID_FOR_MISSING_POINTS : source.getId(),
+				null == destination ? OUTPUT_ID_FOR_MISSING_POINTS : destination.getId(),
+				OUTPUT_DISTANCE_FOR_UNCONNECTED_POINTS);
+	}
+
+	private static String format(CompiledConveyerNetwork network, int sourceIndex, int destinationIndex, ShortestRoute shortestRoute) {
+		String formattedRoute;
+
+		if (sourceIndex == destinationIndex) {
+			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+			path.add(network.getBaggagePoint(sourceIndex));
+			path.add(network.getBaggagePoint(sourceIndex));
+			formattedRoute = new ShortestRoute(0d, path).toString();
+		} else if (null != shortestRoute) {
+			formattedRoute = shortestRoute.toString();
 		} else {
-			savedShortestPaths = new HashMap<BaggagePoint, ShortestRoute>();
-			shortestPathsNetwork.put(baggagePoint, savedShortestPaths);
-			LOGGER.fine("Added entry for shortest path for : " + baggagePoint.getId());
+			formattedRoute = formatUnconnected(network.getBaggagePoint(sourceIndex),
+					network.getBaggagePoint(destinationIndex));
 		}
 
-		return savedShortestPaths;
+		return formattedRoute;
 	}
 }
\ No newline at end of file
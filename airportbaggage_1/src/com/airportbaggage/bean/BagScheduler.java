@@ -0,0 +1,330 @@
+package com.airportbaggage.bean;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.CheckedBag;
+
+/**
+ * A queue of bags waiting to be dispatched onto the conveyer network, ordered
+ * by slack: the departure time of a bag's scheduled flight minus the travel
+ * time of its shortest route. The bag that must leave first is dispatched
+ * first, so bags for early departures never wait behind bags for later ones.
+ * Bags with the same latest dispatch time leave in the order they were first
+ * scheduled.
+ * 
+ * Travel times come from the current snapshot of a bag router, with route
+ * distances converted to time at a fixed rate. Bags whose entry point is not
+ * connected to their departure gate are dispatched before any other, so they
+ * can be handled by hand; bags of flights without a departure time are
+ * dispatched after all others.
+ * 
+ * @author Shafik Mohammad
+ */
+public class BagScheduler {
+
+	private static final Logger LOGGER = Logger.getLogger(BagScheduler.class.getName());
+
+	/**
+	 * Route distances are travel minutes by default
+	 */
+	private static final long DEFAULT_MILLISECONDS_PER_DISTANCE = 60000L;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The latest dispatch time of a bag whose route is not connected
+	 */
+	public static final long UNCONNECTED = Long.MIN_VALUE;
+
+	/**
+	 * The latest dispatch time of a bag whose flight has no departure time
+	 */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private final BagRouter bagRouter;
+	private final long millisecondsPerDistance;
+
+	/**
+	 * The slot of every queued bag, its bag, and the slots freed by dispatched
+	 * or cancelled bags
+	 */
+	private final Map<String, Integer> slots;
+	private CheckedBag[] bags;
+	private int[] freeSlots;
+	private int freeSlotCount;
+	private int slotCount;
+
+	private final DeadlineHeap queue;
+	private long sequence;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param bagRouter
+	 *            The bag router whose current snapshot gives the travel time
+	 *            of the bags.
+	 * @param millisecondsPerDistance
+	 *            The travel time of a bag, in milliseconds, per unit of route
+	 *            distance. Must be at least 1.
+	 */
+	public BagScheduler(BagRouter bagRouter, long millisecondsPerDistance) {
+
+		if (millisecondsPerDistance < 1) {
+			throw new IllegalArgumentException(
+					String.format("Milliseconds per distance %d must be at least 1.", millisecondsPerDistance));
+		}
+
+		this.bagRouter = bagRouter;
+		this.millisecondsPerDistance = millisecondsPerDistance;
+		this.slots = new HashMap<String, Integer>();
+		this.bags = new CheckedBag[INITIAL_CAPACITY];
+		this.freeSlots = new int[INITIAL_CAPACITY];
+		this.queue = new DeadlineHeap(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * A constructor that reads route distances as travel minutes.
+	 * 
+	 * @param bagRouter
+	 *            The bag router whose current snapshot gives the travel time
+	 *            of the bags.
+	 */
+	public BagScheduler(BagRouter bagRouter) {
+		this(bagRouter, DEFAULT_MILLISECONDS_PER_DISTANCE);
+	}
+
+	/**
+	 * Queues a bag, or moves it to its new place if it is already queued, e.g.
+	 * after its flight was delayed or moved to another gate. A bag whose entry
+	 * point or departure gate is not in the network is queued as unconnected.
+	 * 
+	 * @param bag
+	 *            The bag to queue. It needs an entry point and a scheduled
+	 *            flight with a departure gate.
+	 */
+	public synchronized void schedule(CheckedBag bag) {
+
+		RouteTable routeTable = bagRouter.getSnapshot().getRouteTable();
+		CompiledConveyerNetwork network = routeTable.getNetwork();
+		int source = indexOfEntryPoint(network, bag);
+		int destination = indexOfDepartureGate(network, bag);
+		double distance = 0d;
+
+		if (source < 0 || destination < 0) {
+			distance = Double.POSITIVE_INFINITY;
+		} else if (source != destination) {
+			ShortestRoute shortestRoute = routeTable.getShortestRoute(source, destination);
+			distance = null == shortestRoute ? Double.POSITIVE_INFINITY : shortestRoute.getDistance();
+		}
+
+		offer(bag, getLatestDispatchTime(bag, distance));
+	}
+
+	/**
+	 * Queues a batch of bags, or moves them to their new places if they are
+	 * already queued. The shortest path tree of each distinct entry point is
+	 * looked up once for the whole batch.
+	 * 
+	 * @param bags
+	 *            The bags to queue. Every bag needs an entry point and a
+	 *            scheduled flight with a departure gate.
+	 */
+	public synchronized void schedule(Collection<? extends CheckedBag> bags) {
+
+		RouteTable routeTable = bagRouter.getSnapshot().getRouteTable();
+		CompiledConveyerNetwork network = routeTable.getNetwork();
+		Map<Integer, ShortestPathTree> shortestPathTrees = new HashMap<Integer, ShortestPathTree>();
+
+		for (CheckedBag bag : bags) {
+			int source = indexOfEntryPoint(network, bag);
+			int destination = indexOfDepartureGate(network, bag);
+			double distance = Double.POSITIVE_INFINITY;
+
+			if (source >= 0 && destination >= 0) {
+				ShortestPathTree shortestPathTree = shortestPathTrees.get(source);
+
+				if (null == shortestPathTree) {
+					shortestPathTree = routeTable.getShortestPathTree(source);
+					shortestPathTrees.put(source, shortestPathTree);
+				}
+
+				distance = shortestPathTree.distances[destination];
+			}
+
+			offer(bag, getLatestDispatchTime(bag, distance));
+		}
+
+		LOGGER.fine("Scheduled bags: " + bags.size() + ", entry points: " + shortestPathTrees.size());
+	}
+
+	/**
+	 * Removes a bag from the queue.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return True, if the bag was queued; false, otherwise.
+	 */
+	public synchronized boolean cancel(String bagId) {
+		Integer slot = slots.remove(bagId);
+
+		if (null != slot) {
+			queue.remove(slot);
+			release(slot);
+		}
+
+		return null != slot;
+	}
+
+	/**
+	 * Gets the bag that must be dispatched first, without removing it.
+	 * 
+	 * @return The bag, or null if the queue is empty.
+	 */
+	public synchronized CheckedBag peek() {
+		return queue.isEmpty() ? null : bags[queue.peek()];
+	}
+
+	/**
+	 * Removes the bag that must be dispatched first.
+	 * 
+	 * @return The bag, or null if the queue is empty.
+	 */
+	public synchronized CheckedBag poll() {
+		CheckedBag bag = null;
+
+		if (!queue.isEmpty()) {
+			int slot = queue.poll();
+			bag = bags[slot];
+			slots.remove(bag.getId());
+			release(slot);
+		}
+
+		return bag;
+	}
+
+	/**
+	 * Gets the latest time a queued bag can be dispatched and still make its
+	 * flight.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The latest dispatch time, in milliseconds since the epoch;
+	 *         {@link #UNCONNECTED} or {@link #NO_DEADLINE} for bags without
+	 *         one.
+	 */
+	public synchronized long getLatestDispatchTime(String bagId) {
+		Integer slot = slots.get(bagId);
+
+		if (null == slot) {
+			throw new IllegalArgumentException(String.format("Bag %s is not scheduled.", bagId));
+		}
+
+		return queue.getKey(slot);
+	}
+
+	/**
+	 * Gets the number of queued bags.
+	 * 
+	 * @return The bag count.
+	 */
+	public synchronized int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Checks whether no bags are queued.
+	 * 
+	 * @return True, if no bags are queued; false, otherwise.
+	 */
+	public synchronized boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("BagScheduler[size=%d, next=%s]", queue.size(),
+				queue.isEmpty() ? null : bags[queue.peek()].getId());
+	}
+
+	private long getLatestDispatchTime(CheckedBag bag, double distance) {
+		long departureTime = bag.getScheduledFlight().getDepartureTimeMillis();
+		long latestDispatchTime;
+
+		if (Double.isInfinite(distance)) {
+			latestDispatchTime = UNCONNECTED;
+		} else if (ScheduledFlight.NO_TIME == departureTime) {
+			latestDispatchTime = NO_DEADLINE;
+		} else {
+			latestDispatchTime = departureTime - Math.round(distance * millisecondsPerDistance);
+		}
+
+		return latestDispatchTime;
+	}
+
+	private void offer(CheckedBag bag, long latestDispatchTime) {
+		Integer slot = slots.get(bag.getId());
+
+		if (null == slot) {
+			slot = acquire();
+			slots.put(bag.getId(), slot);
+		}
+
+		bags[slot] = bag;
+		queue.offer(slot, latestDispatchTime, sequence++);
+	}
+
+	private int acquire() {
+		int slot;
+
+		if (freeSlotCount > 0) {
+			slot = freeSlots[--freeSlotCount];
+		} else {
+			slot = slotCount++;
+
+			if (slot == bags.length) {
+				bags = Arrays.copyOf(bags, bags.length + (bags.length >>> 1));
+				freeSlots = Arrays.copyOf(freeSlots, bags.length);
+			}
+		}
+
+		return slot;
+	}
+
+	private void release(int slot) {
+		bags[slot] = null;
+		freeSlots[freeSlotCount++] = slot;
+	}
+
+	private static int indexOfEntryPoint(CompiledConveyerNetwork network, CheckedBag bag) {
+
+		if (null == bag.getEntryPoint() || null == bag.getScheduledFlight()
+				|| null == bag.getScheduledFlight().getDepartureGate()) {
+			throw new IllegalArgumentException(
+					String.format("Bag %s has no entry point or departure gate.", bag.getId()));
+		}
+
+		int source = network.indexOf(bag.getEntryPoint());
+
+		if (source < 0) {
+			LOGGER.warning(String.format("Baggage point source %s of bag %s cannot be found.",
+					bag.getEntryPoint().getId(), bag.getId()));
+		}
+
+		return source;
+	}
+
+	private static int indexOfDepartureGate(CompiledConveyerNetwork network, CheckedBag bag) {
+		int destination = network.indexOf(bag.getScheduledFlight().getDepartureGate());
+
+		if (destination < 0) {
+			LOGGER.warning(String.format("Baggage point destination %s of bag %s cannot be found.",
+					bag.getScheduledFlight().getDepartureGate().getId(), bag.getId()));
+		}
+
+		return destination;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.airportbaggage.bean;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A route table that computes the shortest routes from a source baggage point
+ * the first time a route from it is requested, and keeps the routes of the
+ * most recently used sources in a bounded cache. Bags enter the conveyer
+ * network at a handful of baggage points, so a small cache serves most
+ * requests while holding a fraction of the all-pairs table.
+ * 
+ * @author Shafik Mohammad
+ */
+public class CachedRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(CachedRouteTable.class.getName());
+
+	/**
+	 * The estimated size of an access-ordered map entry and its boxed source
+	 */
+	private static final long CACHE_ENTRY_SIZE = MemoryEstimate.ofObject(Integer.BYTES + 5 * MemoryEstimate.REFERENCE)
+			+ MemoryEstimate.ofObject(Integer.BYTES);
+
+	/**
+	 * The maximum number of source baggage points whose routes are cached
+	 */
+	private final int capacity;
+
+	/**
+	 * The shortest path trees of recently used source baggage points, in
+	 * least-recently-used order
+	 */
+	private final Map<Integer, ShortestPathTree> shortestPathsNetwork;
+
+	/**
+	 * The statistics, shared by the tables initialized or updated from one
+	 * another
+	 */
+	private final AtomicLong hitCount;
+	private final AtomicLong missCount;
+	private final AtomicLong evictionCount;
+
+	/**
+	 * The compiled conveyer network the shortest routes are computed for
+	 */
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param capacity
+	 *            The maximum number of source baggage points whose routes are
+	 *            cached. Must be at least 1.
+	 */
+	public CachedRouteTable(int capacity) {
+		this(capacity, CompiledConveyerNetwork.EMPTY, new AtomicLong(), new AtomicLong(), new AtomicLong());
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format("Cache capacity %d must be at least 1.", capacity));
+		}
+	}
+
+	private CachedRouteTable(final int capacity, CompiledConveyerNetwork network, AtomicLong hitCount,
+			AtomicLong missCount, final AtomicLong evictionCount) {
+
+		this.capacity = capacity;
+		this.network = network;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.shortestPathsNetwork = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+				boolean evict = size() > capacity;
+
+				if (evict) {
+					evictionCount.incrementAndGet();
+				}
+
+				return evict;
+			}
+		};
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+		return new CachedRouteTable(capacity, network, hitCount, missCount, evictionCount);
+	}
+
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		CachedRouteTable updatedTable = new CachedRouteTable(capacity, network, hitCount, missCount, evictionCount);
+		DijkstraSearch search = new DijkstraSearch(network);
+
+		// carry the cached trees over, least recently used first to keep
+		// their order
+		synchronized (shortestPathsNetwork) {
+			for (Map.Entry<Integer, ShortestPathTree> entry : shortestPathsNetwork.entrySet()) {
+				ShortestPathTree shortestPathTree = search.updateShortestPathTree(entry.getValue(), baggagePoint,
+						connectedBaggagePoint, previousDistance, distance);
+
+				updatedTable.shortestPathsNetwork.put(entry.getKey(),
+						null == shortestPathTree ? entry.getValue() : shortestPathTree);
+			}
+		}
+
+		return updatedTable;
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	/**
+	 * Estimates the memory of the cached trees, with the map entries and boxed
+	 * sources that hold them.
+	 */
+	@Override
+	public long getMemoryEstimate() {
+		long memoryEstimate = 0L;
+
+		synchronized (shortestPathsNetwork) {
+			for (ShortestPathTree shortestPathTree : shortestPathsNetwork.values()) {
+				memoryEstimate += shortestPathTree.getMemoryEstimate() + CACHE_ENTRY_SIZE;
+			}
+		}
+
+		return memoryEstimate;
+	}
+
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		ShortestPathTree shortestPathTree;
+
+		synchronized (shortestPathsNetwork) {
+			shortestPathTree = shortestPathsNetwork.get(source);
+		}
+
+		if (null != shortestPathTree) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+			LOGGER.fine("Computing shortest routes for : " + network.getBaggagePoint(source).getId());
+
+			// search outside the lock; a concurrent miss for the same source
+			// computes the same routes and the later one wins
+			shortestPathTree = new DijkstraSearch(network).computeShortestPathTree(source);
+
+			synchronized (shortestPathsNetwork) {
+				shortestPathsNetwork.put(source, shortestPathTree);
+			}
+		}
+
+		return shortestPathTree;
+	}
+
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+		return getShortestPathTree(source).getShortestRoute(destination);
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+
+	/**
+	 * Gets the maximum number of source baggage points whose routes are
+	 * cached.
+	 * 
+	 * @return The cache capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of source baggage points whose routes are currently
+	 * cached by this table.
+	 * 
+	 * @return The cache size.
+	 */
+	public int getSize() {
+		synchronized (shortestPathsNetwork) {
+			return shortestPathsNetwork.size();
+		}
+	}
+
+	/**
+	 * Gets the number of route requests served from the cache, by this table
+	 * and the tables it was initialized or updated from.
+	 * 
+	 * @return The hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of route requests that had to compute the routes of
+	 * their source.
+	 * 
+	 * @return The miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Gets the number of sources whose routes were evicted to keep the cache
+	 * within its capacity.
+	 * 
+	 * @return The eviction count.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Gets the fraction of route requests served from the cache.
+	 * 
+	 * @return The hit rate between 0 and 1, or 0 if no route was requested.
+	 */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long requests = hits + missCount.get();
+
+		return 0 == requests ? 0d : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CachedRouteTable[capacity=%d, size=%d, hits=%d, misses=%d, evictions=%d]", capacity,
+				getSize(), getHitCount(), getMissCount(), getEvictionCount());
+	}
+}
\ No newline at end of file
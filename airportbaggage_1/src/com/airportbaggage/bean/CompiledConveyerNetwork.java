@@ -0,0 +1,287 @@
+package com.airportbaggage.bean;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * An immutable, compiled form of a conveyer network. Baggage points are
+ * interned to dense integer indexes and the connections are held in
+ * compressed-sparse-row form: the connections of the baggage point at index
+ * {@code i} are found at positions {@code getFirstConnection(i)} (inclusive)
+ * to {@code getLastConnection(i)} (exclusive) of the target and distance
+ * arrays.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class CompiledConveyerNetwork {
+
+	/**
+	 * A compiled conveyer network without baggage points
+	 */
+	public static final CompiledConveyerNetwork EMPTY = new CompiledConveyerNetwork(new BaggagePoint[0],
+			new HashMap<String, Integer>(), new int[1], new int[0], new double[0]);
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final BaggagePoint[] baggagePoints;
+	private final Map<String, Integer> indexes;
+
+	/**
+	 * compressed-sparse-row representation of the conveyer network
+	 */
+	private final int[] offsets;
+	private final int[] targets;
+	private final double[] distances;
+
+	private CompiledConveyerNetwork(BaggagePoint[] baggagePoints, Map<String, Integer> indexes, int[] offsets,
+			int[] targets, double[] distances) {
+
+		this.baggagePoints = baggagePoints;
+		this.indexes = indexes;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.distances = distances;
+	}
+
+	/**
+	 * Compiles the adjacency-lists representation of a conveyer network.
+	 * Baggage points are indexed in the iteration order of the network.
+	 * 
+	 * @param network
+	 *            The conveyer network holding connected baggage points.
+	 * @return The compiled conveyer network.
+	 */
+	public static CompiledConveyerNetwork compile(Map<BaggagePoint, Map<BaggagePoint, Double>> network) {
+
+		BaggagePoint[] baggagePoints = new BaggagePoint[network.size()];
+		Map<String, Integer> indexes = new HashMap<String, Integer>(network.size() * 2);
+		int connectionCount = 0;
+
+		for (Map.Entry<BaggagePoint, Map<BaggagePoint, Double>> entry : network.entrySet()) {
+			indexes.put(entry.getKey().getId(), indexes.size());
+			baggagePoints[indexes.size() - 1] = entry.getKey();
+			connectionCount += entry.getValue().size();
+		}
+
+		int[] offsets = new int[baggagePoints.length + 1];
+		int[] targets = new int[connectionCount];
+		double[] distances = new double[connectionCount];
+		int connection = 0;
+
+		for (int index = 0; index < baggagePoints.length; index++) {
+			offsets[index] = connection;
+
+			for (Map.Entry<BaggagePoint, Double> destination : network.get(baggagePoints[index]).entrySet()) {
+				Integer target = indexes.get(destination.getKey().getId());
+
+				if (null == target) {
+					throw new IllegalArgumentException(String.format(
+							"Baggage point %s is connected but has no connections of its own.",
+							destination.getKey().getId()));
+				}
+
+				targets[connection] = target;
+				distances[connection] = destination.getValue();
+				connection++;
+			}
+		}
+		offsets[baggagePoints.length] = connection;
+
+		return new CompiledConveyerNetwork(baggagePoints, indexes, offsets, targets, distances);
+	}
+
+	/**
+	 * Gets the number of baggage points in the conveyer network.
+	 * 
+	 * @return The number of baggage points.
+	 */
+	public int size() {
+		return baggagePoints.length;
+	}
+
+	/**
+	 * Gets the number of directed connections in the conveyer network. Every
+	 * belt segment added through the conveyer network counts twice, once in
+	 * each direction.
+	 * 
+	 * @return The number of directed connections.
+	 */
+	public int getConnectionCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Gets the index of a baggage point.
+	 * 
+	 * @param baggagePoint
+	 *            The baggage point.
+	 * @return The index of the baggage point, if found; -1, otherwise.
+	 */
+	public int indexOf(BaggagePoint baggagePoint) {
+		return indexOf(baggagePoint.getId());
+	}
+
+	/**
+	 * Gets the index of a baggage point.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies the baggage point.
+	 * @return The index of the baggage point, if found; -1, otherwise.
+	 */
+	public int indexOf(String baggagePointId) {
+		Integer index = indexes.get(baggagePointId);
+
+		return null == index ? -1 : index;
+	}
+
+	/**
+	 * Gets the baggage point at an index.
+	 * 
+	 * @param index
+	 *            The index of the baggage point.
+	 * @return The baggage point.
+	 */
+	public BaggagePoint getBaggagePoint(int index) {
+		return baggagePoints[index];
+	}
+
+	/**
+	 * Gets the position of the first connection of a baggage point.
+	 * 
+	 * @param index
+	 *            The index of the baggage point.
+	 * @return The position of the first connection (inclusive).
+	 */
+	public int getFirstConnection(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Gets the position after the last connection of a baggage point.
+	 * 
+	 * @param index
+	 *            The index of the baggage point.
+	 * @return The position after the last connection (exclusive).
+	 */
+	public int getLastConnection(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * Gets the connected baggage point of a connection.
+	 * 
+	 * @param connection
+	 *            The position of the connection.
+	 * @return The index of the connected baggage point.
+	 */
+	public int getTarget(int connection) {
+		return targets[connection];
+	}
+
+	/**
+	 * Gets the distance of a connection.
+	 * 
+	 * @param connection
+	 *            The position of the connection.
+	 * @return The distance between the connected baggage points.
+	 */
+	public double getDistance(int connection) {
+		return distances[connection];
+	}
+
+	/**
+	 * Finds the connection between two baggage points.
+	 * 
+	 * @param index
+	 *            The index of the baggage point.
+	 * @param connectedIndex
+	 *            The index of the connected baggage point.
+	 * @return The position of the connection, if found; -1, otherwise.
+	 */
+	public int findConnection(int index, int connectedIndex) {
+		int found = -1;
+
+		for (int connection = offsets[index]; found < 0 && connection < offsets[index + 1]; connection++) {
+			if (targets[connection] == connectedIndex) {
+				found = connection;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Checks whether this network keeps the baggage point indexes of another
+	 * network, i.e. it holds the same baggage points at the same indexes and
+	 * possibly more after them.
+	 * 
+	 * @param previous
+	 *            The other compiled conveyer network.
+	 * @return true, if every baggage point of the other network has the same
+	 *         index in this network; false, otherwise.
+	 */
+	public boolean isExtensionOf(CompiledConveyerNetwork previous) {
+		boolean extension = baggagePoints.length >= previous.baggagePoints.length;
+
+		for (int index = 0; extension && index < previous.baggagePoints.length; index++) {
+			extension = baggagePoints[index].getId().equals(previous.baggagePoints[index].getId());
+		}
+
+		return extension;
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of the baggage point identifiers, their
+	 * indexes and every connection with its distance. Networks compiled from
+	 * the same conveyor configuration hash the same, so the hash keys
+	 * persisted routes; it is computed on every call, in time linear in the
+	 * size of the network.
+	 * 
+	 * @return The configuration hash.
+	 */
+	public long getConfigurationHash() {
+		long hash = FNV_OFFSET_BASIS;
+
+		hash = hash(hash, baggagePoints.length);
+		hash = hash(hash, targets.length);
+
+		for (BaggagePoint baggagePoint : baggagePoints) {
+			String id = baggagePoint.getId();
+			hash = hash(hash, id.length());
+
+			for (int character = 0; character < id.length(); character++) {
+				hash = hash(hash, id.charAt(character));
+			}
+		}
+
+		for (int offset : offsets) {
+			hash = hash(hash, offset);
+		}
+
+		for (int connection = 0; connection < targets.length; connection++) {
+			long distanceBits = Double.doubleToLongBits(distances[connection]);
+			hash = hash(hash, targets[connection]);
+			hash = hash(hash, (int) (distanceBits >>> 32));
+			hash = hash(hash, (int) distanceBits);
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CompiledConveyerNetwork[baggagePoints=%d, connections=%d]", baggagePoints.length,
+				targets.length);
+	}
+
+	private static long hash(long hash, int value) {
+		for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+			hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+		}
+
+		return hash;
+	}
+}
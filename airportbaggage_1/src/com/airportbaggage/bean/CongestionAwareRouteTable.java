@@ -0,0 +1,209 @@
+package com.airportbaggage.bean;
+
+import java.util.logging.Logger;
+
+/**
+ * A route table that routes bags around congested conveyer segments. The cost
+ * of a segment grows with its load relative to its capacity, following the
+ * BPR (Bureau of Public Roads) link performance function
+ * 
+ * <pre>
+ * cost = distance * (1 + alpha * (load / capacity) ^ beta)
+ * </pre>
+ * 
+ * so an idle segment costs its distance, and a segment nearing capacity
+ * costs enough more that bags take an alternate route of nearly the same
+ * distance. Routes are searched on demand, against the load at the time of
+ * the request; the distance reported for a route is its distance, not its
+ * cost.
+ * 
+ * Every route returned by {@link #dispatch(int, int)} is counted in the
+ * forecast load of its segments, so consecutive bags spread across alternate
+ * routes instead of all queuing on the one that was cheapest when the load
+ * was last observed. Routes that are only looked up are not counted.
+ * 
+ * @author Shafik Mohammad
+ */
+public class CongestionAwareRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(CongestionAwareRouteTable.class.getName());
+
+	private static final double DEFAULT_ALPHA = 0.15d;
+	private static final double DEFAULT_BETA = 4d;
+
+	/**
+	 * The load of the segments, shared by the tables initialized or updated
+	 * from one another
+	 */
+	private final ConveyerLoad load;
+
+	private final double alpha;
+	private final double beta;
+
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The load of the segment of every connection, indexed by connection
+	 */
+	private final ConveyerLoad.Segment[] segments;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param load
+	 *            The load of the conveyer segments.
+	 * @param alpha
+	 *            The relative cost added to a segment at capacity. Must be
+	 *            positive.
+	 * @param beta
+	 *            How sharply the cost of a segment grows as it nears
+	 *            capacity. Must be at least 1.
+	 */
+	public CongestionAwareRouteTable(ConveyerLoad load, double alpha, double beta) {
+
+		if (!(alpha > 0d) || Double.isInfinite(alpha)) {
+			throw new IllegalArgumentException(String.format("Alpha %s must be positive and finite.", alpha));
+		}
+
+		if (!(beta >= 1d) || Double.isInfinite(beta)) {
+			throw new IllegalArgumentException(String.format("Beta %s must be at least 1 and finite.", beta));
+		}
+
+		this.load = load;
+		this.alpha = alpha;
+		this.beta = beta;
+		this.network = CompiledConveyerNetwork.EMPTY;
+		this.segments = new ConveyerLoad.Segment[0];
+	}
+
+	/**
+	 * A constructor that uses the customary BPR parameters, alpha 0.15 and
+	 * beta 4.
+	 * 
+	 * @param load
+	 *            The load of the conveyer segments.
+	 */
+	public CongestionAwareRouteTable(ConveyerLoad load) {
+		this(load, DEFAULT_ALPHA, DEFAULT_BETA);
+	}
+
+	private CongestionAwareRouteTable(CongestionAwareRouteTable prototype, CompiledConveyerNetwork network) {
+		this.load = prototype.load;
+		this.alpha = prototype.alpha;
+		this.beta = prototype.beta;
+		this.network = network;
+		this.segments = new ConveyerLoad.Segment[network.getConnectionCount()];
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			for (int connection = network.getFirstConnection(baggagePoint); connection < network
+					.getLastConnection(baggagePoint); connection++) {
+				segments[connection] = load.getSegment(network.getBaggagePoint(baggagePoint).getId(),
+						network.getBaggagePoint(network.getTarget(connection)).getId());
+			}
+		}
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+		return new CongestionAwareRouteTable(this, network);
+	}
+
+	/**
+	 * Resolves the segments of the changed network; no routes are held.
+	 */
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+		return initialize(network);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return true;
+	}
+
+	/**
+	 * Estimates the memory of the segment references only; no routes are held,
+	 * and the segments belong to the conveyer load.
+	 */
+	@Override
+	public long getMemoryEstimate() {
+		return MemoryEstimate.ofArray(MemoryEstimate.REFERENCE, segments.length);
+	}
+
+	/**
+	 * Gets the tree of the cheapest routes from a source baggage point, at the
+	 * current load. The routes of the tree are not counted in the forecast
+	 * load.
+	 */
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		return new DijkstraSearch(network).computeShortestPathTree(source, getCosts(), -1);
+	}
+
+	/**
+	 * Gets the cheapest route between two different baggage points at the
+	 * current load, without counting it in the load.
+	 */
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+		return new DijkstraSearch(network).computeShortestPathTree(source, getCosts(), destination)
+				.getShortestRoute(destination);
+	}
+
+	/**
+	 * Gets the cheapest route between two different baggage points at the
+	 * current load, and counts it in the forecast load of its segments.
+	 */
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+
+		ShortestPathTree shortestPathTree = new DijkstraSearch(network).computeShortestPathTree(source, getCosts(),
+				destination);
+		ShortestRoute shortestRoute = shortestPathTree.getShortestRoute(destination);
+
+		int baggagePoint = destination;
+
+		while (shortestPathTree.getPredecessor(baggagePoint) >= 0) {
+			int predecessor = shortestPathTree.getPredecessor(baggagePoint);
+			load.forecast(segments[network.findConnection(predecessor, baggagePoint)]);
+			baggagePoint = predecessor;
+		}
+
+		return shortestRoute;
+	}
+
+	/**
+	 * Gets the cost of every connection at the current load.
+	 */
+	private double[] getCosts() {
+		double[] costs = new double[segments.length];
+		int congested = 0;
+
+		for (int connection = 0; connection < segments.length; connection++) {
+			ConveyerLoad.Segment segment = segments[connection];
+			double segmentLoad = load.getLoad(segment);
+			costs[connection] = network.getDistance(connection);
+
+			if (segmentLoad > 0) {
+				double saturation = segmentLoad / load.getCapacity(segment);
+				costs[connection] *= 1d + alpha * Math.pow(saturation, beta);
+
+				if (saturation >= 1d) {
+					congested++;
+				}
+			}
+		}
+
+		if (congested > 0) {
+			LOGGER.fine("Segments at capacity: " + congested);
+		}
+
+		return costs;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,609 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * A route table backed by a contraction hierarchy. During initialization the
+ * baggage points are contracted one by one, least important first, adding a
+ * shortcut connection between two neighbours whenever the contracted baggage
+ * point lies on their only shortest route. A route request then runs two small
+ * searches, from the source and from the destination, that only follow
+ * connections towards more important baggage points, and unpacks the
+ * shortcuts of the route where they meet. The hierarchy takes memory close to
+ * the size of the network instead of the quadratic all-pairs table.
+ * 
+ * @author Shafik Mohammad
+ */
+public class ContractionHierarchyRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(ContractionHierarchyRouteTable.class.getName());
+
+	/**
+	 * The number of baggage points a witness search may settle before it gives
+	 * up and a shortcut is added, trading a few superfluous shortcuts for
+	 * preprocessing time
+	 */
+	private static final int WITNESS_SETTLE_LIMIT = 256;
+
+	private static final int FORWARD = 0;
+	private static final int BACKWARD = 1;
+
+	/**
+	 * Query states, reused across route requests of any thread
+	 */
+	private final SearchPool<Query> queries;
+
+	/**
+	 * The statistics, shared by the tables initialized or updated from one
+	 * another
+	 */
+	private final AtomicLong queryCount;
+	private final AtomicLong settledCount;
+
+	private final Hierarchy hierarchy;
+
+	/**
+	 * The contracted network: for every baggage point, the connections and
+	 * shortcuts towards more important baggage points in compressed-sparse-row
+	 * form.
+	 */
+	private static class Hierarchy {
+		final CompiledConveyerNetwork network;
+		final int[] offsets;
+		final int[] targets;
+		final double[] distances;
+
+		/**
+		 * the contracted baggage point a shortcut bypasses; -1 for original
+		 * connections
+		 */
+		final int[] middles;
+
+		Hierarchy(CompiledConveyerNetwork network, int[] offsets, int[] targets, double[] distances, int[] middles) {
+			this.network = network;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.distances = distances;
+			this.middles = middles;
+		}
+
+		/**
+		 * Finds the upward connection from a less important to a more
+		 * important baggage point.
+		 */
+		int findConnection(int lower, int higher) {
+			int connection = offsets[lower];
+
+			while (targets[connection] != higher) {
+				connection++;
+			}
+
+			return connection;
+		}
+	}
+
+	/**
+	 * The state of one bidirectional query. Arrays are stamped with the query
+	 * they were written by, so nothing has to be cleared between queries.
+	 */
+	private static class Query {
+		final DistanceHeap[] heaps;
+		final double[][] distances;
+		final int[][] predecessors;
+		final int[][] connections;
+		final int[][] reached;
+		int stamp;
+
+		Query(int size) {
+			heaps = new DistanceHeap[] { new DistanceHeap(size), new DistanceHeap(size) };
+			distances = new double[2][size];
+			predecessors = new int[2][size];
+			connections = new int[2][size];
+			reached = new int[2][size];
+		}
+	}
+
+	/**
+	 * The mutable network used while contracting: an adjacency list per
+	 * baggage point, holding original connections and shortcuts.
+	 */
+	private static class Contraction {
+		final int[][] targets;
+		final double[][] distances;
+		final int[][] middles;
+		final int[] degrees;
+		final boolean[] contracted;
+		final int[] contractedNeighbours;
+
+		// witness search state
+		final DistanceHeap heap;
+		final double[] witnessDistances;
+		final int[] witnessReached;
+		int witnessStamp;
+
+		Contraction(CompiledConveyerNetwork network) {
+			int size = network.size();
+			targets = new int[size][];
+			distances = new double[size][];
+			middles = new int[size][];
+			degrees = new int[size];
+			contracted = new boolean[size];
+			contractedNeighbours = new int[size];
+			heap = new DistanceHeap(size);
+			witnessDistances = new double[size];
+			witnessReached = new int[size];
+
+			for (int baggagePoint = 0; baggagePoint < size; baggagePoint++) {
+				int degree = network.getLastConnection(baggagePoint) - network.getFirstConnection(baggagePoint);
+				targets[baggagePoint] = new int[Math.max(degree, 2)];
+				distances[baggagePoint] = new double[Math.max(degree, 2)];
+				middles[baggagePoint] = new int[Math.max(degree, 2)];
+
+				for (int connection = network.getFirstConnection(baggagePoint); connection < network
+						.getLastConnection(baggagePoint); connection++) {
+					addArc(baggagePoint, network.getTarget(connection), network.getDistance(connection), -1);
+				}
+			}
+		}
+
+		/**
+		 * Adds a one-way connection, or shortens an existing one.
+		 */
+		void addArc(int from, int to, double distance, int middle) {
+			for (int arc = 0; arc < degrees[from]; arc++) {
+				if (targets[from][arc] == to) {
+					if (distance < distances[from][arc]) {
+						distances[from][arc] = distance;
+						middles[from][arc] = middle;
+					}
+					return;
+				}
+			}
+
+			if (degrees[from] == targets[from].length) {
+				targets[from] = Arrays.copyOf(targets[from], degrees[from] * 2);
+				distances[from] = Arrays.copyOf(distances[from], degrees[from] * 2);
+				middles[from] = Arrays.copyOf(middles[from], degrees[from] * 2);
+			}
+
+			targets[from][degrees[from]] = to;
+			distances[from][degrees[from]] = distance;
+			middles[from][degrees[from]] = middle;
+			degrees[from]++;
+		}
+
+		/**
+		 * Contracts a baggage point, or only counts the shortcuts contracting
+		 * it would add.
+		 * 
+		 * @return The number of shortcuts.
+		 */
+		int contract(int baggagePoint, boolean simulate) {
+			int shortcutCount = 0;
+			int[] neighbours = new int[degrees[baggagePoint]];
+			double[] neighbourDistances = new double[degrees[baggagePoint]];
+			int neighbourCount = 0;
+
+			for (int arc = 0; arc < degrees[baggagePoint]; arc++) {
+				if (!contracted[targets[baggagePoint][arc]]) {
+					neighbours[neighbourCount] = targets[baggagePoint][arc];
+					neighbourDistances[neighbourCount++] = distances[baggagePoint][arc];
+				}
+			}
+
+			// connections are two-way, so each pair of neighbours is checked
+			// once, from the first of them
+			for (int first = 0; first < neighbourCount - 1; first++) {
+				double maxDistance = 0d;
+
+				for (int second = first + 1; second < neighbourCount; second++) {
+					maxDistance = Math.max(maxDistance, neighbourDistances[first] + neighbourDistances[second]);
+				}
+
+				searchWitnesses(neighbours[first], baggagePoint, maxDistance);
+
+				for (int second = first + 1; second < neighbourCount; second++) {
+					double viaDistance = neighbourDistances[first] + neighbourDistances[second];
+
+					if (witnessReached[neighbours[second]] != witnessStamp
+							|| witnessDistances[neighbours[second]] > viaDistance) {
+						shortcutCount++;
+
+						if (!simulate) {
+							addArc(neighbours[first], neighbours[second], viaDistance, baggagePoint);
+							addArc(neighbours[second], neighbours[first], viaDistance, baggagePoint);
+						}
+					}
+				}
+			}
+
+			if (!simulate) {
+				contracted[baggagePoint] = true;
+
+				for (int neighbour = 0; neighbour < neighbourCount; neighbour++) {
+					contractedNeighbours[neighbours[neighbour]]++;
+				}
+			}
+
+			return shortcutCount;
+		}
+
+		/**
+		 * Gets the importance of a baggage point: the edge difference of
+		 * contracting it, plus the number of its contracted neighbours to
+		 * spread contraction evenly over the network.
+		 */
+		double getPriority(int baggagePoint) {
+			int neighbourCount = 0;
+
+			for (int arc = 0; arc < degrees[baggagePoint]; arc++) {
+				if (!contracted[targets[baggagePoint][arc]]) {
+					neighbourCount++;
+				}
+			}
+
+			return contract(baggagePoint, true) - neighbourCount + contractedNeighbours[baggagePoint];
+		}
+
+		/**
+		 * Searches the uncontracted network from a baggage point, avoiding the
+		 * baggage point being contracted, up to a distance and settle limit.
+		 */
+		private void searchWitnesses(int source, int avoided, double maxDistance) {
+			int stamp = ++witnessStamp;
+			int settled = 0;
+
+			witnessDistances[source] = 0d;
+			witnessReached[source] = stamp;
+			heap.offer(source, 0d);
+
+			while (!heap.isEmpty() && heap.peekKey() <= maxDistance && settled++ < WITNESS_SETTLE_LIMIT) {
+				int baggagePoint = heap.poll();
+
+				for (int arc = 0; arc < degrees[baggagePoint]; arc++) {
+					int target = targets[baggagePoint][arc];
+					double distance = witnessDistances[baggagePoint] + distances[baggagePoint][arc];
+
+					if (target != avoided && !contracted[target]
+							&& (witnessReached[target] != stamp || distance < witnessDistances[target])) {
+						witnessDistances[target] = distance;
+						witnessReached[target] = stamp;
+						heap.offer(target, distance);
+					}
+				}
+			}
+
+			heap.clear();
+		}
+	}
+
+	/**
+	 * The default constructor.
+	 */
+	public ContractionHierarchyRouteTable() {
+		this.queries = new SearchPool<Query>();
+		this.queryCount = new AtomicLong();
+		this.settledCount = new AtomicLong();
+		this.hierarchy = new Hierarchy(CompiledConveyerNetwork.EMPTY, new int[1], new int[0], new double[0],
+				new int[0]);
+	}
+
+	/**
+	 * Creates the table of a contracted network from the table it is
+	 * initialized from, sharing its query state and statistics.
+	 */
+	private ContractionHierarchyRouteTable(ContractionHierarchyRouteTable prototype, Hierarchy hierarchy) {
+		this.queries = prototype.queries;
+		this.queryCount = prototype.queryCount;
+		this.settledCount = prototype.settledCount;
+		this.hierarchy = hierarchy;
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+
+		Contraction contraction = new Contraction(network);
+		DistanceHeap order = new DistanceHeap(network.size());
+		int[] ranks = new int[network.size()];
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			order.offer(baggagePoint, contraction.getPriority(baggagePoint));
+		}
+
+		// contract the least important baggage point first, recomputing its
+		// priority lazily since contracting its neighbours may have changed it
+		int rank = 0;
+
+		while (!order.isEmpty()) {
+			int baggagePoint = order.poll();
+			double priority = contraction.getPriority(baggagePoint);
+
+			if (!order.isEmpty() && priority > order.peekKey()) {
+				order.offer(baggagePoint, priority);
+			} else {
+				contraction.contract(baggagePoint, false);
+				ranks[baggagePoint] = rank++;
+			}
+		}
+
+		Hierarchy hierarchy = buildHierarchy(network, contraction, ranks);
+		LOGGER.fine("Contracted baggage points: " + network.size() + ", upward connections: "
+				+ hierarchy.targets.length);
+
+		return new ContractionHierarchyRouteTable(this, hierarchy);
+	}
+
+	/**
+	 * Contracts the network again: a changed connection may invalidate any
+	 * number of shortcuts.
+	 */
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+		return initialize(network);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return hierarchy.network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	@Override
+	public long getMemoryEstimate() {
+		return MemoryEstimate.ofArray(Integer.BYTES, hierarchy.offsets.length)
+				+ MemoryEstimate.ofArray(Integer.BYTES, hierarchy.targets.length)
+				+ MemoryEstimate.ofArray(Double.BYTES, hierarchy.distances.length)
+				+ MemoryEstimate.ofArray(Integer.BYTES, hierarchy.middles.length);
+	}
+
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		return new DijkstraSearch(hierarchy.network).computeShortestPathTree(source);
+	}
+
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+
+		Query query = queries.borrow();
+		queryCount.incrementAndGet();
+
+		if (null == query || query.reached[FORWARD].length < hierarchy.network.size()
+				|| Integer.MAX_VALUE == query.stamp) {
+			query = new Query(hierarchy.network.size());
+		}
+
+		int stamp = ++query.stamp;
+		int settled = 0;
+		double shortestDistance = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+
+		start(query, FORWARD, source, stamp);
+		start(query, BACKWARD, destination, stamp);
+
+		// settle alternately from the direction with the nearer baggage point,
+		// until neither direction can improve on the best meeting point
+		while (true) {
+			int direction = nearer(query, shortestDistance);
+
+			if (direction < 0) {
+				break;
+			}
+
+			int baggagePoint = query.heaps[direction].poll();
+			int opposite = 1 - direction;
+			settled++;
+
+			if (query.reached[opposite][baggagePoint] == stamp) {
+				double distance = query.distances[direction][baggagePoint] + query.distances[opposite][baggagePoint];
+
+				if (distance < shortestDistance) {
+					shortestDistance = distance;
+					meeting = baggagePoint;
+				}
+			}
+
+			for (int connection = hierarchy.offsets[baggagePoint]; connection < hierarchy.offsets[baggagePoint
+					+ 1]; connection++) {
+				int target = hierarchy.targets[connection];
+				double distance = query.distances[direction][baggagePoint] + hierarchy.distances[connection];
+
+				if (query.reached[direction][target] != stamp || distance < query.distances[direction][target]) {
+					query.distances[direction][target] = distance;
+					query.predecessors[direction][target] = baggagePoint;
+					query.connections[direction][target] = connection;
+					query.reached[direction][target] = stamp;
+					query.heaps[direction].offer(target, distance);
+				}
+			}
+		}
+
+		query.heaps[FORWARD].clear();
+		query.heaps[BACKWARD].clear();
+		settledCount.addAndGet(settled);
+
+		ShortestRoute shortestRoute = meeting < 0 ? null
+				: buildShortestRoute(hierarchy, query, source, destination, meeting, shortestDistance);
+		queries.release(query);
+
+		return shortestRoute;
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+
+	/**
+	 * Gets the number of route requests answered by this table and the tables
+	 * it was initialized or updated from.
+	 * 
+	 * @return The query count.
+	 */
+	public long getQueryCount() {
+		return queryCount.get();
+	}
+
+	/**
+	 * Gets the total number of baggage points settled by the upward searches
+	 * of all route requests.
+	 * 
+	 * @return The settled count.
+	 */
+	public long getSettledCount() {
+		return settledCount.get();
+	}
+
+	/**
+	 * Gets the number of upward connections and shortcuts in the hierarchy.
+	 * 
+	 * @return The number of upward connections.
+	 */
+	public int getConnectionCount() {
+		return hierarchy.targets.length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ContractionHierarchyRouteTable[connections=%d, queries=%d, settled=%d]",
+				getConnectionCount(), getQueryCount(), getSettledCount());
+	}
+
+	private static void start(Query query, int direction, int baggagePoint, int stamp) {
+		query.distances[direction][baggagePoint] = 0d;
+		query.predecessors[direction][baggagePoint] = -1;
+		query.connections[direction][baggagePoint] = -1;
+		query.reached[direction][baggagePoint] = stamp;
+		query.heaps[direction].offer(baggagePoint, 0d);
+	}
+
+	/**
+	 * Picks the direction to settle next.
+	 * 
+	 * @return The direction with the nearer queued baggage point, or -1 if no
+	 *         queued baggage point is nearer than the best meeting point.
+	 */
+	private static int nearer(Query query, double shortestDistance) {
+		double forward = query.heaps[FORWARD].isEmpty() ? Double.POSITIVE_INFINITY
+				: query.heaps[FORWARD].peekKey();
+		double backward = query.heaps[BACKWARD].isEmpty() ? Double.POSITIVE_INFINITY
+				: query.heaps[BACKWARD].peekKey();
+		int direction = forward <= backward ? FORWARD : BACKWARD;
+
+		return Math.min(forward, backward) < shortestDistance ? direction : -1;
+	}
+
+	private static Hierarchy buildHierarchy(CompiledConveyerNetwork network, Contraction contraction, int[] ranks) {
+		int[] offsets = new int[network.size() + 1];
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			offsets[baggagePoint + 1] = offsets[baggagePoint];
+
+			for (int arc = 0; arc < contraction.degrees[baggagePoint]; arc++) {
+				if (ranks[contraction.targets[baggagePoint][arc]] > ranks[baggagePoint]) {
+					offsets[baggagePoint + 1]++;
+				}
+			}
+		}
+
+		int[] targets = new int[offsets[network.size()]];
+		double[] distances = new double[targets.length];
+		int[] middles = new int[targets.length];
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			int connection = offsets[baggagePoint];
+
+			for (int arc = 0; arc < contraction.degrees[baggagePoint]; arc++) {
+				if (ranks[contraction.targets[baggagePoint][arc]] > ranks[baggagePoint]) {
+					targets[connection] = contraction.targets[baggagePoint][arc];
+					distances[connection] = contraction.distances[baggagePoint][arc];
+					middles[connection] = contraction.middles[baggagePoint][arc];
+					connection++;
+				}
+			}
+		}
+
+		return new Hierarchy(network, offsets, targets, distances, middles);
+	}
+
+	private static ShortestRoute buildShortestRoute(Hierarchy hierarchy, Query query, int source, int destination,
+			int meeting, double distance) {
+
+		// the upward route from the source to the meeting point, followed by
+		// the upward route from the destination to the meeting point in
+		// reverse
+		int[] upwardRoute = new int[16];
+		int upwardRouteSize = 0;
+
+		for (int baggagePoint = meeting; baggagePoint != source; baggagePoint = query.predecessors[FORWARD][baggagePoint]) {
+			if (upwardRouteSize == upwardRoute.length) {
+				upwardRoute = Arrays.copyOf(upwardRoute, upwardRouteSize * 2);
+			}
+			upwardRoute[upwardRouteSize++] = baggagePoint;
+		}
+
+		List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+		path.add(hierarchy.network.getBaggagePoint(source));
+		int from = source;
+
+		for (int index = upwardRouteSize - 1; index >= 0; index--) {
+			int to = upwardRoute[index];
+			unpack(hierarchy, from, to, query.connections[FORWARD][to], path);
+			from = to;
+		}
+
+		for (int baggagePoint = meeting; baggagePoint != destination; baggagePoint = query.predecessors[BACKWARD][baggagePoint]) {
+			unpack(hierarchy, baggagePoint, query.predecessors[BACKWARD][baggagePoint],
+					query.connections[BACKWARD][baggagePoint], path);
+		}
+
+		return new ShortestRoute(distance, path);
+	}
+
+	/**
+	 * Appends the baggage points a connection or shortcut stands for, from
+	 * (exclusive) to (inclusive), to the path.
+	 */
+	private static void unpack(Hierarchy hierarchy, int from, int to, int connection, List<BaggagePoint> path) {
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = from;
+		stack[size++] = to;
+		stack[size++] = connection;
+
+		while (size > 0) {
+			int current = stack[--size];
+			int end = stack[--size];
+			int start = stack[--size];
+			int middle = hierarchy.middles[current];
+
+			if (middle < 0) {
+				path.add(hierarchy.network.getBaggagePoint(end));
+			} else {
+				if (size + 6 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+
+				// the bypassed baggage point is less important than both ends,
+				// so both halves are upward connections from it; push the
+				// second half first so the first half is unpacked first
+				stack[size++] = middle;
+				stack[size++] = end;
+				stack[size++] = hierarchy.findConnection(middle, end);
+				stack[size++] = start;
+				stack[size++] = middle;
+				stack[size++] = hierarchy.findConnection(middle, start);
+			}
+		}
+	}
+}
\ No newline at end of file
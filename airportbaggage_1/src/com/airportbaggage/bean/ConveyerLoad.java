@@ -0,0 +1,245 @@
+package com.airportbaggage.bean;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The live load of the conveyer segments: how many bags each segment can
+ * carry at a time, and how many it is carrying or has queued in front of it.
+ * A segment carries bags in one direction, from a baggage point to a
+ * connected one.
+ * 
+ * The load of a segment is the last queue depth observed for it, plus a
+ * forecast of the bags dispatched onto it since. An observation replaces the
+ * forecast, since it counts those bags already. Without observations, the
+ * forecast decays by half every half-life, as dispatched bags leave the
+ * segment. Load can be reported and read by any number of threads at the
+ * same time.
+ * 
+ * @author Shafik Mohammad
+ */
+public class ConveyerLoad {
+
+	/**
+	 * The capacity of a segment nothing was configured for
+	 */
+	public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
+
+	private static final long DEFAULT_FORECAST_HALF_LIFE_SECONDS = 60L;
+
+	/**
+	 * The forecast load below which a segment counts as idle again
+	 */
+	private static final double NEGLIGIBLE_FORECAST = 1e-3d;
+
+	private final ConcurrentMap<String, Segment> segments;
+	private volatile int defaultCapacity;
+	private volatile long forecastHalfLife;
+
+	/**
+	 * The capacity and load of one segment
+	 */
+	static final class Segment {
+		volatile int capacity;
+		final AtomicInteger observedLoad = new AtomicInteger();
+
+		/**
+		 * The forecast load as of the forecast time, guarded by the segment
+		 */
+		private double forecastLoad;
+		private long forecastTime;
+
+		synchronized void addForecast(long time, long halfLife) {
+			forecastLoad = getForecast(time, halfLife) + 1d;
+		}
+
+		synchronized double getForecast(long time, long halfLife) {
+			long elapsed = time - forecastTime;
+
+			if (forecastLoad < NEGLIGIBLE_FORECAST) {
+				forecastLoad = 0d;
+				forecastTime = time;
+			} else if (elapsed > 0L) {
+				forecastLoad *= Math.pow(0.5d, (double) elapsed / halfLife);
+				forecastTime = time;
+			}
+
+			return forecastLoad;
+		}
+
+		synchronized void clearForecast(long time) {
+			forecastLoad = 0d;
+			forecastTime = time;
+		}
+	}
+
+	/**
+	 * The default constructor. Segments have unlimited capacity until
+	 * configured otherwise, and forecasts a half-life of one minute.
+	 */
+	public ConveyerLoad() {
+		segments = new ConcurrentHashMap<String, Segment>();
+		defaultCapacity = UNLIMITED_CAPACITY;
+		forecastHalfLife = TimeUnit.SECONDS.toNanos(DEFAULT_FORECAST_HALF_LIFE_SECONDS);
+	}
+
+	/**
+	 * Sets the capacity of every segment not set individually.
+	 * 
+	 * @param capacity
+	 *            The number of bags a segment can carry at a time. Must be at
+	 *            least 1.
+	 */
+	public void setDefaultCapacity(int capacity) {
+		defaultCapacity = checkCapacity(capacity);
+	}
+
+	/**
+	 * Sets how fast the forecast load of a segment decays while no queue
+	 * depth is reported for it, which should be about the time a bag takes
+	 * to clear a segment.
+	 * 
+	 * @param halfLife
+	 *            The time after which half of the forecast load is left. Must
+	 *            be positive.
+	 * @param unit
+	 *            The unit of the half-life.
+	 */
+	public void setForecastHalfLife(long halfLife, TimeUnit unit) {
+
+		if (halfLife < 1L) {
+			throw new IllegalArgumentException(String.format("Forecast half-life %d must be positive.", halfLife));
+		}
+
+		forecastHalfLife = Math.max(1L, unit.toNanos(halfLife));
+	}
+
+	/**
+	 * Sets the capacity of the segments, in both directions, between two
+	 * connected baggage points.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies a baggage point.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies another baggage point.
+	 * @param capacity
+	 *            The number of bags each segment can carry at a time. Must be
+	 *            at least 1.
+	 */
+	public void setCapacity(String baggagePointId, String connectedBaggagePointId, int capacity) {
+		checkCapacity(capacity);
+
+		getSegment(baggagePointId, connectedBaggagePointId).capacity = capacity;
+		getSegment(connectedBaggagePointId, baggagePointId).capacity = capacity;
+	}
+
+	/**
+	 * Reports the number of bags a segment is carrying or has queued in front
+	 * of it, replacing the forecast load of the segment.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags enter the segment.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags leave the segment.
+	 * @param queueDepth
+	 *            The number of bags on or in front of the segment.
+	 */
+	public void setQueueDepth(String baggagePointId, String connectedBaggagePointId, int queueDepth) {
+
+		if (queueDepth < 0) {
+			throw new IllegalArgumentException(String.format("Queue depth %d cannot be negative.", queueDepth));
+		}
+
+		Segment segment = getSegment(baggagePointId, connectedBaggagePointId);
+		segment.observedLoad.set(queueDepth);
+		segment.clearForecast(System.nanoTime());
+	}
+
+	/**
+	 * Gets the load of a segment.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags enter the segment.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags leave the segment.
+	 * @return The observed queue depth plus the decayed forecast of the bags
+	 *         dispatched onto the segment since, rounded.
+	 */
+	public int getLoad(String baggagePointId, String connectedBaggagePointId) {
+		Segment segment = segments.get(segmentKey(baggagePointId, connectedBaggagePointId));
+
+		return null == segment ? 0 : (int) Math.round(getLoad(segment));
+	}
+
+	double getLoad(Segment segment) {
+		return segment.observedLoad.get() + segment.getForecast(System.nanoTime(), forecastHalfLife);
+	}
+
+	/**
+	 * Counts a bag dispatched onto a segment in its forecast load.
+	 */
+	void forecast(Segment segment) {
+		segment.addForecast(System.nanoTime(), forecastHalfLife);
+	}
+
+	/**
+	 * Gets the capacity of a segment.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags enter the segment.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            bags leave the segment.
+	 * @return The number of bags the segment can carry at a time.
+	 */
+	public int getCapacity(String baggagePointId, String connectedBaggagePointId) {
+		Segment segment = segments.get(segmentKey(baggagePointId, connectedBaggagePointId));
+
+		return null == segment ? defaultCapacity : getCapacity(segment);
+	}
+
+	int getCapacity(Segment segment) {
+		int capacity = segment.capacity;
+
+		return capacity > 0 ? capacity : defaultCapacity;
+	}
+
+	/**
+	 * Gets a segment, creating it if nothing was reported for it yet.
+	 */
+	Segment getSegment(String baggagePointId, String connectedBaggagePointId) {
+		String key = segmentKey(baggagePointId, connectedBaggagePointId);
+		Segment segment = segments.get(key);
+
+		if (null == segment) {
+			Segment newSegment = new Segment();
+			segment = segments.putIfAbsent(key, newSegment);
+
+			if (null == segment) {
+				segment = newSegment;
+			}
+		}
+
+		return segment;
+	}
+
+	private static String segmentKey(String baggagePointId, String connectedBaggagePointId) {
+		return baggagePointId + ' ' + connectedBaggagePointId;
+	}
+
+	private static int checkCapacity(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format("Segment capacity %d must be at least 1.", capacity));
+		}
+
+		return capacity;
+	}
+}
\ No newline at end of file
@@ -4,7 +4,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.airportbaggage.bean.BaggagePoint;
@@ -17,13 +19,19 @@ import com.airportbaggage.bean.ScheduledFlight;
  * The conveyer network holding information about the connected baggage points,
  * and bags that need to be routed.
  * 
+ * Bags can be added and updated by any number of threads at the same time.
+ * Connections are expected to be added by one thread, while the layout is
+ * loaded.
+ * 
  * @author Shafik Mohammad
  */
 public class ConveyerNetwork {
 
 	private static final Logger LOGGER = Logger.getLogger(ConveyerNetwork.class.getName());
 
-	private Map<String, CheckedBag> bags;
+	private static final int DEFAULT_SCANNER_COUNT = 16;
+
+	private BagRegistry bags;
 	private Map<String, BaggagePoint> baggagePoints;
 
 	/**
@@ -35,13 +43,32 @@ public class ConveyerNetwork {
 	 * The default constructor.
 	 */
 	public ConveyerNetwork() {
-		bags = new LinkedHashMap<String, CheckedBag>();
+		this(DEFAULT_SCANNER_COUNT);
+	}
+
+	/**
+	 * A constructor sized for a number of scanners adding bags at the same
+	 * time.
+	 * 
+	 * @param scannerCount
+	 *            The estimated number of threads adding bags at the same time.
+	 *            Must be at least 1.
+	 */
+	public ConveyerNetwork(int scannerCount) {
+
+		if (scannerCount < 1) {
+			throw new IllegalArgumentException(String.format("Scanner count %d must be at least 1.", scannerCount));
+		}
+
+		bags = new BagRegistry(scannerCount);
 		baggagePoints = new HashMap<String, BaggagePoint>();
-		network = new HashMap<BaggagePoint, Map<BaggagePoint, Double>>();
+		network = new LinkedHashMap<BaggagePoint, Map<BaggagePoint, Double>>();
 	}
 
 	/**
-	 * Adds a bag. If a bag is added again, its details are updated.
+	 * Adds a bag. If a bag is added again, its details are updated and it
+	 * keeps its place in the order bags were added in. Safe to call from any
+	 * number of threads.
 	 * 
 	 * @param bagId
 	 *            A String that uniquely identifies the bag.
@@ -52,13 +79,11 @@ public class ConveyerNetwork {
 	 */
 	public void addBag(String bagId, BaggagePoint entryPoint, ScheduledFlight scheduledFlight) {
 
-		if (bags.containsKey(bagId)) {
-			LOGGER.info("Updating scheduled flight and entry point for bag: " + bagId);
-		} else {
-			LOGGER.info("Adding a new bag: " + bagId);
-		}
+		boolean added = bags.register(new StandardCheckedBag(bagId, scheduledFlight, entryPoint));
 
-		bags.put(bagId, new StandardCheckedBag(bagId, scheduledFlight, entryPoint));
+		if (LOGGER.isLoggable(Level.FINE)) {
+			LOGGER.fine((added ? "Adding a new bag: " : "Updating scheduled flight and entry point for bag: ") + bagId);
+		}
 	}
 
 	/**
@@ -70,9 +95,16 @@ public class ConveyerNetwork {
 	 *            A String that uniquely identifies another baggage point.
 	 * @param distance
 	 *            The distance between the baggage points.
+	 * @throws IllegalArgumentException
+	 *             if the distance is negative or not a number, which would
+	 *             leave shortest routes undefined
 	 */
 	public void addConnection(String baggagePointId, String connectedBaggagePointId, double distance) {
 
+		if (!(distance >= 0)) {
+			throw new IllegalArgumentException(String.format("Distance %s between %s and %s must be a non-negative number.",
+					distance, baggagePointId, connectedBaggagePointId));
+		}
 
 		if (baggagePointId.equals(connectedBaggagePointId)) {
 			LOGGER.info("Ignoring connection between same source and destination point: " + baggagePointId);
@@ -84,6 +116,30 @@ public class ConveyerNetwork {
 		}
 	}
 
+	/**
+	 * Removes the connection between two baggage points. The baggage points
+	 * themselves stay in the conveyer network.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies a baggage point.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies another baggage point.
+	 */
+	public void removeConnection(String baggagePointId, String connectedBaggagePointId) {
+
+		BaggagePoint baggagePoint = baggagePoints.get(baggagePointId);
+		BaggagePoint connectedBaggagePoint = baggagePoints.get(connectedBaggagePointId);
+
+		if (null == baggagePoint || null == connectedBaggagePoint
+				|| null == network.get(baggagePoint).remove(connectedBaggagePoint)) {
+			LOGGER.info("Ignoring removal of unknown connection between: " + baggagePointId + " and "
+					+ connectedBaggagePointId);
+		} else {
+			LOGGER.info("Removing connection between: " + baggagePointId + " and " + connectedBaggagePointId);
+			network.get(connectedBaggagePoint).remove(baggagePoint);
+		}
+	}
+
 	/**
 	 * Gets the baggage point corresponding to the baggage point identifier.
 	 * 
@@ -101,12 +157,46 @@ public class ConveyerNetwork {
 	}
 
 	/**
-	 * Gets a "view" of the bags in the conveyer network.
+	 * Gets a bag in the conveyer network.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The bag, if found; null, otherwise.
+	 */
+	public CheckedBag getBag(String bagId) {
+		return bags.get(bagId);
+	}
+
+	/**
+	 * Gets the number of bags in the conveyer network.
+	 * 
+	 * @return The bag count.
+	 */
+	public int getBagCount() {
+		return bags.size();
+	}
+
+	/**
+	 * Gets a snapshot of the bags in the conveyer network, in the order they
+	 * were first added. Bags added while the snapshot is being taken may or
+	 * may not be included.
 	 * 
 	 * @return An unmodifiable collection of bags.
 	 */
 	public Collection<CheckedBag> getBags() {
-		return Collections.unmodifiableCollection(bags.values());
+		return bags.getBags();
+	}
+
+	/**
+	 * Gets the bags carried by a scheduled flight, in the order they were
+	 * first added, without going through the other bags.
+	 * 
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return An unmodifiable list of bags.
+	 */
+	public List<CheckedBag> getBags(String flightId) {
+		return bags.getBags(flightId);
 	}
 
 	/**
@@ -115,16 +205,27 @@ public class ConveyerNetwork {
 	 * @return An unmodifiable map of baggage point connections.
 	 */
 	public Map<BaggagePoint, Map<BaggagePoint, Double>> getNetwork() {
-		Map<BaggagePoint, Map<BaggagePoint, Double>> unmodifiableNetwork = new HashMap<BaggagePoint, Map<BaggagePoint, Double>>();
+		Map<BaggagePoint, Map<BaggagePoint, Double>> unmodifiableNetwork = new LinkedHashMap<BaggagePoint, Map<BaggagePoint, Double>>();
 
 		for (Map.Entry<BaggagePoint, Map<BaggagePoint, Double>> entry : network.entrySet()) {
 			unmodifiableNetwork.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
-			LOGGER.info("Creating unmodifiable map for: " + entry.getKey().getId());
 		}
 
+		LOGGER.fine("Created unmodifiable maps for baggage points: " + network.size());
+
 		return Collections.unmodifiableMap(unmodifiableNetwork);
 	}
 
+	/**
+	 * Compiles the connected baggage points into an immutable, int-indexed
+	 * form. Baggage points are indexed in the order they were first connected.
+	 * 
+	 * @return The compiled conveyer network.
+	 */
+	public CompiledConveyerNetwork compile() {
+		return CompiledConveyerNetwork.compile(network);
+	}
+
 	private void addConnection(BaggagePoint baggagePoint, BaggagePoint connectedBaggagePoint, double distance) {
 
 		Map<BaggagePoint, Double> adjacencyListForBaggagePoint = getAdjacencyListForBaggagePoint(baggagePoint);
@@ -137,13 +238,12 @@ public class ConveyerNetwork {
 
 	private void addConnection(Map<BaggagePoint, Double> adjacencyListForBaggagePoint,
 			BaggagePoint connectedBaggagePoint, double distance) {
-		if (adjacencyListForBaggagePoint.containsKey(connectedBaggagePoint)) {
-			LOGGER.fine("Updating distance in existing connection for : " + connectedBaggagePoint.getId());
-		} else {
-			LOGGER.info("Adding connection for : " + connectedBaggagePoint.getId());
-		}
+		Double previousDistance = adjacencyListForBaggagePoint.put(connectedBaggagePoint, distance);
 
-		adjacencyListForBaggagePoint.put(connectedBaggagePoint, distance);
+		if (LOGGER.isLoggable(Level.FINE)) {
+			LOGGER.fine((null == previousDistance ? "Adding connection for : "
+					: "Updating distance in existing connection for : ") + connectedBaggagePoint.getId());
+		}
 	}
 
 	private Map<BaggagePoint, Double> getAdjacencyListForBaggagePoint(BaggagePoint baggagePoint) {
@@ -151,7 +251,7 @@ public class ConveyerNetwork {
 		Map<BaggagePoint, Double> adjacencyListForBaggagePoint;
 
 		if (!network.containsKey(baggagePoint)) {
-			adjacencyListForBaggagePoint = new HashMap<BaggagePoint, Double>();
+			adjacencyListForBaggagePoint = new LinkedHashMap<BaggagePoint, Double>();
 			network.put(baggagePoint, adjacencyListForBaggagePoint);
 		} else {
 			adjacencyListForBaggagePoint = network.get(baggagePoint);
@@ -166,7 +266,10 @@ public class ConveyerNetwork {
 		if (baggagePoints.containsKey(baggagePointId)) {
 			baggagePoint = baggagePoints.get(baggagePointId);
 		} else {
-			LOGGER.info("Adding a new baggagePoint: " + baggagePointId);
+			if (LOGGER.isLoggable(Level.FINE)) {
+				LOGGER.fine("Adding a new baggagePoint: " + baggagePointId);
+			}
+
 			baggagePoint = new StandardBaggagePoint(baggagePointId);
 			baggagePoints.put(baggagePointId, baggagePoint);
 		}
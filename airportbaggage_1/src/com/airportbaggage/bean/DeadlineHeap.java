@@ -0,0 +1,183 @@
+package com.airportbaggage.bean;
+
+import java.util.Arrays;
+
+/**
+ * An indexed 4-ary min-heap of slots keyed by a deadline, with ties broken by
+ * the order slots were first queued. It supports changing the key of a queued
+ * slot in place in either direction, and grows as slots are added. A 4-ary
+ * heap is half as deep as a binary one and keeps the children of a slot next
+ * to each other in memory, which pays off once millions of slots are queued.
+ * 
+ * @author Shafik Mohammad
+ */
+final class DeadlineHeap {
+
+	private static final int ARITY = 4;
+
+	private int[] heap;
+	private int[] positions;
+	private long[] keys;
+	private long[] sequences;
+	private int size;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param capacity
+	 *            The number of slots that can be queued before the heap grows.
+	 */
+	DeadlineHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new long[capacity];
+		sequences = new long[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return 0 == size;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean contains(int slot) {
+		return slot < positions.length && positions[slot] >= 0;
+	}
+
+	/**
+	 * Gets the slot with the smallest key.
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Gets the key of a queued slot.
+	 */
+	long getKey(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Queues a slot, or changes its key if it is already queued. A slot keeps
+	 * the sequence it was first queued with until it is removed.
+	 */
+	void offer(int slot, long key, long sequence) {
+		ensureCapacity(slot + 1);
+
+		if (positions[slot] < 0) {
+			positions[slot] = size;
+			heap[size++] = slot;
+			keys[slot] = key;
+			sequences[slot] = sequence;
+			siftUp(positions[slot]);
+		} else if (key < keys[slot]) {
+			keys[slot] = key;
+			siftUp(positions[slot]);
+		} else if (key > keys[slot]) {
+			keys[slot] = key;
+			siftDown(positions[slot]);
+		}
+	}
+
+	/**
+	 * Removes the slot with the smallest key.
+	 */
+	int poll() {
+		int slot = heap[0];
+		remove(slot);
+
+		return slot;
+	}
+
+	/**
+	 * Removes a slot, wherever it is in the heap.
+	 * 
+	 * @return True, if the slot was queued; false, otherwise.
+	 */
+	boolean remove(int slot) {
+		boolean removed = contains(slot);
+
+		if (removed) {
+			int position = positions[slot];
+			positions[slot] = -1;
+
+			// fill the hole with the last slot, which may belong above or below
+			if (--size > position) {
+				int moved = heap[size];
+				heap[position] = moved;
+				positions[moved] = position;
+				siftUp(position);
+				siftDown(positions[moved]);
+			}
+		}
+
+		return removed;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > positions.length) {
+			int length = Math.max(capacity, positions.length + (positions.length >>> 1) + 1);
+			int previousLength = positions.length;
+
+			heap = Arrays.copyOf(heap, length);
+			positions = Arrays.copyOf(positions, length);
+			keys = Arrays.copyOf(keys, length);
+			sequences = Arrays.copyOf(sequences, length);
+			Arrays.fill(positions, previousLength, length, -1);
+		}
+	}
+
+	private boolean precedes(int slot, int otherSlot) {
+		return keys[slot] < keys[otherSlot] || keys[slot] == keys[otherSlot] && sequences[slot] < sequences[otherSlot];
+	}
+
+	private void siftUp(int position) {
+		int slot = heap[position];
+
+		while (position > 0) {
+			int parent = (position - 1) / ARITY;
+
+			if (!precedes(slot, heap[parent])) {
+				break;
+			}
+
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+
+		heap[position] = slot;
+		positions[slot] = position;
+	}
+
+	private void siftDown(int position) {
+		int slot = heap[position];
+
+		while (ARITY * position + 1 < size) {
+			int firstChild = ARITY * position + 1;
+			int child = firstChild;
+			int lastChild = Math.min(firstChild + ARITY, size);
+
+			for (int sibling = firstChild + 1; sibling < lastChild; sibling++) {
+				if (precedes(heap[sibling], heap[child])) {
+					child = sibling;
+				}
+			}
+
+			if (!precedes(heap[child], slot)) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+
+		heap[position] = slot;
+		positions[slot] = position;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,285 @@
+package com.airportbaggage.bean;
+
+import java.util.Arrays;
+
+/**
+ * Single-source shortest route search over a compiled conveyer network. A
+ * search reuses one heap, so each thread should own its own instance.
+ * 
+ * @author Shafik Mohammad
+ */
+final class DijkstraSearch {
+
+	private final CompiledConveyerNetwork network;
+	private final DistanceHeap heap;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network to search.
+	 */
+	DijkstraSearch(CompiledConveyerNetwork network) {
+		this.network = network;
+		this.heap = new DistanceHeap(network.size());
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from the source baggage point and returns the
+	 * tree of shortest routes to every baggage point.
+	 */
+	ShortestPathTree computeShortestPathTree(int source) {
+
+		double[] distances = new double[network.size()];
+		int[] predecessors = new int[network.size()];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		Arrays.fill(predecessors, -1);
+
+		distances[source] = 0d;
+		heap.offer(source, 0d);
+		propagate(distances, predecessors);
+
+		return new ShortestPathTree(network, source, distances, predecessors);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from the source baggage point over connection
+	 * costs other than their distances, and returns the tree of the cheapest
+	 * routes. The tree holds the distance of each route, not its cost.
+	 * 
+	 * @param costs
+	 *            The cost of every connection, indexed by connection.
+	 * @param destination
+	 *            The index of the baggage point after which the search can
+	 *            stop, or -1 to search the whole network. Routes to other
+	 *            baggage points are only final if the whole network is
+	 *            searched.
+	 */
+	ShortestPathTree computeShortestPathTree(int source, double[] costs, int destination) {
+
+		double[] routeCosts = new double[network.size()];
+		double[] distances = new double[network.size()];
+		int[] predecessors = new int[network.size()];
+		Arrays.fill(routeCosts, Double.POSITIVE_INFINITY);
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		Arrays.fill(predecessors, -1);
+
+		routeCosts[source] = 0d;
+		distances[source] = 0d;
+		heap.offer(source, 0d);
+
+		while (!heap.isEmpty()) {
+			int baggagePoint = heap.poll();
+
+			if (baggagePoint == destination) {
+				heap.clear();
+				break;
+			}
+
+			for (int connection = network.getFirstConnection(baggagePoint); connection < network
+					.getLastConnection(baggagePoint); connection++) {
+				int target = network.getTarget(connection);
+				double routeCost = routeCosts[baggagePoint] + costs[connection];
+
+				if (routeCost < routeCosts[target]) {
+					routeCosts[target] = routeCost;
+					distances[target] = distances[baggagePoint] + network.getDistance(connection);
+					predecessors[target] = baggagePoint;
+					heap.offer(target, routeCost);
+				}
+			}
+		}
+
+		return new ShortestPathTree(network, source, distances, predecessors);
+	}
+
+	/**
+	 * Updates a shortest path tree, computed for a previous version of this
+	 * network, after the connection between two baggage points changed. Only
+	 * the baggage points whose shortest routes change are searched again: a
+	 * shorter connection is propagated outwards from its endpoints, and a
+	 * longer (or removed) connection that the tree uses invalidates just the
+	 * subtree below it, which is then reattached to the rest of the tree.
+	 * 
+	 * @param tree
+	 *            The shortest path tree of the previous network. It is left
+	 *            unchanged; an affected tree is updated in a copy.
+	 * @param baggagePoint
+	 *            The index of one endpoint of the changed connection.
+	 * @param connectedBaggagePoint
+	 *            The index of the other endpoint of the changed connection.
+	 * @param previousDistance
+	 *            The previous distance of the connection; infinite if it was
+	 *            added.
+	 * @param distance
+	 *            The distance of the connection in this network; infinite if
+	 *            it was removed.
+	 * @return The shortest path tree of this network, or null if the change
+	 *         does not affect any of its routes.
+	 */
+	ShortestPathTree updateShortestPathTree(ShortestPathTree tree, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		double[] distances = tree.distances;
+		int[] predecessors = tree.predecessors;
+		boolean grown = distances.length < network.size();
+
+		if (!grown && !isAffected(distances, predecessors, baggagePoint, connectedBaggagePoint, previousDistance,
+				distance)) {
+			return null;
+		}
+
+		// copy before writing, the previous tree may still be read
+		distances = Arrays.copyOf(distances, network.size());
+		predecessors = Arrays.copyOf(predecessors, network.size());
+
+		if (grown) {
+			// baggage points added with the connection are not reachable yet
+			Arrays.fill(distances, tree.distances.length, network.size(), Double.POSITIVE_INFINITY);
+			Arrays.fill(predecessors, tree.predecessors.length, network.size(), -1);
+		}
+
+		if (distance < previousDistance) {
+			decreaseConnection(distances, predecessors, baggagePoint, connectedBaggagePoint, distance);
+		} else if (distance > previousDistance) {
+			increaseConnection(distances, predecessors, baggagePoint, connectedBaggagePoint);
+		}
+
+		return new ShortestPathTree(network, tree.getSource(), distances, predecessors);
+	}
+
+	/**
+	 * Checks, without searching, whether a changed connection changes any
+	 * route of a tree: a shorter connection must shorten the route to one of
+	 * its endpoints, and a longer one must be part of the tree.
+	 */
+	private static boolean isAffected(double[] distances, int[] predecessors, int baggagePoint,
+			int connectedBaggagePoint, double previousDistance, double distance) {
+		return isAffected(distances[baggagePoint], distances[connectedBaggagePoint], predecessors[baggagePoint],
+				predecessors[connectedBaggagePoint], baggagePoint, connectedBaggagePoint, previousDistance,
+				distance);
+	}
+
+	/**
+	 * Checks whether a changed connection changes any route of a tree, given
+	 * the distances and predecessors of the tree at the endpoints of the
+	 * connection, for trees not held in arrays.
+	 */
+	static boolean isAffected(double baggagePointDistance, double connectedBaggagePointDistance,
+			int baggagePointPredecessor, int connectedBaggagePointPredecessor, int baggagePoint,
+			int connectedBaggagePoint, double previousDistance, double distance) {
+		boolean affected;
+
+		if (distance < previousDistance) {
+			affected = baggagePointDistance + distance < connectedBaggagePointDistance
+					|| connectedBaggagePointDistance + distance < baggagePointDistance;
+		} else if (distance > previousDistance) {
+			affected = connectedBaggagePointPredecessor == baggagePoint
+					|| baggagePointPredecessor == connectedBaggagePoint;
+		} else {
+			affected = false;
+		}
+
+		return affected;
+	}
+
+	private void decreaseConnection(double[] distances, int[] predecessors, int baggagePoint,
+			int connectedBaggagePoint, double distance) {
+
+		// the connection is two-way, so either endpoint may now be reached
+		// through the other one
+		offerIfShorter(distances, predecessors, baggagePoint, connectedBaggagePoint, distance);
+		offerIfShorter(distances, predecessors, connectedBaggagePoint, baggagePoint, distance);
+		propagate(distances, predecessors);
+	}
+
+	private void offerIfShorter(double[] distances, int[] predecessors, int from, int to, double distance) {
+		double throughConnection = distances[from] + distance;
+
+		if (throughConnection < distances[to]) {
+			distances[to] = throughConnection;
+			predecessors[to] = from;
+			heap.offer(to, throughConnection);
+		}
+	}
+
+	private void increaseConnection(double[] distances, int[] predecessors, int baggagePoint,
+			int connectedBaggagePoint) {
+
+		int subtreeRoot;
+
+		if (predecessors[connectedBaggagePoint] == baggagePoint) {
+			subtreeRoot = connectedBaggagePoint;
+		} else if (predecessors[baggagePoint] == connectedBaggagePoint) {
+			subtreeRoot = baggagePoint;
+		} else {
+			// the tree does not use the connection, so no route gets longer
+			return;
+		}
+
+		// collect the subtree hanging below the connection; its tree edges are
+		// all unchanged connections, so they can be followed in this network
+		int[] subtree = new int[network.size()];
+		int subtreeSize = 0;
+		subtree[subtreeSize++] = subtreeRoot;
+		predecessors[subtreeRoot] = -1;
+
+		for (int next = 0; next < subtreeSize; next++) {
+			int parent = subtree[next];
+
+			for (int connection = network.getFirstConnection(parent); connection < network
+					.getLastConnection(parent); connection++) {
+				int child = network.getTarget(connection);
+
+				if (predecessors[child] == parent) {
+					subtree[subtreeSize++] = child;
+					predecessors[child] = -1;
+				}
+			}
+		}
+
+		for (int next = 0; next < subtreeSize; next++) {
+			distances[subtree[next]] = Double.POSITIVE_INFINITY;
+		}
+
+		// reattach every detached baggage point through its best neighbour
+		// outside the subtree, then settle the subtree again
+		for (int next = 0; next < subtreeSize; next++) {
+			int detached = subtree[next];
+
+			for (int connection = network.getFirstConnection(detached); connection < network
+					.getLastConnection(detached); connection++) {
+				int neighbour = network.getTarget(connection);
+
+				if (!Double.isInfinite(distances[neighbour])) {
+					offerIfShorter(distances, predecessors, neighbour, detached, network.getDistance(connection));
+				}
+			}
+		}
+
+		propagate(distances, predecessors);
+	}
+
+	/**
+	 * Settles the queued baggage points in distance order, relaxing their
+	 * connections until no route can be shortened.
+	 */
+	private void propagate(double[] distances, int[] predecessors) {
+
+		while (!heap.isEmpty()) {
+			int baggagePoint = heap.poll();
+
+			for (int connection = network.getFirstConnection(baggagePoint); connection < network
+					.getLastConnection(baggagePoint); connection++) {
+				int destination = network.getTarget(connection);
+				double distance = distances[baggagePoint] + network.getDistance(connection);
+
+				if (distance < distances[destination]) {
+					distances[destination] = distance;
+					predecessors[destination] = baggagePoint;
+					heap.offer(destination, distance);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
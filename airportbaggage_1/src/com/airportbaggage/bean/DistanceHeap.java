@@ -0,0 +1,133 @@
+package com.airportbaggage.bean;
+
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap of baggage point indexes keyed by a distance. It
+ * supports decreasing the key of a queued baggage point in place, so shortest
+ * path searches never leave stale entries behind and never box a distance.
+ * 
+ * @author Shafik Mohammad
+ */
+final class DistanceHeap {
+
+	private final int[] heap;
+	private final int[] positions;
+	private final double[] keys;
+	private int size;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param capacity
+	 *            The number of baggage points that can be queued.
+	 */
+	DistanceHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return 0 == size;
+	}
+
+	boolean contains(int index) {
+		return positions[index] >= 0;
+	}
+
+	/**
+	 * Gets the key of the baggage point at the top of the heap.
+	 */
+	double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Queues a baggage point, or lowers its key if it is already queued with a
+	 * larger key.
+	 */
+	void offer(int index, double key) {
+		if (positions[index] < 0) {
+			positions[index] = size;
+			heap[size++] = index;
+			keys[index] = key;
+			siftUp(positions[index]);
+		} else if (key < keys[index]) {
+			keys[index] = key;
+			siftUp(positions[index]);
+		}
+	}
+
+	/**
+	 * Removes the baggage point with the smallest key.
+	 */
+	int poll() {
+		int index = heap[0];
+		positions[index] = -1;
+
+		if (--size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Removes every queued baggage point so the heap can be reused.
+	 */
+	void clear() {
+		for (int position = 0; position < size; position++) {
+			positions[heap[position]] = -1;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int position) {
+		int index = heap[position];
+		double key = keys[index];
+
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+
+			if (keys[heap[parent]] <= key) {
+				break;
+			}
+
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+
+		heap[position] = index;
+		positions[index] = position;
+	}
+
+	private void siftDown(int position) {
+		int index = heap[position];
+		double key = keys[index];
+		int half = size >>> 1;
+
+		while (position < half) {
+			int child = 2 * position + 1;
+
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+
+			if (keys[heap[child]] >= key) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+
+		heap[position] = index;
+		positions[index] = position;
+	}
+}
@@ -0,0 +1,31 @@
+package com.airportbaggage.bean;
+
+import com.airportbaggage.bean.Gate;
+import com.airportbaggage.bean.ScheduledFlight;
+
+/**
+ * A listener notified when a scheduled flight changes. Listeners are called
+ * on the thread that changed the flight, after the change.
+ * 
+ * @author Shafik Mohammad
+ */
+public interface FlightListener {
+
+	/**
+	 * Called when the departure gate of a flight changed.
+	 * 
+	 * @param scheduledFlight
+	 *            The scheduled flight, holding the new departure gate.
+	 * @param previousDepartureGate
+	 *            The departure gate the flight had before the change.
+	 */
+	void departureGateChanged(ScheduledFlight scheduledFlight, Gate previousDepartureGate);
+
+	/**
+	 * Called when the departure or arrival time of a flight changed.
+	 * 
+	 * @param scheduledFlight
+	 *            The scheduled flight, holding the new times.
+	 */
+	void timesChanged(ScheduledFlight scheduledFlight);
+}
@@ -0,0 +1,403 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * A time-ordered index of scheduled flights. The departure time, arrival
+ * time and departure gate of every flight are held as primitive values in
+ * slots, and indexed by departure time, by arrival time and by departure
+ * time per gate, in sorted arrays. Window and next-departure queries are
+ * binary searches, in time logarithmic in the number of flights plus the
+ * number of flights returned; adding, changing or removing a flight shifts
+ * the index entries after it.
+ * 
+ * The schedule holds the times and gate a flight had when it was last added;
+ * add it again after changing it. The schedule of a {@link StandardAirport}
+ * does so as its flights notify their changes. Any number of threads can
+ * query the schedule while one changes it.
+ * 
+ * @author Shafik Mohammad
+ */
+public class FlightSchedule {
+
+	private static final Logger LOGGER = Logger.getLogger(FlightSchedule.class.getName());
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final ReadWriteLock lock;
+	private final Map<String, Integer> slotsByFlight;
+
+	/**
+	 * The flights, indexed by slot
+	 */
+	private ScheduledFlight[] flights;
+	private long[] departureTimes;
+	private long[] arrivalTimes;
+	private String[] departureGateIds;
+
+	/**
+	 * The slots freed by removed flights, reused before new ones
+	 */
+	private int[] freeSlots;
+	private int freeSlotCount;
+	private int slotCount;
+
+	private final TimeIndex departures;
+	private final TimeIndex arrivals;
+	private final Map<String, TimeIndex> departuresByGate;
+
+	/**
+	 * The default constructor.
+	 */
+	public FlightSchedule() {
+		lock = new ReentrantReadWriteLock();
+		slotsByFlight = new HashMap<String, Integer>();
+		flights = new ScheduledFlight[INITIAL_CAPACITY];
+		departureTimes = new long[INITIAL_CAPACITY];
+		arrivalTimes = new long[INITIAL_CAPACITY];
+		departureGateIds = new String[INITIAL_CAPACITY];
+		freeSlots = new int[INITIAL_CAPACITY];
+		departures = new TimeIndex();
+		arrivals = new TimeIndex();
+		departuresByGate = new HashMap<String, TimeIndex>();
+	}
+
+	/**
+	 * Adds a scheduled flight, or indexes a flight already in the schedule
+	 * again after its times or gate changed. Flights without a departure or
+	 * arrival time are not indexed by it.
+	 * 
+	 * @param scheduledFlight
+	 *            The scheduled flight.
+	 */
+	public void add(ScheduledFlight scheduledFlight) {
+		long departureTime = scheduledFlight.getDepartureTimeMillis();
+		long arrivalTime = scheduledFlight.getArrivalTimeMillis();
+		String departureGateId = null == scheduledFlight.getDepartureGate() ? null
+				: scheduledFlight.getDepartureGate().getId();
+
+		lock.writeLock().lock();
+
+		try {
+			Integer slot = slotsByFlight.get(scheduledFlight.getId());
+
+			if (null == slot) {
+				slot = acquire();
+				slotsByFlight.put(scheduledFlight.getId(), slot);
+			} else {
+				unindex(slot);
+			}
+
+			flights[slot] = scheduledFlight;
+			departureTimes[slot] = departureTime;
+			arrivalTimes[slot] = arrivalTime;
+			departureGateIds[slot] = departureGateId;
+			index(slot);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a scheduled flight.
+	 * 
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return true, if the flight was in the schedule; false, otherwise.
+	 */
+	public boolean remove(String flightId) {
+		lock.writeLock().lock();
+
+		try {
+			Integer slot = slotsByFlight.remove(flightId);
+
+			if (null != slot) {
+				unindex(slot);
+				flights[slot] = null;
+				departureGateIds[slot] = null;
+				freeSlots[freeSlotCount++] = slot;
+			}
+
+			return null != slot;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets a scheduled flight.
+	 * 
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return The flight, if found; null, otherwise.
+	 */
+	public ScheduledFlight getScheduledFlight(String flightId) {
+		lock.readLock().lock();
+
+		try {
+			Integer slot = slotsByFlight.get(flightId);
+
+			return null == slot ? null : flights[slot];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of flights in the schedule.
+	 * 
+	 * @return The flight count.
+	 */
+	public int size() {
+		lock.readLock().lock();
+
+		try {
+			return slotsByFlight.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the flights departing in a window, in order of departure.
+	 * 
+	 * @param from
+	 *            The start of the window (inclusive), in milliseconds since
+	 *            the epoch.
+	 * @param to
+	 *            The end of the window (exclusive), in milliseconds since the
+	 *            epoch.
+	 * @return The departing flights.
+	 */
+	public List<ScheduledFlight> getDepartures(long from, long to) {
+		lock.readLock().lock();
+
+		try {
+			return getFlights(departures, from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the flights departing in a window, without listing them.
+	 * 
+	 * @param from
+	 *            The start of the window (inclusive), in milliseconds since
+	 *            the epoch.
+	 * @param to
+	 *            The end of the window (exclusive), in milliseconds since the
+	 *            epoch.
+	 * @return The number of departing flights.
+	 */
+	public int countDepartures(long from, long to) {
+		lock.readLock().lock();
+
+		try {
+			return Math.max(0, departures.ceiling(to) - departures.ceiling(from));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the flights arriving in a window, in order of arrival.
+	 * 
+	 * @param from
+	 *            The start of the window (inclusive), in milliseconds since
+	 *            the epoch.
+	 * @param to
+	 *            The end of the window (exclusive), in milliseconds since the
+	 *            epoch.
+	 * @return The arriving flights.
+	 */
+	public List<ScheduledFlight> getArrivals(long from, long to) {
+		lock.readLock().lock();
+
+		try {
+			return getFlights(arrivals, from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the flights departing from a gate, in order of departure.
+	 * 
+	 * @param gateId
+	 *            A String that uniquely identifies the gate.
+	 * @return The departing flights.
+	 */
+	public List<ScheduledFlight> getDepartures(String gateId) {
+		return getDepartures(gateId, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the flights departing from a gate in a window, in order of
+	 * departure.
+	 * 
+	 * @param gateId
+	 *            A String that uniquely identifies the gate.
+	 * @param from
+	 *            The start of the window (inclusive), in milliseconds since
+	 *            the epoch.
+	 * @param to
+	 *            The end of the window (exclusive), in milliseconds since the
+	 *            epoch.
+	 * @return The departing flights.
+	 */
+	public List<ScheduledFlight> getDepartures(String gateId, long from, long to) {
+		lock.readLock().lock();
+
+		try {
+			TimeIndex gateDepartures = departuresByGate.get(gateId);
+
+			return null == gateDepartures ? Collections.<ScheduledFlight> emptyList()
+					: getFlights(gateDepartures, from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the next flight departing from a gate.
+	 * 
+	 * @param gateId
+	 *            A String that uniquely identifies the gate.
+	 * @param time
+	 *            The time from which to look, in milliseconds since the
+	 *            epoch.
+	 * @return The first flight departing from the gate at or after the time,
+	 *         if any; null, otherwise.
+	 */
+	public ScheduledFlight getNextDeparture(String gateId, long time) {
+		lock.readLock().lock();
+
+		try {
+			TimeIndex gateDepartures = departuresByGate.get(gateId);
+			int position = null == gateDepartures ? 0 : gateDepartures.ceiling(time);
+
+			return null == gateDepartures || position == gateDepartures.size() ? null
+					: flights[gateDepartures.getSlot(position)];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the departure time the schedule holds for a flight.
+	 * 
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return The departure time, in milliseconds since the epoch, or
+	 *         {@link ScheduledFlight#NO_TIME} if the flight has none or is not
+	 *         in the schedule.
+	 */
+	public long getDepartureTime(String flightId) {
+		lock.readLock().lock();
+
+		try {
+			Integer slot = slotsByFlight.get(flightId);
+
+			return null == slot ? ScheduledFlight.NO_TIME : departureTimes[slot];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.readLock().lock();
+
+		try {
+			return String.format("FlightSchedule[flights=%d, departures=%d, arrivals=%d, gates=%d]",
+					slotsByFlight.size(), departures.size(), arrivals.size(), departuresByGate.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<ScheduledFlight> getFlights(TimeIndex index, long from, long to) {
+		int first = index.ceiling(from);
+		int last = Long.MAX_VALUE == to ? index.size() : index.ceiling(to);
+		List<ScheduledFlight> scheduledFlights = new ArrayList<ScheduledFlight>(Math.max(0, last - first));
+
+		for (int position = first; position < last; position++) {
+			scheduledFlights.add(flights[index.getSlot(position)]);
+		}
+
+		return scheduledFlights;
+	}
+
+	private void index(int slot) {
+
+		if (ScheduledFlight.NO_TIME != departureTimes[slot]) {
+			departures.insert(departureTimes[slot], slot);
+
+			if (null != departureGateIds[slot]) {
+				TimeIndex gateDepartures = departuresByGate.get(departureGateIds[slot]);
+
+				if (null == gateDepartures) {
+					gateDepartures = new TimeIndex();
+					departuresByGate.put(departureGateIds[slot], gateDepartures);
+				}
+
+				gateDepartures.insert(departureTimes[slot], slot);
+			}
+		}
+
+		if (ScheduledFlight.NO_TIME != arrivalTimes[slot]) {
+			arrivals.insert(arrivalTimes[slot], slot);
+		}
+	}
+
+	private void unindex(int slot) {
+
+		if (ScheduledFlight.NO_TIME != departureTimes[slot]) {
+			departures.remove(departureTimes[slot], slot);
+
+			if (null != departureGateIds[slot]) {
+				TimeIndex gateDepartures = departuresByGate.get(departureGateIds[slot]);
+				gateDepartures.remove(departureTimes[slot], slot);
+
+				if (0 == gateDepartures.size()) {
+					departuresByGate.remove(departureGateIds[slot]);
+				}
+			}
+		}
+
+		if (ScheduledFlight.NO_TIME != arrivalTimes[slot]) {
+			arrivals.remove(arrivalTimes[slot], slot);
+		}
+	}
+
+	private int acquire() {
+		int slot;
+
+		if (freeSlotCount > 0) {
+			slot = freeSlots[--freeSlotCount];
+		} else {
+			if (slotCount == flights.length) {
+				int capacity = slotCount * 2;
+				flights = Arrays.copyOf(flights, capacity);
+				departureTimes = Arrays.copyOf(departureTimes, capacity);
+				arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+				departureGateIds = Arrays.copyOf(departureGateIds, capacity);
+				freeSlots = Arrays.copyOf(freeSlots, capacity);
+				LOGGER.fine("Grew flight schedule to slots: " + capacity);
+			}
+
+			slot = slotCount++;
+		}
+
+		return slot;
+	}
+}
@@ -0,0 +1,92 @@
+package com.airportbaggage.bean;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.Gate;
+import com.airportbaggage.bean.ScheduledFlight;
+
+/**
+ * Re-routes the bags of a scheduled flight when its departure gate changes.
+ * Registered as a {@link FlightListener} of an airport, it looks up the bags
+ * of the changed flight in the conveyer network's flight index, routes only
+ * those bags as one batch, and passes their new routes on as a
+ * {@link RouteDelta}. The bags of other flights are left alone.
+ * 
+ * Bags are re-routed on the thread that changed the gate.
+ * 
+ * @author Shafik Mohammad
+ */
+public class GateChangeRouter implements FlightListener {
+
+	private static final Logger LOGGER = Logger.getLogger(GateChangeRouter.class.getName());
+
+	private final BagRouter bagRouter;
+	private final ConveyerNetwork conveyerNetwork;
+	private final Consumer<RouteDelta> routeDeltas;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param bagRouter
+	 *            The bag router, initialized with the conveyer network.
+	 * @param conveyerNetwork
+	 *            The conveyer network holding the bags.
+	 * @param routeDeltas
+	 *            The consumer of the new routes of each re-routed flight.
+	 */
+	public GateChangeRouter(BagRouter bagRouter, ConveyerNetwork conveyerNetwork, Consumer<RouteDelta> routeDeltas) {
+		this.bagRouter = bagRouter;
+		this.conveyerNetwork = conveyerNetwork;
+		this.routeDeltas = routeDeltas;
+	}
+
+	@Override
+	public void departureGateChanged(ScheduledFlight scheduledFlight, Gate previousDepartureGate) {
+
+		if (null == scheduledFlight.getDepartureGate()) {
+			LOGGER.warning("Not re-routing bags of flight without a departure gate: " + scheduledFlight.getId());
+		} else {
+			try {
+				RouteDelta routeDelta = reroute(scheduledFlight, previousDepartureGate);
+
+				if (!routeDelta.getRoutes().isEmpty()) {
+					routeDeltas.accept(routeDelta);
+				}
+			} catch (IllegalArgumentException e) {
+				LOGGER.severe("Could not re-route bags of flight: " + scheduledFlight.getId() + ". " + e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public void timesChanged(ScheduledFlight scheduledFlight) {
+		// routes do not depend on departure times
+	}
+
+	/**
+	 * Routes the bags of a scheduled flight to its current departure gate.
+	 * 
+	 * @param scheduledFlight
+	 *            The scheduled flight, with a departure gate in the conveyer
+	 *            network.
+	 * @param previousDepartureGate
+	 *            The departure gate the flight had before, if any.
+	 * @return The new routes of the bags of the flight.
+	 */
+	public RouteDelta reroute(ScheduledFlight scheduledFlight, Gate previousDepartureGate) {
+
+		List<CheckedBag> bags = conveyerNetwork.getBags(scheduledFlight.getId());
+		long version = bagRouter.getSnapshot().getVersion();
+		Map<CheckedBag, String> routes = bags.isEmpty() ? Collections.<CheckedBag, String> emptyMap()
+				: bagRouter.route(bags);
+
+		LOGGER.info("Re-routed bags of flight " + scheduledFlight.getId() + ": " + routes.size());
+
+		return new RouteDelta(scheduledFlight, previousDepartureGate, version, routes);
+	}
+}
@@ -0,0 +1,355 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * A route table that precomputes nothing but the distances from a few
+ * landmark baggage points, and answers each route request with a
+ * goal-directed A* search (ALT). By the triangle inequality, the distance
+ * between a baggage point and the destination is at least the difference of
+ * their distances from any landmark, which steers the search towards the
+ * destination so it settles a fraction of the baggage points a plain
+ * Dijkstra search would.
+ * 
+ * @author Shafik Mohammad
+ */
+public class LandmarkRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(LandmarkRouteTable.class.getName());
+
+	private static final int DEFAULT_LANDMARK_COUNT = 8;
+
+	/**
+	 * The maximum number of landmarks to select
+	 */
+	private final int landmarkCount;
+
+	/**
+	 * Search states, reused across route requests of any thread
+	 */
+	private final SearchPool<Search> searches;
+
+	/**
+	 * The statistics, shared by the tables initialized or updated from one
+	 * another
+	 */
+	private final AtomicLong queryCount;
+	private final AtomicLong settledCount;
+
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The shortest path trees of the landmarks, holding the distance of every
+	 * baggage point from each landmark
+	 */
+	private final ShortestPathTree[] landmarks;
+
+	/**
+	 * The state of one A* search. Arrays are stamped with the query they were
+	 * written by, so nothing has to be cleared between queries.
+	 */
+	private static class Search {
+		final DistanceHeap heap;
+		final double[] distances;
+		final int[] predecessors;
+		final int[] reached;
+		final int[] settled;
+		int stamp;
+
+		Search(int size) {
+			heap = new DistanceHeap(size);
+			distances = new double[size];
+			predecessors = new int[size];
+			reached = new int[size];
+			settled = new int[size];
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param landmarkCount
+	 *            The maximum number of landmarks to select. More landmarks
+	 *            give tighter bounds at the cost of memory and of work per
+	 *            settled baggage point. Must be at least 1.
+	 */
+	public LandmarkRouteTable(int landmarkCount) {
+
+		if (landmarkCount < 1) {
+			throw new IllegalArgumentException(String.format("Landmark count %d must be at least 1.", landmarkCount));
+		}
+
+		this.landmarkCount = landmarkCount;
+		this.searches = new SearchPool<Search>();
+		this.queryCount = new AtomicLong();
+		this.settledCount = new AtomicLong();
+		this.network = CompiledConveyerNetwork.EMPTY;
+		this.landmarks = new ShortestPathTree[0];
+	}
+
+	/**
+	 * Creates the table of a network from the table it is initialized or
+	 * updated from, sharing its configuration, search state and statistics.
+	 */
+	private LandmarkRouteTable(LandmarkRouteTable prototype, CompiledConveyerNetwork network,
+			ShortestPathTree[] landmarks) {
+		this.landmarkCount = prototype.landmarkCount;
+		this.searches = prototype.searches;
+		this.queryCount = prototype.queryCount;
+		this.settledCount = prototype.settledCount;
+		this.network = network;
+		this.landmarks = landmarks;
+	}
+
+	/**
+	 * A constructor that selects a default number of landmarks.
+	 */
+	public LandmarkRouteTable() {
+		this(DEFAULT_LANDMARK_COUNT);
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+
+		DijkstraSearch search = new DijkstraSearch(network);
+		List<ShortestPathTree> selectedLandmarks = new ArrayList<ShortestPathTree>();
+
+		// farthest-point selection: start from the baggage point farthest from
+		// an arbitrary one, then repeatedly add the baggage point farthest
+		// from all landmarks selected so far; baggage points no landmark
+		// reaches are farthest of all, so every part of a disconnected network
+		// gets a landmark
+		if (network.size() > 0) {
+			int landmark = farthest(network, Collections.singletonList(search.computeShortestPathTree(0)));
+
+			while (landmark >= 0 && selectedLandmarks.size() < landmarkCount) {
+				selectedLandmarks.add(search.computeShortestPathTree(landmark));
+				landmark = farthest(network, selectedLandmarks);
+			}
+		}
+
+		LOGGER.fine("Selected landmarks: " + selectedLandmarks.size());
+
+		return new LandmarkRouteTable(this, network,
+				selectedLandmarks.toArray(new ShortestPathTree[selectedLandmarks.size()]));
+	}
+
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		DijkstraSearch search = new DijkstraSearch(network);
+		ShortestPathTree[] updatedLandmarks = landmarks.clone();
+
+		// landmark distances must stay exact for the bounds to stay valid
+		for (int landmark = 0; landmark < updatedLandmarks.length; landmark++) {
+			ShortestPathTree shortestPathTree = search.updateShortestPathTree(updatedLandmarks[landmark],
+					baggagePoint, connectedBaggagePoint, previousDistance, distance);
+
+			if (null != shortestPathTree) {
+				updatedLandmarks[landmark] = shortestPathTree;
+			}
+		}
+
+		return new LandmarkRouteTable(this, network, updatedLandmarks);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	@Override
+	public long getMemoryEstimate() {
+		long memoryEstimate = MemoryEstimate.ofArray(MemoryEstimate.REFERENCE, landmarks.length);
+
+		for (ShortestPathTree landmark : landmarks) {
+			memoryEstimate += landmark.getMemoryEstimate();
+		}
+
+		return memoryEstimate;
+	}
+
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		return new DijkstraSearch(network).computeShortestPathTree(source);
+	}
+
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+
+		queryCount.incrementAndGet();
+
+		if (!isConnectable(landmarks, source, destination)) {
+			return null;
+		}
+
+		Search search = searches.borrow();
+
+		if (null == search || search.distances.length < network.size() || Integer.MAX_VALUE == search.stamp) {
+			search = new Search(network.size());
+		}
+
+		int stamp = ++search.stamp;
+		int settled = 0;
+		boolean found = false;
+
+		search.distances[source] = 0d;
+		search.predecessors[source] = -1;
+		search.reached[source] = stamp;
+		search.heap.offer(source, lowerBound(landmarks, source, destination));
+
+		while (!found && !search.heap.isEmpty()) {
+			int baggagePoint = search.heap.poll();
+			search.settled[baggagePoint] = stamp;
+			settled++;
+			found = baggagePoint == destination;
+
+			for (int connection = network.getFirstConnection(baggagePoint); !found
+					&& connection < network.getLastConnection(baggagePoint); connection++) {
+				int target = network.getTarget(connection);
+				double distance = search.distances[baggagePoint] + network.getDistance(connection);
+
+				if (search.settled[target] != stamp
+						&& (search.reached[target] != stamp || distance < search.distances[target])) {
+					search.distances[target] = distance;
+					search.predecessors[target] = baggagePoint;
+					search.reached[target] = stamp;
+					search.heap.offer(target, distance + lowerBound(landmarks, target, destination));
+				}
+			}
+		}
+
+		search.heap.clear();
+		settledCount.addAndGet(settled);
+
+		ShortestRoute shortestRoute = found ? buildShortestRoute(network, search, destination) : null;
+		searches.release(search);
+
+		return shortestRoute;
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+
+	/**
+	 * Gets the number of landmarks selected for the network.
+	 * 
+	 * @return The number of landmarks.
+	 */
+	public int getLandmarkCount() {
+		return landmarks.length;
+	}
+
+	/**
+	 * Gets the number of route requests answered by this table and the tables
+	 * it was initialized or updated from.
+	 * 
+	 * @return The query count.
+	 */
+	public long getQueryCount() {
+		return queryCount.get();
+	}
+
+	/**
+	 * Gets the total number of baggage points settled by the A* searches of
+	 * all route requests.
+	 * 
+	 * @return The settled count.
+	 */
+	public long getSettledCount() {
+		return settledCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LandmarkRouteTable[landmarks=%d, queries=%d, settled=%d]", getLandmarkCount(),
+				getQueryCount(), getSettledCount());
+	}
+
+	/**
+	 * Gets the largest lower bound on the distance between two baggage points
+	 * that the landmarks give.
+	 */
+	private static double lowerBound(ShortestPathTree[] landmarks, int baggagePoint, int destination) {
+		double lowerBound = 0d;
+
+		for (ShortestPathTree landmark : landmarks) {
+			double bound = Math.abs(landmark.distances[destination] - landmark.distances[baggagePoint]);
+
+			// baggage points in different parts of the network give NaN or
+			// infinity; the search never reaches such points anyway
+			if (bound > lowerBound && !Double.isInfinite(bound)) {
+				lowerBound = bound;
+			}
+		}
+
+		return lowerBound;
+	}
+
+	/**
+	 * Checks that no landmark reaches exactly one of two baggage points, which
+	 * would place them in different parts of the network.
+	 */
+	private static boolean isConnectable(ShortestPathTree[] landmarks, int source, int destination) {
+		boolean connectable = true;
+
+		for (int landmark = 0; connectable && landmark < landmarks.length; landmark++) {
+			connectable = Double.isInfinite(landmarks[landmark].distances[source]) == Double
+					.isInfinite(landmarks[landmark].distances[destination]);
+		}
+
+		return connectable;
+	}
+
+	/**
+	 * Finds the baggage point farthest from its nearest landmark.
+	 * 
+	 * @return The index of the baggage point, or -1 if every baggage point is
+	 *         a landmark.
+	 */
+	private static int farthest(CompiledConveyerNetwork network, List<ShortestPathTree> landmarks) {
+		int farthest = -1;
+		double farthestDistance = -1d;
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			double nearestDistance = Double.POSITIVE_INFINITY;
+
+			for (ShortestPathTree landmark : landmarks) {
+				nearestDistance = Math.min(nearestDistance, landmark.distances[baggagePoint]);
+			}
+
+			if (nearestDistance > farthestDistance && nearestDistance > 0d) {
+				farthest = baggagePoint;
+				farthestDistance = nearestDistance;
+			}
+		}
+
+		return farthest;
+	}
+
+	private static ShortestRoute buildShortestRoute(CompiledConveyerNetwork network, Search search,
+			int destination) {
+		List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+
+		for (int baggagePoint = destination; baggagePoint >= 0; baggagePoint = search.predecessors[baggagePoint]) {
+			path.add(network.getBaggagePoint(baggagePoint));
+		}
+		Collections.reverse(path);
+
+		return new ShortestRoute(search.distances[destination], path);
+	}
+}
\ No newline at end of file
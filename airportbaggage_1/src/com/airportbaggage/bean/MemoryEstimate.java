@@ -0,0 +1,37 @@
+package com.airportbaggage.bean;
+
+/**
+ * Estimates of the heap memory taken by objects and arrays, assuming a 64-bit
+ * JVM with compressed references: 12-byte object headers, 16-byte array
+ * headers, 4-byte references and 8-byte alignment.
+ * 
+ * @author Shafik Mohammad
+ */
+final class MemoryEstimate {
+
+	static final long OBJECT_HEADER = 12L;
+	static final long REFERENCE = 4L;
+
+	private static final long ARRAY_HEADER = 16L;
+
+	private MemoryEstimate() {
+	}
+
+	/**
+	 * Estimates the size of an object from the size of its fields.
+	 */
+	static long ofObject(long fieldSize) {
+		return align(OBJECT_HEADER + fieldSize);
+	}
+
+	/**
+	 * Estimates the size of an array, not counting the objects it references.
+	 */
+	static long ofArray(long elementSize, int length) {
+		return align(ARRAY_HEADER + elementSize * length);
+	}
+
+	private static long align(long size) {
+		return (size + 7L) & ~7L;
+	}
+}
\ No newline at end of file
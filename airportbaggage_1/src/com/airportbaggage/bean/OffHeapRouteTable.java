@@ -0,0 +1,376 @@
+package com.airportbaggage.bean;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * A route table that computes the shortest routes between every pair of
+ * baggage points up front, like {@link PrecomputedRouteTable}, but holds the
+ * distances and predecessors of every shortest path tree off the heap, in
+ * direct byte buffers. The heap then holds a few objects per chunk of trees
+ * whatever the size of the network, so the all-pairs table adds nothing to
+ * old-generation collections. Route requests read the buffers directly and
+ * only allocate the route they return.
+ * 
+ * Trees are laid out at a fixed stride in chunks of a bounded size. An
+ * update copies just the chunks holding affected trees and shares the rest
+ * with the previous table. Off-heap memory is released when the chunks are
+ * no longer referenced and have been collected, so leave headroom under
+ * -XX:MaxDirectMemorySize for a table and its successor.
+ * 
+ * @author Shafik Mohammad
+ */
+public class OffHeapRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(OffHeapRouteTable.class.getName());
+
+	private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The approximate size of the fields of a direct buffer and of the
+	 * cleaner that frees its memory
+	 */
+	private static final long DIRECT_BUFFER_FIELD_SIZE = 64L;
+
+	/**
+	 * The number of source ranges handed to each worker thread, so that
+	 * workers finishing early can steal the remaining ranges
+	 */
+	private static final int TASKS_PER_THREAD = 8;
+
+	/**
+	 * The number of threads used to compute the shortest routes
+	 */
+	private final int parallelism;
+
+	/**
+	 * The size chunks are kept within, unless a single tree is larger
+	 */
+	private final int chunkSize;
+
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The size of a tree: its distances, then its predecessors, padded so the
+	 * distances of every tree are aligned
+	 */
+	private final int stride;
+	private final int treesPerChunk;
+
+	/**
+	 * The chunks of shortest path trees, in native byte order; the tree of a
+	 * source is at position (source % treesPerChunk) * stride of chunk source
+	 * / treesPerChunk. Chunks are never repositioned, only read and written
+	 * at absolute positions or through duplicates.
+	 */
+	private final ByteBuffer[] chunks;
+
+	/**
+	 * Computes the shortest path trees of a range of source baggage points
+	 * into the chunks. Every source writes its own region, so tasks never
+	 * contend.
+	 */
+	private static class ShortestPathTreesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final OffHeapRouteTable routeTable;
+		final int firstSource;
+		final int lastSource;
+		final int threshold;
+
+		ShortestPathTreesTask(OffHeapRouteTable routeTable, int firstSource, int lastSource, int threshold) {
+			this.routeTable = routeTable;
+			this.firstSource = firstSource;
+			this.lastSource = lastSource;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastSource - firstSource <= threshold) {
+				DijkstraSearch search = new DijkstraSearch(routeTable.network);
+
+				for (int source = firstSource; source < lastSource; source++) {
+					routeTable.write(routeTable.chunks, search.computeShortestPathTree(source));
+				}
+			} else {
+				int middleSource = (firstSource + lastSource) >>> 1;
+				invokeAll(new ShortestPathTreesTask(routeTable, firstSource, middleSource, threshold),
+						new ShortestPathTreesTask(routeTable, middleSource, lastSource, threshold));
+			}
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param parallelism
+	 *            The number of threads used to compute the shortest routes.
+	 *            Must be at least 1.
+	 * @param chunkSize
+	 *            The size in bytes chunks of trees are kept within. Smaller
+	 *            chunks make updates copy less. Must be at least 1.
+	 */
+	public OffHeapRouteTable(int parallelism, int chunkSize) {
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(String.format("Parallelism %d must be at least 1.", parallelism));
+		}
+
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException(String.format("Chunk size %d must be at least 1.", chunkSize));
+		}
+
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+		this.network = CompiledConveyerNetwork.EMPTY;
+		this.stride = 0;
+		this.treesPerChunk = 1;
+		this.chunks = new ByteBuffer[0];
+	}
+
+	/**
+	 * A constructor that keeps chunks within 16 MB.
+	 * 
+	 * @param parallelism
+	 *            The number of threads used to compute the shortest routes.
+	 *            Must be at least 1.
+	 */
+	public OffHeapRouteTable(int parallelism) {
+		this(parallelism, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * A constructor that computes the shortest routes on the calling thread.
+	 */
+	public OffHeapRouteTable() {
+		this(1);
+	}
+
+	/**
+	 * Creates the table of a network from the table it is initialized or
+	 * updated from, sharing its configuration.
+	 */
+	private OffHeapRouteTable(OffHeapRouteTable prototype, CompiledConveyerNetwork network, ByteBuffer[] chunks) {
+		this.parallelism = prototype.parallelism;
+		this.chunkSize = prototype.chunkSize;
+		this.network = network;
+		this.stride = stride(network.size());
+		this.treesPerChunk = treesPerChunk(stride, chunkSize);
+		this.chunks = chunks;
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+
+		int stride = stride(network.size());
+		int treesPerChunk = treesPerChunk(stride, chunkSize);
+		ByteBuffer[] chunks = new ByteBuffer[(network.size() + treesPerChunk - 1) / treesPerChunk];
+
+		for (int chunk = 0; chunk < chunks.length; chunk++) {
+			int treeCount = Math.min(treesPerChunk, network.size() - chunk * treesPerChunk);
+			chunks[chunk] = ByteBuffer.allocateDirect(treeCount * stride).order(ByteOrder.nativeOrder());
+		}
+
+		OffHeapRouteTable routeTable = new OffHeapRouteTable(this, network, chunks);
+
+		// compute shortest paths, one single-source search per baggage point
+		if (1 == parallelism) {
+			new ShortestPathTreesTask(routeTable, 0, network.size(), network.size()).compute();
+		} else {
+			int threshold = Math.max(1, network.size() / (parallelism * TASKS_PER_THREAD));
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+			try {
+				pool.invoke(new ShortestPathTreesTask(routeTable, 0, network.size(), threshold));
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		LOGGER.fine("Computed off-heap shortest routes for baggage points: " + network.size() + ", chunks: "
+				+ chunks.length);
+
+		return routeTable;
+	}
+
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		if (network.size() != this.network.size()) {
+			// every tree grows, so none of the chunks can be shared
+			LOGGER.fine("Baggage points added, computing off-heap shortest routes again.");
+			return initialize(network);
+		}
+
+		ByteBuffer[] updatedChunks = chunks.clone();
+		boolean[] copied = new boolean[chunks.length];
+		DijkstraSearch search = new DijkstraSearch(network);
+		int updatedCount = 0;
+
+		for (int source = 0; source < network.size(); source++) {
+			ByteBuffer chunk = chunks[source / treesPerChunk];
+			int tree = (source % treesPerChunk) * stride;
+			int predecessors = tree + network.size() * Double.BYTES;
+
+			// check the endpoints in place; only affected trees are read
+			if (DijkstraSearch.isAffected(chunk.getDouble(tree + baggagePoint * Double.BYTES),
+					chunk.getDouble(tree + connectedBaggagePoint * Double.BYTES),
+					chunk.getInt(predecessors + baggagePoint * Integer.BYTES),
+					chunk.getInt(predecessors + connectedBaggagePoint * Integer.BYTES), baggagePoint,
+					connectedBaggagePoint, previousDistance, distance)) {
+
+				ShortestPathTree shortestPathTree = search.updateShortestPathTree(getShortestPathTree(source),
+						baggagePoint, connectedBaggagePoint, previousDistance, distance);
+
+				if (!copied[source / treesPerChunk]) {
+					updatedChunks[source / treesPerChunk] = copy(chunk);
+					copied[source / treesPerChunk] = true;
+				}
+
+				write(updatedChunks, shortestPathTree);
+				updatedCount++;
+			}
+		}
+
+		LOGGER.fine("Updated off-heap shortest path trees for sources: " + updatedCount);
+
+		return new OffHeapRouteTable(this, network, updatedChunks);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	/**
+	 * Estimates the heap memory of the chunk objects only; see
+	 * {@link #getOffHeapSize()} for the trees.
+	 */
+	@Override
+	public long getMemoryEstimate() {
+		return MemoryEstimate.ofArray(MemoryEstimate.REFERENCE, chunks.length)
+				+ chunks.length * MemoryEstimate.ofObject(DIRECT_BUFFER_FIELD_SIZE);
+	}
+
+	/**
+	 * Gets the off-heap memory taken by the trees of the table, including the
+	 * chunks it shares with the table it was updated from.
+	 * 
+	 * @return The size in bytes.
+	 */
+	public long getOffHeapSize() {
+		long offHeapSize = 0L;
+
+		for (ByteBuffer chunk : chunks) {
+			offHeapSize += chunk.capacity();
+		}
+
+		return offHeapSize;
+	}
+
+	/**
+	 * Copies the shortest path tree of a source out of its chunk onto the
+	 * heap.
+	 */
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		double[] distances = new double[network.size()];
+		int[] predecessors = new int[network.size()];
+
+		ByteBuffer tree = chunks[source / treesPerChunk].duplicate().order(ByteOrder.nativeOrder());
+		tree.position((source % treesPerChunk) * stride);
+		tree.asDoubleBuffer().get(distances);
+		tree.position(tree.position() + distances.length * Double.BYTES);
+		tree.asIntBuffer().get(predecessors);
+
+		return new ShortestPathTree(network, source, distances, predecessors);
+	}
+
+	/**
+	 * Rebuilds a shortest route by following the predecessors in place.
+	 */
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+
+		ByteBuffer chunk = chunks[source / treesPerChunk];
+		int tree = (source % treesPerChunk) * stride;
+		int predecessors = tree + network.size() * Double.BYTES;
+		ShortestRoute shortestRoute = null;
+
+		if (destination != source && chunk.getInt(predecessors + destination * Integer.BYTES) >= 0) {
+			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+
+			for (int baggagePoint = destination; baggagePoint >= 0; baggagePoint = chunk
+					.getInt(predecessors + baggagePoint * Integer.BYTES)) {
+				path.add(network.getBaggagePoint(baggagePoint));
+			}
+			Collections.reverse(path);
+
+			shortestRoute = new ShortestRoute(chunk.getDouble(tree + destination * Double.BYTES), path);
+		}
+
+		return shortestRoute;
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("OffHeapRouteTable[chunks=%d, treesPerChunk=%d, offHeapSize=%d]", chunks.length,
+				treesPerChunk, getOffHeapSize());
+	}
+
+	/**
+	 * Writes a shortest path tree into its region of the chunks, through a
+	 * duplicate so concurrent writers never share a position.
+	 */
+	private void write(ByteBuffer[] chunks, ShortestPathTree shortestPathTree) {
+		int source = shortestPathTree.getSource();
+		ByteBuffer tree = chunks[source / treesPerChunk].duplicate().order(ByteOrder.nativeOrder());
+
+		tree.position((source % treesPerChunk) * stride);
+		tree.asDoubleBuffer().put(shortestPathTree.distances);
+		tree.position(tree.position() + shortestPathTree.distances.length * Double.BYTES);
+		tree.asIntBuffer().put(shortestPathTree.predecessors);
+	}
+
+	private static ByteBuffer copy(ByteBuffer chunk) {
+		ByteBuffer copy = ByteBuffer.allocateDirect(chunk.capacity()).order(ByteOrder.nativeOrder());
+		copy.duplicate().put(chunk.duplicate());
+
+		return copy;
+	}
+
+	private static int stride(int baggagePointCount) {
+		long stride = ((long) baggagePointCount * (Double.BYTES + Integer.BYTES) + 7L) & ~7L;
+
+		if (stride > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					String.format("Network of %d baggage points is too large for off-heap trees.", baggagePointCount));
+		}
+
+		return (int) stride;
+	}
+
+	private static int treesPerChunk(int stride, int chunkSize) {
+		return Math.max(1, chunkSize / Math.max(1, stride));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,551 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * A route table that splits the conveyer network into partitions, such as
+ * the terminals or concourses of a hub, and never holds routes across all of
+ * it. A baggage point with a connection into another partition is a boundary
+ * point. The table holds
+ * <ul>
+ * <li>a route table of each partition on its own, over the connections within
+ * it, and</li>
+ * <li>an overlay: all-pairs routes between the boundary points, over the
+ * connections between partitions and, within each partition, a shortcut
+ * between every two of its boundary points as long as the route between
+ * them.</li>
+ * </ul>
+ * A route leaving its source's partition leaves through one of its boundary
+ * points and enters the destination's partition through another, so the
+ * shortest route is the shortest combination of a route to an exit, an
+ * overlay route and a route from an entry, or the route within the partition
+ * if both ends share one. Memory grows with the squares of the partition
+ * sizes and of the boundary point count, not of the network size.
+ * 
+ * Each partition's table depends only on its own baggage points and
+ * connections, so partitions can be built, updated and held independently.
+ * Connections are expected to be two-way, as {@link ConveyerNetwork} adds
+ * them.
+ * 
+ * @author Shafik Mohammad
+ */
+public class PartitionedRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(PartitionedRouteTable.class.getName());
+
+	private static final int DEFAULT_PARTITION_SIZE = 256;
+
+	/**
+	 * Assigns baggage points to zones; null to grow partitions of a size
+	 * breadth-first
+	 */
+	private final ZonePartitioner partitioner;
+	private final int partitionSize;
+
+	/**
+	 * The table every partition table is initialized from
+	 */
+	private final RouteTable partitionPrototype;
+
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The partition of every baggage point, and its index in the partition's
+	 * network
+	 */
+	private final int[] partitionOf;
+	private final int[] localIndexOf;
+
+	private final Partition[] partitions;
+
+	/**
+	 * The index of every boundary point in the overlay network; -1 for the
+	 * other baggage points
+	 */
+	private final int[] overlayIndexOf;
+	private final RouteTable overlay;
+
+	/**
+	 * The baggage points of one partition and the routes between them.
+	 */
+	private static final class Partition {
+		final int[] members;
+		final int[] boundaries;
+		final RouteTable routeTable;
+
+		Partition(int[] members, int[] boundaries, RouteTable routeTable) {
+			this.members = members;
+			this.boundaries = boundaries;
+			this.routeTable = routeTable;
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param partitioner
+	 *            Assigns the baggage points to zones, one partition each.
+	 * @param partitionPrototype
+	 *            The table whose kind and configuration every partition
+	 *            table is initialized with, e.g. a
+	 *            {@link PrecomputedRouteTable}.
+	 */
+	public PartitionedRouteTable(ZonePartitioner partitioner, RouteTable partitionPrototype) {
+		this(partitioner, DEFAULT_PARTITION_SIZE, partitionPrototype);
+	}
+
+	/**
+	 * A constructor that precomputes the routes within each zone.
+	 * 
+	 * @param partitioner
+	 *            Assigns the baggage points to zones, one partition each.
+	 */
+	public PartitionedRouteTable(ZonePartitioner partitioner) {
+		this(partitioner, new PrecomputedRouteTable());
+	}
+
+	/**
+	 * A constructor that partitions a network without zones, growing each
+	 * partition breadth-first from a baggage point not yet partitioned, and
+	 * precomputes the routes within each partition.
+	 * 
+	 * @param partitionSize
+	 *            The maximum number of baggage points in a partition. Must be
+	 *            at least 1.
+	 */
+	public PartitionedRouteTable(int partitionSize) {
+		this(null, partitionSize, new PrecomputedRouteTable());
+	}
+
+	private PartitionedRouteTable(ZonePartitioner partitioner, int partitionSize, RouteTable partitionPrototype) {
+
+		if (partitionSize < 1) {
+			throw new IllegalArgumentException(String.format("Partition size %d must be at least 1.", partitionSize));
+		}
+
+		this.partitioner = partitioner;
+		this.partitionSize = partitionSize;
+		this.partitionPrototype = partitionPrototype;
+		this.network = CompiledConveyerNetwork.EMPTY;
+		this.partitionOf = new int[0];
+		this.localIndexOf = new int[0];
+		this.partitions = new Partition[0];
+		this.overlayIndexOf = new int[0];
+		this.overlay = new PrecomputedRouteTable();
+	}
+
+	/**
+	 * Creates the table of a partitioned network from the table it is
+	 * initialized or updated from, sharing its configuration, and builds the
+	 * overlay of its partitions.
+	 */
+	private PartitionedRouteTable(PartitionedRouteTable prototype, CompiledConveyerNetwork network,
+			int[] partitionOf, int[] localIndexOf, Partition[] partitions) {
+		this.partitioner = prototype.partitioner;
+		this.partitionSize = prototype.partitionSize;
+		this.partitionPrototype = prototype.partitionPrototype;
+		this.network = network;
+		this.partitionOf = partitionOf;
+		this.localIndexOf = localIndexOf;
+		this.partitions = partitions;
+		this.overlayIndexOf = new int[network.size()];
+		this.overlay = buildOverlay();
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+
+		int[] partitionOf = null == partitioner ? partitionBreadthFirst(network, partitionSize)
+				: partitionByZone(network, partitioner);
+		int partitionCount = 0;
+
+		for (int partition : partitionOf) {
+			partitionCount = Math.max(partitionCount, partition + 1);
+		}
+
+		int[] memberCounts = new int[partitionCount];
+		int[] localIndexOf = new int[network.size()];
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			localIndexOf[baggagePoint] = memberCounts[partitionOf[baggagePoint]]++;
+		}
+
+		int[][] members = new int[partitionCount][];
+
+		for (int partition = 0; partition < partitionCount; partition++) {
+			members[partition] = new int[memberCounts[partition]];
+		}
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			members[partitionOf[baggagePoint]][localIndexOf[baggagePoint]] = baggagePoint;
+		}
+
+		Partition[] partitions = new Partition[partitionCount];
+
+		for (int partition = 0; partition < partitionCount; partition++) {
+			partitions[partition] = buildPartition(network, partitionOf, members[partition]);
+		}
+
+		PartitionedRouteTable routeTable = new PartitionedRouteTable(this, network, partitionOf, localIndexOf,
+				partitions);
+		LOGGER.fine("Partitioned baggage points: " + network.size() + ", partitions: " + partitionCount
+				+ ", boundary points: " + routeTable.getBoundaryCount());
+
+		return routeTable;
+	}
+
+	/**
+	 * Rebuilds the partitions of the endpoints of the changed connection and
+	 * the overlay, and shares the other partitions with this table. Baggage
+	 * points keep their partitions; if baggage points were added, the whole
+	 * network is partitioned again.
+	 */
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		if (network.size() != this.network.size()) {
+			LOGGER.fine("Baggage points added, partitioning again.");
+			return initialize(network);
+		}
+
+		Partition[] updatedPartitions = partitions.clone();
+		int partition = partitionOf[baggagePoint];
+		int connectedPartition = partitionOf[connectedBaggagePoint];
+
+		updatedPartitions[partition] = buildPartition(network, partitionOf, partitions[partition].members);
+
+		if (connectedPartition != partition) {
+			updatedPartitions[connectedPartition] = buildPartition(network, partitionOf,
+					partitions[connectedPartition].members);
+		}
+
+		return new PartitionedRouteTable(this, network, partitionOf, localIndexOf, updatedPartitions);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	@Override
+	public long getMemoryEstimate() {
+		long memoryEstimate = overlay.getMemoryEstimate()
+				+ 3 * MemoryEstimate.ofArray(Integer.BYTES, network.size());
+
+		for (Partition partition : partitions) {
+			memoryEstimate += partition.routeTable.getMemoryEstimate()
+					+ MemoryEstimate.ofArray(Integer.BYTES, partition.members.length)
+					+ MemoryEstimate.ofArray(Integer.BYTES, partition.boundaries.length);
+		}
+
+		return memoryEstimate;
+	}
+
+	/**
+	 * Searches the whole network, since no table holds routes across
+	 * partitions.
+	 */
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		return new DijkstraSearch(network).computeShortestPathTree(source);
+	}
+
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+
+		Partition sourcePartition = partitions[partitionOf[source]];
+		Partition destinationPartition = partitions[partitionOf[destination]];
+		ShortestPathTree fromSource = sourcePartition.routeTable.getShortestPathTree(localIndexOf[source]);
+
+		// connections are two-way, so the tree of the destination holds the
+		// distances to it
+		ShortestPathTree toDestination = destinationPartition.routeTable
+				.getShortestPathTree(localIndexOf[destination]);
+		double shortestDistance = sourcePartition == destinationPartition
+				? fromSource.getDistance(localIndexOf[destination]) : Double.POSITIVE_INFINITY;
+		int exit = -1;
+		int entry = -1;
+
+		for (int boundary : sourcePartition.boundaries) {
+			double toExit = fromSource.getDistance(localIndexOf[boundary]);
+
+			if (toExit < shortestDistance) {
+				ShortestPathTree fromExit = overlay.getShortestPathTree(overlayIndexOf[boundary]);
+
+				for (int destinationBoundary : destinationPartition.boundaries) {
+					double distance = toExit + fromExit.getDistance(overlayIndexOf[destinationBoundary])
+							+ toDestination.getDistance(localIndexOf[destinationBoundary]);
+
+					if (distance < shortestDistance) {
+						shortestDistance = distance;
+						exit = boundary;
+						entry = destinationBoundary;
+					}
+				}
+			}
+		}
+
+		ShortestRoute shortestRoute = null;
+
+		if (Double.isInfinite(shortestDistance)) {
+			shortestRoute = null;
+		} else if (exit < 0) {
+			shortestRoute = sourcePartition.routeTable.getShortestRoute(localIndexOf[source],
+					localIndexOf[destination]);
+		} else {
+			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+
+			appendLocalRoute(path, source, exit);
+			appendOverlayRoute(path, exit, entry);
+			appendLocalRoute(path, entry, destination);
+			shortestRoute = new ShortestRoute(shortestDistance, path);
+		}
+
+		return shortestRoute;
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+
+	/**
+	 * Gets the number of partitions.
+	 * 
+	 * @return The partition count.
+	 */
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	/**
+	 * Gets the number of boundary points, connected to another partition.
+	 * 
+	 * @return The boundary point count.
+	 */
+	public int getBoundaryCount() {
+		return overlay.getNetwork().size();
+	}
+
+	/**
+	 * Gets the partition of a baggage point.
+	 * 
+	 * @param baggagePoint
+	 *            The index of the baggage point.
+	 * @return The index of its partition.
+	 */
+	public int getPartition(int baggagePoint) {
+		return partitionOf[baggagePoint];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PartitionedRouteTable[partitions=%d, boundaryPoints=%d]", getPartitionCount(),
+				getBoundaryCount());
+	}
+
+	/**
+	 * Appends the route between two baggage points of the same partition,
+	 * within the partition.
+	 */
+	private void appendLocalRoute(List<BaggagePoint> path, int from, int to) {
+
+		if (from == to) {
+			append(path, network.getBaggagePoint(from));
+		} else {
+			for (BaggagePoint baggagePoint : partitions[partitionOf[from]].routeTable
+					.getShortestRoute(localIndexOf[from], localIndexOf[to]).getPath()) {
+				append(path, baggagePoint);
+			}
+		}
+	}
+
+	/**
+	 * Appends the overlay route between two boundary points, unpacking the
+	 * shortcuts within partitions.
+	 */
+	private void appendOverlayRoute(List<BaggagePoint> path, int exit, int entry) {
+
+		if (exit == entry) {
+			append(path, network.getBaggagePoint(exit));
+		} else {
+			List<BaggagePoint> boundaries = overlay.getShortestRoute(overlayIndexOf[exit], overlayIndexOf[entry])
+					.getPath();
+
+			for (int boundary = 1; boundary < boundaries.size(); boundary++) {
+				int from = network.indexOf(boundaries.get(boundary - 1));
+				int to = network.indexOf(boundaries.get(boundary));
+
+				// connections between partitions are taken as they are
+				if (partitionOf[from] == partitionOf[to]) {
+					appendLocalRoute(path, from, to);
+				} else {
+					append(path, network.getBaggagePoint(from));
+					append(path, network.getBaggagePoint(to));
+				}
+			}
+		}
+	}
+
+	private static void append(List<BaggagePoint> path, BaggagePoint baggagePoint) {
+		if (path.isEmpty() || path.get(path.size() - 1) != baggagePoint) {
+			path.add(baggagePoint);
+		}
+	}
+
+	/**
+	 * Builds the table of a partition over the connections within it, and
+	 * finds its boundary points.
+	 */
+	private Partition buildPartition(CompiledConveyerNetwork network, int[] partitionOf, int[] members) {
+
+		Map<BaggagePoint, Map<BaggagePoint, Double>> localNetwork = new LinkedHashMap<BaggagePoint, Map<BaggagePoint, Double>>();
+		int[] boundaries = new int[members.length];
+		int boundaryCount = 0;
+
+		for (int member : members) {
+			Map<BaggagePoint, Double> connections = new LinkedHashMap<BaggagePoint, Double>();
+			boolean boundary = false;
+
+			for (int connection = network.getFirstConnection(member); connection < network
+					.getLastConnection(member); connection++) {
+				int target = network.getTarget(connection);
+
+				if (partitionOf[target] == partitionOf[member]) {
+					connections.put(network.getBaggagePoint(target), network.getDistance(connection));
+				} else {
+					boundary = true;
+				}
+			}
+
+			localNetwork.put(network.getBaggagePoint(member), connections);
+
+			if (boundary) {
+				boundaries[boundaryCount++] = member;
+			}
+		}
+
+		return new Partition(members, Arrays.copyOf(boundaries, boundaryCount),
+				partitionPrototype.initialize(CompiledConveyerNetwork.compile(localNetwork)));
+	}
+
+	/**
+	 * Builds the all-pairs routes between boundary points, over the
+	 * connections between partitions and the shortcuts within them.
+	 */
+	private RouteTable buildOverlay() {
+
+		Map<BaggagePoint, Map<BaggagePoint, Double>> overlayNetwork = new LinkedHashMap<BaggagePoint, Map<BaggagePoint, Double>>();
+		Arrays.fill(overlayIndexOf, -1);
+
+		for (Partition partition : partitions) {
+			for (int boundary : partition.boundaries) {
+				overlayIndexOf[boundary] = overlayNetwork.size();
+				overlayNetwork.put(network.getBaggagePoint(boundary), new LinkedHashMap<BaggagePoint, Double>());
+			}
+		}
+
+		for (Partition partition : partitions) {
+			for (int boundary : partition.boundaries) {
+				Map<BaggagePoint, Double> connections = overlayNetwork.get(network.getBaggagePoint(boundary));
+				ShortestPathTree withinPartition = partition.routeTable.getShortestPathTree(localIndexOf[boundary]);
+
+				for (int connection = network.getFirstConnection(boundary); connection < network
+						.getLastConnection(boundary); connection++) {
+					int target = network.getTarget(connection);
+
+					if (partitionOf[target] != partitionOf[boundary]) {
+						connections.put(network.getBaggagePoint(target), network.getDistance(connection));
+					}
+				}
+
+				for (int otherBoundary : partition.boundaries) {
+					double distance = withinPartition.getDistance(localIndexOf[otherBoundary]);
+
+					if (otherBoundary != boundary && !Double.isInfinite(distance)) {
+						connections.put(network.getBaggagePoint(otherBoundary), distance);
+					}
+				}
+			}
+		}
+
+		return new PrecomputedRouteTable().initialize(CompiledConveyerNetwork.compile(overlayNetwork));
+	}
+
+	/**
+	 * Assigns the baggage points to a partition per zone, in the order the
+	 * zones are first found.
+	 */
+	private static int[] partitionByZone(CompiledConveyerNetwork network, ZonePartitioner partitioner) {
+		int[] partitionOf = new int[network.size()];
+		Map<String, Integer> partitionsByZone = new HashMap<String, Integer>();
+
+		for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+			String zoneId = partitioner.getZoneId(network.getBaggagePoint(baggagePoint));
+			Integer partition = partitionsByZone.get(zoneId);
+
+			if (null == partition) {
+				partition = partitionsByZone.size();
+				partitionsByZone.put(zoneId, partition);
+			}
+
+			partitionOf[baggagePoint] = partition;
+		}
+
+		return partitionOf;
+	}
+
+	/**
+	 * Grows partitions of up to a size breadth-first, each from the first
+	 * baggage point not yet partitioned.
+	 */
+	private static int[] partitionBreadthFirst(CompiledConveyerNetwork network, int partitionSize) {
+		int[] partitionOf = new int[network.size()];
+		int[] queue = new int[network.size()];
+		int partitionCount = 0;
+
+		Arrays.fill(partitionOf, -1);
+
+		for (int seed = 0; seed < network.size(); seed++) {
+			if (partitionOf[seed] < 0) {
+				int head = 0;
+				int tail = 0;
+
+				partitionOf[seed] = partitionCount;
+				queue[tail++] = seed;
+
+				while (head < tail && tail < partitionSize) {
+					int baggagePoint = queue[head++];
+
+					for (int connection = network.getFirstConnection(baggagePoint); tail < partitionSize
+							&& connection < network.getLastConnection(baggagePoint); connection++) {
+						int target = network.getTarget(connection);
+
+						if (partitionOf[target] < 0) {
+							partitionOf[target] = partitionCount;
+							queue[tail++] = target;
+						}
+					}
+				}
+
+				partitionCount++;
+			}
+		}
+
+		return partitionOf;
+	}
+}
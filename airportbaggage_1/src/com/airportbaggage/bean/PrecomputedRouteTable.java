@@ -0,0 +1,226 @@
+package com.airportbaggage.bean;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * A route table that computes the shortest routes between every pair of
+ * baggage points up front, optionally in parallel.
+ * 
+ * @author Shafik Mohammad
+ */
+public class PrecomputedRouteTable implements RouteTable {
+
+	private static final Logger LOGGER = Logger.getLogger(PrecomputedRouteTable.class.getName());
+
+	/**
+	 * The number of source ranges handed to each worker thread, so that
+	 * workers finishing early can steal the remaining ranges
+	 */
+	private static final int TASKS_PER_THREAD = 8;
+
+	/**
+	 * The number of threads used to compute the shortest routes
+	 */
+	private final int parallelism;
+
+	/**
+	 * The compiled conveyer network the shortest routes are computed for
+	 */
+	private final CompiledConveyerNetwork network;
+
+	/**
+	 * The shortest path trees of the conveyer network, indexed by the source
+	 * baggage point index of the compiled network
+	 */
+	private final ShortestPathTree[] shortestPathsNetwork;
+
+	/**
+	 * The persisted trees the missing entries of the shortest path trees are
+	 * read from on first use; null if every tree was computed
+	 */
+	private final RouteTableStore.MappedTrees mappedTrees;
+
+	/**
+	 * Computes the shortest path trees of a range of source baggage points. Every
+	 * source writes its own slot of the shared array, so tasks never contend.
+	 */
+	private static class ShortestPathTreesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final CompiledConveyerNetwork network;
+		final ShortestPathTree[] shortestPathTrees;
+		final int firstSource;
+		final int lastSource;
+		final int threshold;
+
+		ShortestPathTreesTask(CompiledConveyerNetwork network, ShortestPathTree[] shortestPathTrees, int firstSource,
+				int lastSource, int threshold) {
+			this.network = network;
+			this.shortestPathTrees = shortestPathTrees;
+			this.firstSource = firstSource;
+			this.lastSource = lastSource;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastSource - firstSource <= threshold) {
+				DijkstraSearch search = new DijkstraSearch(network);
+
+				for (int source = firstSource; source < lastSource; source++) {
+					shortestPathTrees[source] = search.computeShortestPathTree(source);
+				}
+			} else {
+				int middleSource = (firstSource + lastSource) >>> 1;
+				invokeAll(new ShortestPathTreesTask(network, shortestPathTrees, firstSource, middleSource, threshold),
+						new ShortestPathTreesTask(network, shortestPathTrees, middleSource, lastSource, threshold));
+			}
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param parallelism
+	 *            The number of threads used to compute the shortest routes.
+	 *            Must be at least 1.
+	 */
+	public PrecomputedRouteTable(int parallelism) {
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(String.format("Parallelism %d must be at least 1.", parallelism));
+		}
+
+		this.parallelism = parallelism;
+		this.network = CompiledConveyerNetwork.EMPTY;
+		this.shortestPathsNetwork = new ShortestPathTree[0];
+		this.mappedTrees = null;
+	}
+
+	/**
+	 * A constructor that computes the shortest routes on the calling thread.
+	 */
+	public PrecomputedRouteTable() {
+		this(1);
+	}
+
+	private PrecomputedRouteTable(int parallelism, CompiledConveyerNetwork network,
+			ShortestPathTree[] shortestPathsNetwork, RouteTableStore.MappedTrees mappedTrees) {
+		this.parallelism = parallelism;
+		this.network = network;
+		this.shortestPathsNetwork = shortestPathsNetwork;
+		this.mappedTrees = mappedTrees;
+	}
+
+	@Override
+	public RouteTable initialize(CompiledConveyerNetwork network) {
+
+		ShortestPathTree[] shortestPathTrees = new ShortestPathTree[network.size()];
+
+		// compute shortest paths, one single-source search per baggage point
+		if (1 == parallelism) {
+			new ShortestPathTreesTask(network, shortestPathTrees, 0, network.size(), network.size()).compute();
+		} else {
+			int threshold = Math.max(1, network.size() / (parallelism * TASKS_PER_THREAD));
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+			try {
+				pool.invoke(new ShortestPathTreesTask(network, shortestPathTrees, 0, network.size(), threshold));
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		LOGGER.fine("Computed shortest routes for baggage points: " + network.size());
+
+		return new PrecomputedRouteTable(parallelism, network, shortestPathTrees, null);
+	}
+
+	/**
+	 * Creates the table of a network whose trees were persisted, reading each
+	 * tree from the mapped file the first time it is used.
+	 */
+	PrecomputedRouteTable initialize(CompiledConveyerNetwork network, RouteTableStore.MappedTrees mappedTrees) {
+		return new PrecomputedRouteTable(parallelism, network, new ShortestPathTree[network.size()], mappedTrees);
+	}
+
+	@Override
+	public RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance) {
+
+		// unaffected trees are shared with this table
+		ShortestPathTree[] shortestPathTrees = new ShortestPathTree[network.size()];
+		DijkstraSearch search = new DijkstraSearch(network);
+		int updatedCount = 0;
+
+		for (int source = 0; source < network.size(); source++) {
+			if (source >= shortestPathsNetwork.length) {
+				// a baggage point added with the connection
+				shortestPathTrees[source] = search.computeShortestPathTree(source);
+				updatedCount++;
+			} else {
+				ShortestPathTree previousShortestPathTree = getShortestPathTree(source);
+				ShortestPathTree shortestPathTree = search.updateShortestPathTree(previousShortestPathTree,
+						baggagePoint, connectedBaggagePoint, previousDistance, distance);
+
+				if (null != shortestPathTree) {
+					updatedCount++;
+				}
+
+				shortestPathTrees[source] = null == shortestPathTree ? previousShortestPathTree : shortestPathTree;
+			}
+		}
+
+		LOGGER.fine("Updated shortest path trees for sources: " + updatedCount);
+
+		return new PrecomputedRouteTable(parallelism, network, shortestPathTrees, null);
+	}
+
+	@Override
+	public CompiledConveyerNetwork getNetwork() {
+		return network;
+	}
+
+	@Override
+	public boolean isLoadDependent() {
+		return false;
+	}
+
+	@Override
+	public long getMemoryEstimate() {
+		long memoryEstimate = MemoryEstimate.ofArray(MemoryEstimate.REFERENCE, shortestPathsNetwork.length);
+
+		// persisted trees not read yet take no heap
+		for (ShortestPathTree shortestPathTree : shortestPathsNetwork) {
+			memoryEstimate += null == shortestPathTree ? 0L : shortestPathTree.getMemoryEstimate();
+		}
+
+		return memoryEstimate;
+	}
+
+	@Override
+	public ShortestPathTree getShortestPathTree(int source) {
+		ShortestPathTree shortestPathTree = shortestPathsNetwork[source];
+
+		// trees are immutable, so threads racing to read the same persisted
+		// tree store equal copies and any of them may win
+		if (null == shortestPathTree) {
+			shortestPathTree = mappedTrees.read(network, source);
+			shortestPathsNetwork[source] = shortestPathTree;
+		}
+
+		return shortestPathTree;
+	}
+
+	@Override
+	public ShortestRoute getShortestRoute(int source, int destination) {
+		return getShortestPathTree(source).getShortestRoute(destination);
+	}
+
+	@Override
+	public ShortestRoute dispatch(int source, int destination) {
+		return getShortestRoute(source, destination);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.airportbaggage.bean;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.Gate;
+import com.airportbaggage.bean.ScheduledFlight;
+
+/**
+ * The new routes of the bags of a scheduled flight whose departure gate
+ * changed.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RouteDelta {
+
+	private final ScheduledFlight scheduledFlight;
+	private final Gate previousDepartureGate;
+	private final Gate departureGate;
+	private final long version;
+	private final Map<CheckedBag, String> routes;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param scheduledFlight
+	 *            The scheduled flight, holding the departure gate the bags
+	 *            were routed to.
+	 * @param previousDepartureGate
+	 *            The departure gate the flight had before the change.
+	 * @param version
+	 *            The version of the routing snapshot current when the bags
+	 *            were routed.
+	 * @param routes
+	 *            The new routes of the bags, indexed by the bag.
+	 */
+	public RouteDelta(ScheduledFlight scheduledFlight, Gate previousDepartureGate, long version,
+			Map<CheckedBag, String> routes) {
+		this.scheduledFlight = scheduledFlight;
+		this.previousDepartureGate = previousDepartureGate;
+		this.departureGate = scheduledFlight.getDepartureGate();
+		this.version = version;
+		this.routes = Collections.unmodifiableMap(routes);
+	}
+
+	/**
+	 * Gets the scheduled flight whose departure gate changed.
+	 * 
+	 * @return The scheduled flight.
+	 */
+	public ScheduledFlight getScheduledFlight() {
+		return scheduledFlight;
+	}
+
+	/**
+	 * Gets the departure gate the flight had before the change.
+	 * 
+	 * @return The previous departure gate, or null if it had none.
+	 */
+	public Gate getPreviousDepartureGate() {
+		return previousDepartureGate;
+	}
+
+	/**
+	 * Gets the departure gate the bags were routed to. The flight may have
+	 * changed gates again since.
+	 * 
+	 * @return The departure gate.
+	 */
+	public Gate getDepartureGate() {
+		return departureGate;
+	}
+
+	/**
+	 * Gets the version of the routing snapshot current when the bags were
+	 * routed.
+	 * 
+	 * @return The version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the new routes of the bags of the flight.
+	 * 
+	 * @return An unmodifiable map of Strings holding a delimiter-separated list
+	 *         of baggage points that forms the shortest route, indexed by the
+	 *         bag, in the order the bags were added.
+	 */
+	public Map<CheckedBag, String> getRoutes() {
+		return routes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer delta = new StringBuffer();
+		delta.append(String.format("%s %s -> %s", scheduledFlight.getId(),
+				null == previousDepartureGate ? null : previousDepartureGate.getId(),
+				null == departureGate ? null : departureGate.getId()));
+
+		for (Map.Entry<CheckedBag, String> route : routes.entrySet()) {
+			delta.append('\n').append(route.getKey().getId()).append(' ').append(route.getValue());
+		}
+
+		return delta.toString();
+	}
+}
@@ -0,0 +1,114 @@
+package com.airportbaggage.bean;
+
+/**
+ * A table of shortest routes between the baggage points of a compiled
+ * conveyer network. Implementations decide when, and for how long, routes are
+ * computed and held.
+ * 
+ * A table is bound to one network and never changes what it answers for it:
+ * initializing or updating it returns a new table, configured the same way,
+ * and leaves this one untouched. Any number of threads can therefore route
+ * against a table while its successor is being built.
+ * 
+ * @author Shafik Mohammad
+ */
+public interface RouteTable {
+
+	/**
+	 * Creates a table of the same kind and configuration for a network.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network holding connected baggage
+	 *            points.
+	 * @return The route table of the network.
+	 */
+	RouteTable initialize(CompiledConveyerNetwork network);
+
+	/**
+	 * Creates the table of a network in which a single connection of this
+	 * table's network was added, removed or changed its distance, recomputing
+	 * only the routes the change affects and sharing the rest with this table.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network including the change. It must
+	 *            keep the indexes of this table's baggage points.
+	 * @param baggagePoint
+	 *            The index of one endpoint of the changed connection.
+	 * @param connectedBaggagePoint
+	 *            The index of the other endpoint of the changed connection.
+	 * @param previousDistance
+	 *            The previous distance of the connection; infinite if it was
+	 *            added.
+	 * @param distance
+	 *            The new distance of the connection; infinite if it was
+	 *            removed.
+	 * @return The route table of the changed network.
+	 */
+	RouteTable update(CompiledConveyerNetwork network, int baggagePoint, int connectedBaggagePoint,
+			double previousDistance, double distance);
+
+	/**
+	 * Gets the compiled conveyer network the table holds routes for.
+	 * 
+	 * @return The compiled conveyer network.
+	 */
+	CompiledConveyerNetwork getNetwork();
+
+	/**
+	 * Checks whether the routes of the table depend on the load of the
+	 * conveyer network, so every bag has to be routed on its own rather than
+	 * with the shortest path tree of its entry point.
+	 * 
+	 * @return True, if routes depend on the load; false, otherwise.
+	 */
+	boolean isLoadDependent();
+
+	/**
+	 * Estimates the heap memory taken by the routes the table holds, not
+	 * counting its network or pooled search state. Routes the table shares
+	 * with the table it was updated from are counted in both.
+	 * 
+	 * @return The estimated size in bytes.
+	 */
+	long getMemoryEstimate();
+
+	/**
+	 * Gets the tree of shortest routes from a source baggage point to every
+	 * other baggage point.
+	 * 
+	 * @param source
+	 *            The index of the baggage point from which bags have to be
+	 *            routed.
+	 * @return The shortest path tree of the source.
+	 */
+	ShortestPathTree getShortestPathTree(int source);
+
+	/**
+	 * Gets the shortest route between two different baggage points.
+	 * 
+	 * @param source
+	 *            The index of the baggage point from which the bag has to be
+	 *            routed.
+	 * @param destination
+	 *            The index of the baggage point to which the bag has to be
+	 *            routed.
+	 * @return The shortest route, if the baggage points are connected; null,
+	 *         otherwise.
+	 */
+	ShortestRoute getShortestRoute(int source, int destination);
+
+	/**
+	 * Gets the route of a bag dispatched between two different baggage
+	 * points. A table whose routes depend on the load counts the route in the
+	 * load of its segments, so it is only called for bags that are put on
+	 * the conveyers; any other table answers the shortest route.
+	 * 
+	 * @param source
+	 *            The index of the baggage point from which the bag is routed.
+	 * @param destination
+	 *            The index of the baggage point to which the bag is routed.
+	 * @return The route of the bag, if the baggage points are connected;
+	 *         null, otherwise.
+	 */
+	ShortestRoute dispatch(int source, int destination);
+}
\ No newline at end of file
@@ -0,0 +1,451 @@
+package com.airportbaggage.bean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * A directory of precomputed route tables persisted in a compact binary
+ * format, one file per conveyor configuration, named after the
+ * {@link CompiledConveyerNetwork#getConfigurationHash() configuration hash} of
+ * its network. A table is written once it is built, and memory-mapped when a
+ * router restarts with the same configuration, so the restarted router serves
+ * routes in milliseconds instead of recomputing them all. Shortest path trees
+ * are only read from the mapping the first time their source is routed from.
+ * 
+ * A file holds, in little-endian order: a header with the format version,
+ * configuration hash, sizes and a CRC-32C checksum of the rest of the file;
+ * the compiled network, to tell a hash collision from a match; and the
+ * shortest path tree of every source as distances followed by predecessors,
+ * at a fixed stride. The checksum is verified when the file is mapped, which
+ * reads it through once, so damaged routes are computed again rather than
+ * served.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RouteTableStore {
+
+	private static final Logger LOGGER = Logger.getLogger(RouteTableStore.class.getName());
+
+	private static final int MAGIC = 0x41425254;
+	private static final int FORMAT_VERSION = 2;
+	private static final int HEADER_SIZE = 40;
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+	private static final String FILE_PREFIX = "routes-";
+	private static final String FILE_SUFFIX = ".bin";
+
+	private final Path directory;
+
+	/**
+	 * The shortest path trees of a persisted table, read from the mapped file
+	 * on demand. Trees are mapped in regions of whole trees, since a single
+	 * mapping cannot exceed 2 GB.
+	 */
+	static final class MappedTrees {
+		final MappedByteBuffer[] regions;
+		final int treesPerRegion;
+		final int stride;
+
+		MappedTrees(MappedByteBuffer[] regions, int treesPerRegion, int stride) {
+			this.regions = regions;
+			this.treesPerRegion = treesPerRegion;
+			this.stride = stride;
+		}
+
+		ShortestPathTree read(CompiledConveyerNetwork network, int source) {
+			double[] distances = new double[network.size()];
+			int[] predecessors = new int[network.size()];
+
+			// a view per read, so concurrent reads never share a position
+			ByteBuffer tree = regions[source / treesPerRegion].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			tree.position((source % treesPerRegion) * stride);
+			tree.asDoubleBuffer().get(distances);
+			tree.position(tree.position() + distances.length * Double.BYTES);
+			tree.asIntBuffer().get(predecessors);
+
+			return new ShortestPathTree(network, source, distances, predecessors);
+		}
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param directory
+	 *            The directory holding the persisted tables. It is created on
+	 *            the first write.
+	 */
+	public RouteTableStore(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the file a table of a conveyor configuration is persisted in.
+	 * 
+	 * @param configurationHash
+	 *            The configuration hash of the network.
+	 * @return The path of the file.
+	 */
+	public Path getPath(long configurationHash) {
+		return directory.resolve(String.format("%s%016x%s", FILE_PREFIX, configurationHash, FILE_SUFFIX));
+	}
+
+	/**
+	 * Gets the routes of a network: maps the persisted table of its
+	 * configuration if there is one, or else initializes the prototype and
+	 * persists the table if it is precomputed. A table that cannot be written
+	 * is still returned.
+	 * 
+	 * @param prototype
+	 *            The table whose kind and configuration to use.
+	 * @param network
+	 *            The compiled conveyer network.
+	 * @return The route table of the network.
+	 */
+	public RouteTable initialize(RouteTable prototype, CompiledConveyerNetwork network) {
+
+		if (!(prototype instanceof PrecomputedRouteTable)) {
+			LOGGER.fine("Only precomputed route tables are persisted, initializing: " + prototype);
+			return prototype.initialize(network);
+		}
+
+		RouteTable routeTable = null;
+
+		try {
+			routeTable = load((PrecomputedRouteTable) prototype, network);
+		} catch (IOException e) {
+			LOGGER.warning("Could not map persisted routes, computing them again. " + e.getMessage());
+		}
+
+		if (null == routeTable) {
+			routeTable = prototype.initialize(network);
+
+			try {
+				write((PrecomputedRouteTable) routeTable);
+			} catch (IOException e) {
+				LOGGER.warning("Could not persist routes. " + e.getMessage());
+			}
+		}
+
+		return routeTable;
+	}
+
+	/**
+	 * Maps the persisted table of a network's configuration.
+	 * 
+	 * @param prototype
+	 *            The table whose configuration to use.
+	 * @param network
+	 *            The compiled conveyer network.
+	 * @return The route table of the network, or null if none is persisted
+	 *         for its configuration.
+	 * @throws IOException
+	 *             if the persisted table cannot be read or is corrupt
+	 */
+	public PrecomputedRouteTable load(PrecomputedRouteTable prototype, CompiledConveyerNetwork network)
+			throws IOException {
+
+		long configurationHash = network.getConfigurationHash();
+		Path file = getPath(configurationHash);
+
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			header.flip();
+
+			if (header.remaining() < HEADER_SIZE || MAGIC != header.getInt() || FORMAT_VERSION != header.getInt()
+					|| configurationHash != header.getLong()) {
+				throw new IOException(String.format("%s is not a route table of this format.", file));
+			}
+
+			int baggagePointCount = header.getInt();
+			int connectionCount = header.getInt();
+			long treesOffset = header.getLong();
+			long checksum = header.getLong();
+
+			if (baggagePointCount < 0 || connectionCount < 0) {
+				throw new IOException(String.format("%s has negative sizes.", file));
+			}
+
+			int stride = stride(baggagePointCount);
+
+			if (treesOffset < HEADER_SIZE || treesOffset > Integer.MAX_VALUE
+					|| channel.size() != treesOffset + (long) baggagePointCount * stride) {
+				throw new IOException(String.format("%s is truncated.", file));
+			}
+
+			ByteBuffer persistedNetwork = channel.map(FileChannel.MapMode.READ_ONLY, 0L, treesOffset)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			int treesPerRegion = Math.max(1, Integer.MAX_VALUE / Math.max(1, stride));
+			MappedByteBuffer[] regions = new MappedByteBuffer[(baggagePointCount + treesPerRegion - 1)
+					/ treesPerRegion];
+			Checksum persistedChecksum = new CRC32C();
+
+			persistedNetwork.position(HEADER_SIZE);
+			persistedChecksum.update(persistedNetwork);
+			persistedNetwork.position(HEADER_SIZE);
+
+			for (int region = 0; region < regions.length; region++) {
+				int treeCount = Math.min(treesPerRegion, baggagePointCount - region * treesPerRegion);
+				regions[region] = channel.map(FileChannel.MapMode.READ_ONLY,
+						treesOffset + (long) region * treesPerRegion * stride, (long) treeCount * stride);
+				persistedChecksum.update(regions[region].duplicate());
+			}
+
+			if (checksum != persistedChecksum.getValue()) {
+				throw new IOException(String.format("%s fails its checksum.", file));
+			}
+
+			if (baggagePointCount != network.size() || connectionCount != network.getConnectionCount()
+					|| !readsNetwork(persistedNetwork, network)) {
+				LOGGER.info("Persisted routes are of a different network with the same hash: " + file);
+				return null;
+			}
+
+			LOGGER.fine("Mapped persisted routes for baggage points: " + baggagePointCount);
+
+			return prototype.initialize(network, new MappedTrees(regions, treesPerRegion, stride));
+		} catch (RuntimeException e) {
+			// whatever a damaged file makes the parsing trip over
+			throw new IOException(String.format("%s is corrupt. %s", file, e), e);
+		}
+	}
+
+	/**
+	 * Persists a precomputed table under the configuration hash of its
+	 * network, replacing any table persisted for it. The file is written
+	 * aside and moved into place, so readers never map a partial table.
+	 * 
+	 * @param routeTable
+	 *            The precomputed route table.
+	 * @return The path of the written file.
+	 * @throws IOException
+	 *             if the table cannot be written
+	 */
+	public Path write(PrecomputedRouteTable routeTable) throws IOException {
+
+		CompiledConveyerNetwork network = routeTable.getNetwork();
+		Path file = getPath(network.getConfigurationHash());
+
+		Files.createDirectories(directory);
+
+		// every writer gets a file of its own, so concurrent writers cannot interleave
+		Path temporaryFile = Files.createTempFile(directory, file.getFileName() + ".", ".tmp");
+
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				byte[][] ids = new byte[network.size()][];
+				long networkSize = 0L;
+
+				for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+					ids[baggagePoint] = network.getBaggagePoint(baggagePoint).getId().getBytes(StandardCharsets.UTF_8);
+					networkSize += Integer.BYTES + ids[baggagePoint].length;
+				}
+
+				networkSize += (long) (network.size() + 1 + network.getConnectionCount()) * Integer.BYTES;
+				long treesOffset = align(align(HEADER_SIZE + networkSize) + (long) network.getConnectionCount()
+						* Double.BYTES);
+
+				Checksum checksum = new CRC32C();
+
+				// the header follows the body, once its checksum is known
+				channel.position(HEADER_SIZE);
+
+				for (byte[] id : ids) {
+					ensureRemaining(channel, buffer, checksum, Integer.BYTES + id.length);
+					buffer.putInt(id.length).put(id);
+				}
+
+				for (int baggagePoint = 0; baggagePoint <= network.size(); baggagePoint++) {
+					ensureRemaining(channel, buffer, checksum, Integer.BYTES);
+					buffer.putInt(baggagePoint < network.size() ? network.getFirstConnection(baggagePoint)
+							: network.getConnectionCount());
+				}
+
+				for (int connection = 0; connection < network.getConnectionCount(); connection++) {
+					ensureRemaining(channel, buffer, checksum, Integer.BYTES);
+					buffer.putInt(network.getTarget(connection));
+				}
+
+				pad(channel, buffer, checksum, HEADER_SIZE + networkSize);
+
+				for (int connection = 0; connection < network.getConnectionCount(); connection++) {
+					ensureRemaining(channel, buffer, checksum, Double.BYTES);
+					buffer.putDouble(network.getDistance(connection));
+				}
+
+				pad(channel, buffer, checksum, align(HEADER_SIZE + networkSize)
+						+ (long) network.getConnectionCount() * Double.BYTES);
+
+				for (int source = 0; source < network.size(); source++) {
+					ShortestPathTree shortestPathTree = routeTable.getShortestPathTree(source);
+
+					put(channel, buffer, checksum, shortestPathTree.distances);
+					put(channel, buffer, checksum, shortestPathTree.predecessors);
+					pad(channel, buffer, checksum, network.size() * (long) (Double.BYTES + Integer.BYTES));
+				}
+
+				flush(channel, buffer, checksum);
+
+				buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(network.getConfigurationHash());
+				buffer.putInt(network.size()).putInt(network.getConnectionCount()).putLong(treesOffset);
+				buffer.putLong(checksum.getValue()).flip();
+
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, buffer.position());
+				}
+
+				channel.force(false);
+			}
+
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+
+		LOGGER.fine("Persisted routes for baggage points: " + network.size() + " to " + file);
+
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RouteTableStore[directory=%s]", directory);
+	}
+
+	/**
+	 * Reads the persisted network after the header and checks that it is the
+	 * given network.
+	 * 
+	 * @throws IOException
+	 *             if an id is longer than what is left of the network
+	 */
+	private static boolean readsNetwork(ByteBuffer buffer, CompiledConveyerNetwork network) throws IOException {
+		boolean same = true;
+
+		for (int baggagePoint = 0; same && baggagePoint < network.size(); baggagePoint++) {
+			int length = buffer.getInt();
+
+			if (length < 0 || length > buffer.remaining()) {
+				throw new IOException(String.format("Baggage point id of %d bytes exceeds the persisted network.",
+						length));
+			}
+
+			byte[] id = new byte[length];
+			buffer.get(id);
+			same = network.getBaggagePoint(baggagePoint).getId().equals(new String(id, StandardCharsets.UTF_8));
+		}
+
+		for (int baggagePoint = 0; same && baggagePoint <= network.size(); baggagePoint++) {
+			same = buffer.getInt() == (baggagePoint < network.size() ? network.getFirstConnection(baggagePoint)
+					: network.getConnectionCount());
+		}
+
+		for (int connection = 0; same && connection < network.getConnectionCount(); connection++) {
+			same = buffer.getInt() == network.getTarget(connection);
+		}
+
+		if (same) {
+			buffer.position((int) align(buffer.position()));
+		}
+
+		for (int connection = 0; same && connection < network.getConnectionCount(); connection++) {
+			same = Double.doubleToLongBits(buffer.getDouble()) == Double
+					.doubleToLongBits(network.getDistance(connection));
+		}
+
+		return same;
+	}
+
+	/**
+	 * Gets the size of a persisted shortest path tree, padded to 8 bytes so
+	 * the distances of every tree are aligned.
+	 */
+	private static int stride(int baggagePointCount) {
+		return (int) align((long) baggagePointCount * (Double.BYTES + Integer.BYTES));
+	}
+
+	private static long align(long size) {
+		return (size + 7L) & ~7L;
+	}
+
+	/**
+	 * Pads the output with zeros from an unaligned size up to the next 8
+	 * bytes.
+	 */
+	private static void pad(FileChannel channel, ByteBuffer buffer, Checksum checksum, long size)
+			throws IOException {
+		ensureRemaining(channel, buffer, checksum, Long.BYTES);
+
+		for (long padding = size; padding < align(size); padding++) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	/**
+	 * Puts an array of any length, in as many pieces as the buffer needs.
+	 */
+	private static void put(FileChannel channel, ByteBuffer buffer, Checksum checksum, double[] values)
+			throws IOException {
+		for (int offset = 0; offset < values.length;) {
+			ensureRemaining(channel, buffer, checksum, Double.BYTES);
+			int length = Math.min(values.length - offset, buffer.remaining() / Double.BYTES);
+
+			buffer.asDoubleBuffer().put(values, offset, length);
+			buffer.position(buffer.position() + length * Double.BYTES);
+			offset += length;
+		}
+	}
+
+	private static void put(FileChannel channel, ByteBuffer buffer, Checksum checksum, int[] values)
+			throws IOException {
+		for (int offset = 0; offset < values.length;) {
+			ensureRemaining(channel, buffer, checksum, Integer.BYTES);
+			int length = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+
+			buffer.asIntBuffer().put(values, offset, length);
+			buffer.position(buffer.position() + length * Integer.BYTES);
+			offset += length;
+		}
+	}
+
+	private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, Checksum checksum, int length)
+			throws IOException {
+		if (buffer.remaining() < length) {
+			flush(channel, buffer, checksum);
+		}
+
+		if (buffer.remaining() < length) {
+			throw new IOException(String.format("Record of %d bytes exceeds the write buffer.", length));
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer, Checksum checksum)
+			throws IOException {
+		buffer.flip();
+		checksum.update(buffer.duplicate());
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+}
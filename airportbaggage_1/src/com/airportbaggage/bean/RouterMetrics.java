@@ -0,0 +1,176 @@
+package com.airportbaggage.bean;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.airportbaggage.metrics.LatencyHistogram;
+import com.airportbaggage.metrics.MetricsSource;
+import com.airportbaggage.metrics.MetricsWriter;
+
+/**
+ * The metrics of a bag router: latency histograms of single routes, batches
+ * and route table builds, counts of routed and unconnected bags, and the size
+ * of the current routing snapshot. Recording is lock-free and costs a few
+ * atomic increments per route, so it is always on.
+ * 
+ * Export them with a {@link com.airportbaggage.metrics.MetricsExporter}.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class RouterMetrics implements MetricsSource {
+
+	private final AtomicReference<RoutingSnapshot> snapshot;
+
+	private final LatencyHistogram routeLatency;
+	private final LatencyHistogram batchLatency;
+	private final LatencyHistogram initializeDuration;
+	private final LatencyHistogram updateDuration;
+
+	private final AtomicLong routedBagCount;
+	private final AtomicLong unconnectedBagCount;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param snapshot
+	 *            The snapshot the router currently answers route requests
+	 *            from.
+	 */
+	RouterMetrics(AtomicReference<RoutingSnapshot> snapshot) {
+		this.snapshot = snapshot;
+		this.routeLatency = new LatencyHistogram();
+		this.batchLatency = new LatencyHistogram();
+		this.initializeDuration = new LatencyHistogram();
+		this.updateDuration = new LatencyHistogram();
+		this.routedBagCount = new AtomicLong();
+		this.unconnectedBagCount = new AtomicLong();
+	}
+
+	/**
+	 * Gets the latencies of single route requests.
+	 * 
+	 * @return The histogram of latencies in nanoseconds.
+	 */
+	public LatencyHistogram getRouteLatency() {
+		return routeLatency;
+	}
+
+	/**
+	 * Gets the latencies of batch route requests, for the whole batch.
+	 * 
+	 * @return The histogram of latencies in nanoseconds.
+	 */
+	public LatencyHistogram getBatchLatency() {
+		return batchLatency;
+	}
+
+	/**
+	 * Gets the durations of the route table builds of initializations.
+	 * 
+	 * @return The histogram of durations in nanoseconds.
+	 */
+	public LatencyHistogram getInitializeDuration() {
+		return initializeDuration;
+	}
+
+	/**
+	 * Gets the durations of the incremental route table updates.
+	 * 
+	 * @return The histogram of durations in nanoseconds.
+	 */
+	public LatencyHistogram getUpdateDuration() {
+		return updateDuration;
+	}
+
+	/**
+	 * Gets the number of bags routed, singly or in batches.
+	 * 
+	 * @return The routed bag count.
+	 */
+	public long getRoutedBagCount() {
+		return routedBagCount.get();
+	}
+
+	/**
+	 * Gets the number of routed bags whose entry point is not connected to
+	 * their destination.
+	 * 
+	 * @return The unconnected bag count.
+	 */
+	public long getUnconnectedBagCount() {
+		return unconnectedBagCount.get();
+	}
+
+	@Override
+	public void writeMetrics(MetricsWriter writer) throws IOException {
+		RoutingSnapshot current = snapshot.get();
+		RouteTable routeTable = current.getRouteTable();
+
+		writer.summary("bag_router_route_seconds", "Latency of single route requests.", routeLatency);
+		writer.summary("bag_router_batch_seconds", "Latency of batch route requests.", batchLatency);
+		writer.summary("bag_router_initialize_seconds", "Duration of route table initializations.",
+				initializeDuration);
+		writer.summary("bag_router_update_seconds", "Duration of incremental route table updates.",
+				updateDuration);
+		writer.counter("bag_router_routed_bags_total", "Bags routed, singly or in batches.", getRoutedBagCount());
+		writer.counter("bag_router_unconnected_bags_total", "Routed bags with no route to their destination.",
+				getUnconnectedBagCount());
+		writer.gauge("bag_router_snapshot_version", "Version of the current routing snapshot.",
+				current.getVersion());
+		writer.gauge("bag_router_baggage_points", "Baggage points of the routed network.",
+				current.getNetwork().size());
+		writer.gauge("bag_router_connections", "One-way connections of the routed network.",
+				current.getNetwork().getConnectionCount());
+		writer.gauge("bag_router_route_table_bytes", "Estimated heap memory of the current route table.",
+				routeTable.getMemoryEstimate());
+
+		if (routeTable instanceof OffHeapRouteTable) {
+			writer.gauge("bag_router_route_table_off_heap_bytes", "Off-heap memory of the current route table.",
+					((OffHeapRouteTable) routeTable).getOffHeapSize());
+		}
+
+		if (routeTable instanceof CachedRouteTable) {
+			CachedRouteTable cachedRouteTable = (CachedRouteTable) routeTable;
+
+			writer.counter("bag_router_cache_hits_total", "Route requests served from the cache.",
+					cachedRouteTable.getHitCount());
+			writer.counter("bag_router_cache_misses_total", "Route requests that searched their source.",
+					cachedRouteTable.getMissCount());
+			writer.counter("bag_router_cache_evictions_total", "Sources evicted from the cache.",
+					cachedRouteTable.getEvictionCount());
+			writer.gauge("bag_router_cache_hit_ratio", "Share of route requests served from the cache.",
+					cachedRouteTable.getHitRate());
+			writer.gauge("bag_router_cache_sources", "Sources whose routes are cached.", cachedRouteTable.getSize());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RouterMetrics[routedBags=%d, unconnectedBags=%d, route=%s, batch=%s]",
+				getRoutedBagCount(), getUnconnectedBagCount(), routeLatency, batchLatency);
+	}
+
+	void recordRoute(long nanoseconds, boolean connected) {
+		routeLatency.record(nanoseconds);
+		routedBagCount.incrementAndGet();
+
+		if (!connected) {
+			unconnectedBagCount.incrementAndGet();
+		}
+	}
+
+	void recordBatch(long nanoseconds, int bagCount, int unconnectedCount) {
+		batchLatency.record(nanoseconds);
+		routedBagCount.addAndGet(bagCount);
+		unconnectedBagCount.addAndGet(unconnectedCount);
+	}
+
+	void recordInitialize(long nanoseconds) {
+		initializeDuration.record(nanoseconds);
+	}
+
+	void recordUpdate(long nanoseconds) {
+		updateDuration.record(nanoseconds);
+	}
+}
\ No newline at end of file
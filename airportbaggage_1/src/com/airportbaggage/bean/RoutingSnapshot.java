@@ -0,0 +1,69 @@
+package com.airportbaggage.bean;
+
+/**
+ * An immutable, versioned view of the conveyer network a bag router routes
+ * against, together with the table of its shortest routes. A route request
+ * reads the current snapshot once and answers entirely from it, so it never
+ * mixes baggage point indexes or routes of two different networks.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RoutingSnapshot {
+
+	/**
+	 * The number of snapshots published before this one
+	 */
+	private final long version;
+
+	/**
+	 * The table holding the shortest routes of the snapshot's network
+	 */
+	private final RouteTable routeTable;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param version
+	 *            The number of snapshots published before this one.
+	 * @param routeTable
+	 *            The table holding the shortest routes of the snapshot's
+	 *            network.
+	 */
+	RoutingSnapshot(long version, RouteTable routeTable) {
+		this.version = version;
+		this.routeTable = routeTable;
+	}
+
+	/**
+	 * Gets the version of the snapshot, which increases with every snapshot
+	 * a router publishes.
+	 * 
+	 * @return The version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the compiled conveyer network of the snapshot.
+	 * 
+	 * @return The compiled conveyer network.
+	 */
+	public CompiledConveyerNetwork getNetwork() {
+		return routeTable.getNetwork();
+	}
+
+	/**
+	 * Gets the table holding the shortest routes of the snapshot's network.
+	 * 
+	 * @return The route table.
+	 */
+	public RouteTable getRouteTable() {
+		return routeTable;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RoutingSnapshot[version=%d, baggagePoints=%d]", version, getNetwork().size());
+	}
+}
\ No newline at end of file
@@ -4,12 +4,19 @@ import java.util.Date;
 
 /**
  * A flight that has been scheduled. The gate and timing information for the
- * flight can be updated after creation.
+ * flight can be updated after creation, and {@link FlightListener}s are
+ * notified when the departure gate or the times change.
  * 
  * @author Shafik Mohammad
  */
 public interface ScheduledFlight extends Flight {
 
+	/**
+	 * The time in milliseconds of a flight that has no departure or arrival
+	 * time.
+	 */
+	long NO_TIME = Long.MIN_VALUE;
+
 	/**
 	 * Gets the gate from where the flight will depart.
 	 * 
@@ -57,6 +64,14 @@ public interface ScheduledFlight extends Flight {
 	 */
 	void setDepartureTime(Date departureTime);
 
+	/**
+	 * Gets the time when the flight will depart, without allocating.
+	 * 
+	 * @return The departure time for the flight, in milliseconds since the
+	 *         epoch, or {@link #NO_TIME} if it has none.
+	 */
+	long getDepartureTimeMillis();
+
 	/**
 	 * Gets the time when the flight will arrive. Implementations should return
 	 * a copy of the member variable to maintain encapsulation.
@@ -73,4 +88,29 @@ public interface ScheduledFlight extends Flight {
 	 *            The arrival time for the flight.
 	 */
 	void setArrivalTime(Date arrivalTime);
+
+	/**
+	 * Gets the time when the flight will arrive, without allocating.
+	 * 
+	 * @return The arrival time for the flight, in milliseconds since the
+	 *         epoch, or {@link #NO_TIME} if it has none.
+	 */
+	long getArrivalTimeMillis();
+
+	/**
+	 * Adds a listener notified when the gate or timing information of the
+	 * flight changes.
+	 * 
+	 * @param flightListener
+	 *            The flight listener.
+	 */
+	void addFlightListener(FlightListener flightListener);
+
+	/**
+	 * Removes a flight listener.
+	 * 
+	 * @param flightListener
+	 *            The flight listener.
+	 */
+	void removeFlightListener(FlightListener flightListener);
 }
\ No newline at end of file
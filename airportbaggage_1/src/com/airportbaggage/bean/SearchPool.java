@@ -0,0 +1,77 @@
+package com.airportbaggage.bean;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of search states, shared by every thread that routes with a
+ * table. A search borrows a state for the duration of one query and returns
+ * it, so the states in memory follow the number of queries running at the
+ * same time rather than the number of threads that ever asked for a route.
+ * Searches never block, so hardly more queries run at once than there are
+ * processors, and that is how many idle states are kept by default; states
+ * returned beyond that are left to the garbage collector.
+ * 
+ * @author Shafik Mohammad
+ */
+final class SearchPool<S> {
+
+	private final ConcurrentLinkedQueue<S> idleStates;
+	private final AtomicInteger idleCount;
+	private final int capacity;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param capacity
+	 *            The maximum number of idle states kept. Must be at least 1.
+	 */
+	SearchPool(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format("Search pool capacity %d must be at least 1.", capacity));
+		}
+
+		this.idleStates = new ConcurrentLinkedQueue<S>();
+		this.idleCount = new AtomicInteger();
+		this.capacity = capacity;
+	}
+
+	/**
+	 * A constructor that keeps one idle state per available processor.
+	 */
+	SearchPool() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Borrows an idle state.
+	 * 
+	 * @return The state, or null if none is idle.
+	 */
+	S borrow() {
+		S state = idleStates.poll();
+
+		if (null != state) {
+			idleCount.decrementAndGet();
+		}
+
+		return state;
+	}
+
+	/**
+	 * Returns a state once its query is done, keeping it if the pool is not
+	 * full.
+	 * 
+	 * @param state
+	 *            The state, no longer used by its query.
+	 */
+	void release(S state) {
+
+		if (idleCount.incrementAndGet() <= capacity) {
+			idleStates.offer(state);
+		} else {
+			idleCount.decrementAndGet();
+		}
+	}
+}
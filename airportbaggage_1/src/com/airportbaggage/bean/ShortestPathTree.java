@@ -0,0 +1,121 @@
+package com.airportbaggage.bean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * The shortest routes from one source baggage point to every other baggage
+ * point of a compiled conveyer network, held as a tree of predecessor indexes
+ * and distances. Routes are only rebuilt as baggage point lists when they are
+ * requested.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class ShortestPathTree {
+
+	private final CompiledConveyerNetwork network;
+	private final int source;
+
+	/**
+	 * distance from the source, indexed by baggage point; infinite if the
+	 * baggage point cannot be reached
+	 */
+	final double[] distances;
+
+	/**
+	 * preceding baggage point on the shortest route from the source, indexed
+	 * by baggage point; -1 for the source and unreachable baggage points
+	 */
+	final int[] predecessors;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param network
+	 *            The compiled conveyer network the tree spans.
+	 * @param source
+	 *            The index of the source baggage point.
+	 * @param distances
+	 *            The distances from the source, indexed by baggage point.
+	 * @param predecessors
+	 *            The predecessors on the shortest routes, indexed by baggage
+	 *            point.
+	 */
+	ShortestPathTree(CompiledConveyerNetwork network, int source, double[] distances, int[] predecessors) {
+		this.network = network;
+		this.source = source;
+		this.distances = distances;
+		this.predecessors = predecessors;
+	}
+
+	/**
+	 * Gets the index of the source baggage point.
+	 * 
+	 * @return The index of the source baggage point.
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * Estimates the heap memory taken by the tree, not counting its network.
+	 * 
+	 * @return The estimated size in bytes.
+	 */
+	long getMemoryEstimate() {
+		return MemoryEstimate.ofObject(3 * MemoryEstimate.REFERENCE + Integer.BYTES)
+				+ MemoryEstimate.ofArray(Double.BYTES, distances.length)
+				+ MemoryEstimate.ofArray(Integer.BYTES, predecessors.length);
+	}
+
+	/**
+	 * Gets the distance of the shortest route to a baggage point.
+	 * 
+	 * @param destination
+	 *            The index of the destination baggage point.
+	 * @return The distance, or infinity if the destination cannot be reached.
+	 */
+	public double getDistance(int destination) {
+		return distances[destination];
+	}
+
+	/**
+	 * Gets the baggage point preceding a destination on its shortest route.
+	 * 
+	 * @param destination
+	 *            The index of the destination baggage point.
+	 * @return The index of the preceding baggage point, or -1 for the source
+	 *         and baggage points that cannot be reached.
+	 */
+	public int getPredecessor(int destination) {
+		return predecessors[destination];
+	}
+
+	/**
+	 * Rebuilds the shortest route to a baggage point other than the source.
+	 * 
+	 * @param destination
+	 *            The index of the destination baggage point.
+	 * @return The shortest route, if the destination can be reached; null,
+	 *         otherwise.
+	 */
+	public ShortestRoute getShortestRoute(int destination) {
+		ShortestRoute shortestRoute = null;
+
+		if (destination != source && predecessors[destination] >= 0) {
+			List<BaggagePoint> path = new ArrayList<BaggagePoint>();
+
+			for (int baggagePoint = destination; baggagePoint >= 0; baggagePoint = predecessors[baggagePoint]) {
+				path.add(network.getBaggagePoint(baggagePoint));
+			}
+			Collections.reverse(path);
+
+			shortestRoute = new ShortestRoute(distances[destination], path);
+		}
+
+		return shortestRoute;
+	}
+}
@@ -0,0 +1,64 @@
+package com.airportbaggage.bean;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * Holds information about the shortest route between two baggage points.
+ * 
+ * @author Shafik Mohammad
+ */
+public class ShortestRoute {
+
+	private final double distance;
+	private final List<BaggagePoint> path;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param distance
+	 *            The total distance of the route.
+	 * @param path
+	 *            The baggage points that form the route, starting with the
+	 *            source and ending with the destination.
+	 */
+	public ShortestRoute(double distance, List<BaggagePoint> path) {
+		this.distance = distance;
+		this.path = path;
+	}
+
+	/**
+	 * Gets the total distance of the route.
+	 * 
+	 * @return The total distance of the route.
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Gets the baggage points that form the route.
+	 * 
+	 * @return The baggage points, starting with the source and ending with the
+	 *         destination.
+	 */
+	public List<BaggagePoint> getPath() {
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer shortestPath = new StringBuffer();
+
+		if (null != path) {
+			for (BaggagePoint baggagePoint : path) {
+				shortestPath.append(String.format("%s ", baggagePoint.getId()));
+			}
+			shortestPath.append(String.format(": %s", new DecimalFormat("0.#").format(distance)));
+		}
+
+		return shortestPath.toString();
+	}
+}
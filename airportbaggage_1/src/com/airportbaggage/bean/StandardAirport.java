@@ -0,0 +1,169 @@
+package com.airportbaggage.bean;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.Gate;
+import com.airportbaggage.bean.ScheduledFlight;
+import com.airportbaggage.bean.StandardGate;
+import com.airportbaggage.bean.StandardScheduledFlight;
+
+/**
+ * A standard airport. Gates are created as scheduled flights referring to them
+ * are added. The airport listens to its scheduled flights, keeps its flight
+ * schedule indexed as they change, and passes the changes on to its own
+ * flight listeners.
+ * 
+ * @author Shafik Mohammad
+ */
+public class StandardAirport implements Airport {
+
+	private static final Logger LOGGER = Logger.getLogger(StandardAirport.class.getName());
+
+	private final String id;
+	private final String name;
+	private final Map<String, ScheduledFlight> scheduledFlights;
+	private final Map<String, Gate> gates;
+	private final Map<String, Airport> destinationAirports;
+	private final FlightSchedule flightSchedule;
+	private final List<FlightListener> flightListeners;
+
+	/**
+	 * Re-indexes changed flights and notifies the airport's listeners
+	 */
+	private final FlightListener scheduledFlightListener = new FlightListener() {
+		@Override
+		public void departureGateChanged(ScheduledFlight scheduledFlight, Gate previousDepartureGate) {
+			flightSchedule.add(scheduledFlight);
+
+			for (FlightListener flightListener : flightListeners) {
+				flightListener.departureGateChanged(scheduledFlight, previousDepartureGate);
+			}
+		}
+
+		@Override
+		public void timesChanged(ScheduledFlight scheduledFlight) {
+			flightSchedule.add(scheduledFlight);
+
+			for (FlightListener flightListener : flightListeners) {
+				flightListener.timesChanged(scheduledFlight);
+			}
+		}
+	};
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param id
+	 *            A String that uniquely identifies the airport.
+	 * @param name
+	 *            A descriptive name for the airport.
+	 */
+	public StandardAirport(String id, String name) {
+
+		this.id = id;
+		this.name = name;
+		this.scheduledFlights = new LinkedHashMap<String, ScheduledFlight>();
+		this.flightSchedule = new FlightSchedule();
+		this.flightListeners = new CopyOnWriteArrayList<FlightListener>();
+		this.gates = new HashMap<String, Gate>();
+		this.destinationAirports = new HashMap<String, Airport>();
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param id
+	 *            A String that uniquely identifies the airport.
+	 */
+	public StandardAirport(String id) {
+		this(id, "");
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Map<String, ScheduledFlight> getScheduledFlights() {
+		return Collections.unmodifiableMap(scheduledFlights);
+	}
+
+	@Override
+	public void addScheduledFlight(String flightId, String departureGateId, String destinationAirportId,
+			Date departureTime) {
+
+		if (scheduledFlights.containsKey(flightId)) {
+			LOGGER.fine("Updating scheduled flight: " + flightId);
+			ScheduledFlight scheduledFlight = scheduledFlights.get(flightId);
+			scheduledFlight.setDepartureGate(addGate(departureGateId));
+			scheduledFlight.setDepartureTime(departureTime);
+		} else {
+			LOGGER.fine("Adding a new scheduled flight: " + flightId);
+			ScheduledFlight scheduledFlight = new StandardScheduledFlight(flightId, this,
+					addDestinationAirport(destinationAirportId), addGate(departureGateId), null, departureTime, null);
+			scheduledFlights.put(flightId, scheduledFlight);
+			flightSchedule.add(scheduledFlight);
+			scheduledFlight.addFlightListener(scheduledFlightListener);
+		}
+	}
+
+	@Override
+	public Gate getGate(String gateId) {
+		return gates.get(gateId);
+	}
+
+	@Override
+	public ScheduledFlight getScheduledFlight(String flightId) {
+		return scheduledFlights.get(flightId);
+	}
+
+	@Override
+	public FlightSchedule getFlightSchedule() {
+		return flightSchedule;
+	}
+
+	@Override
+	public void addFlightListener(FlightListener flightListener) {
+		flightListeners.add(flightListener);
+	}
+
+	@Override
+	public void removeFlightListener(FlightListener flightListener) {
+		flightListeners.remove(flightListener);
+	}
+
+	private Gate addGate(String gateId) {
+		Gate gate = gates.get(gateId);
+
+		if (null == gate) {
+			gate = new StandardGate(gateId);
+			gates.put(gateId, gate);
+		}
+
+		return gate;
+	}
+
+	private Airport addDestinationAirport(String destinationAirportId) {
+		Airport destinationAirport = destinationAirports.get(destinationAirportId);
+
+		if (null == destinationAirport) {
+			destinationAirport = new StandardAirport(destinationAirportId);
+			destinationAirports.put(destinationAirportId, destinationAirport);
+		}
+
+		return destinationAirport;
+	}
+}
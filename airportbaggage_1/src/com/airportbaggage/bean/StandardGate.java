@@ -0,0 +1,31 @@
+package com.airportbaggage.bean;
+
+/**
+ * A standard gate.
+ * 
+ * @author Shafik Mohammad
+ */
+public class StandardGate extends StandardBaggagePoint implements Gate {
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param id
+	 *            A String that uniquely identifies the gate.
+	 * @param name
+	 *            A descriptive name for the gate.
+	 */
+	public StandardGate(String id, String name) {
+		super(id, name);
+	}
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param id
+	 *            A String that uniquely identifies the gate.
+	 */
+	public StandardGate(String id) {
+		super(id);
+	}
+}
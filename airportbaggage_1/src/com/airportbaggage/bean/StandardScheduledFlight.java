@@ -1,6 +1,8 @@
 package com.airportbaggage.bean;
 
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.airportbaggage.bean.Airport;
 import com.airportbaggage.bean.Gate;
@@ -18,8 +20,14 @@ public class StandardScheduledFlight implements ScheduledFlight {
 	private final Airport destination;
 	private Gate departureGate;
 	private Gate arrivalGate;
-	private Date departureTime;
-	private Date arrivalTime;
+
+	/**
+	 * The times in milliseconds since the epoch, held as primitives so reading
+	 * them never allocates
+	 */
+	private long departureTime;
+	private long arrivalTime;
+	private final List<FlightListener> flightListeners;
 
 	/**
 	 * The canonical constructor.
@@ -48,8 +56,9 @@ public class StandardScheduledFlight implements ScheduledFlight {
 		this.destination = destination;
 		this.departureGate = departureGate;
 		this.arrivalGate = arrivalGate;
-		this.departureTime = departureTime;
-		this.arrivalTime = arrivalTime;
+		this.departureTime = toMillis(departureTime);
+		this.arrivalTime = toMillis(arrivalTime);
+		this.flightListeners = new CopyOnWriteArrayList<FlightListener>();
 	}
 
 	/**
@@ -89,7 +98,14 @@ public class StandardScheduledFlight implements ScheduledFlight {
 
 	@Override
 	public void setDepartureGate(Gate departureGate) {
+		Gate previousDepartureGate = this.departureGate;
 		this.departureGate = departureGate;
+
+		if (!isSameGate(previousDepartureGate, departureGate)) {
+			for (FlightListener flightListener : flightListeners) {
+				flightListener.departureGateChanged(this, previousDepartureGate);
+			}
+		}
 	}
 
 	@Override
@@ -104,45 +120,69 @@ public class StandardScheduledFlight implements ScheduledFlight {
 
 	@Override
 	public Date getDepartureTime() {
-		Date date = null;
-
-		if (null != departureTime) {
-			date = new Date(departureTime.getTime());
-		}
-
-		return date;
+		return toDate(departureTime);
 	}
 
 	@Override
 	public void setDepartureTime(Date departureTime) {
-		Date date = null;
+		long previousDepartureTime = this.departureTime;
+		this.departureTime = toMillis(departureTime);
 
-		if (null != departureTime) {
-			date = new Date(departureTime.getTime());
+		if (previousDepartureTime != this.departureTime) {
+			fireTimesChanged();
 		}
+	}
 
-		this.departureTime = date;
+	@Override
+	public long getDepartureTimeMillis() {
+		return departureTime;
 	}
 
 	@Override
 	public Date getArrivalTime() {
-		Date date = null;
+		return toDate(arrivalTime);
+	}
+
+	@Override
+	public void setArrivalTime(Date arrivalTime) {
+		long previousArrivalTime = this.arrivalTime;
+		this.arrivalTime = toMillis(arrivalTime);
 
-		if (null != arrivalTime) {
-			date = new Date(arrivalTime.getTime());
+		if (previousArrivalTime != this.arrivalTime) {
+			fireTimesChanged();
 		}
+	}
 
-		return date;
+	@Override
+	public long getArrivalTimeMillis() {
+		return arrivalTime;
 	}
 
 	@Override
-	public void setArrivalTime(Date arrivalTime) {
-		Date date = null;
+	public void addFlightListener(FlightListener flightListener) {
+		flightListeners.add(flightListener);
+	}
 
-		if (null != arrivalTime) {
-			date = new Date(arrivalTime.getTime());
+	@Override
+	public void removeFlightListener(FlightListener flightListener) {
+		flightListeners.remove(flightListener);
+	}
+
+	private void fireTimesChanged() {
+		for (FlightListener flightListener : flightListeners) {
+			flightListener.timesChanged(this);
 		}
+	}
+
+	private static boolean isSameGate(Gate gate, Gate otherGate) {
+		return null == gate ? null == otherGate : null != otherGate && gate.getId().equals(otherGate.getId());
+	}
+
+	private static long toMillis(Date time) {
+		return null == time ? NO_TIME : time.getTime();
+	}
 
-		this.arrivalTime = date;
+	private static Date toDate(long time) {
+		return NO_TIME == time ? null : new Date(time);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.airportbaggage.bean;
+
+import java.util.Arrays;
+
+/**
+ * An index of slots ordered by time, held as two parallel primitive arrays
+ * sorted by time and then by slot. Lookups are binary searches; inserts and
+ * removals shift the entries after them.
+ * 
+ * @author Shafik Mohammad
+ */
+final class TimeIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] times;
+	private int[] slots;
+	private int size;
+
+	TimeIndex() {
+		times = new long[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY];
+	}
+
+	int size() {
+		return size;
+	}
+
+	long getTime(int position) {
+		return times[position];
+	}
+
+	int getSlot(int position) {
+		return slots[position];
+	}
+
+	/**
+	 * Finds the position of the first entry at or after a time.
+	 */
+	int ceiling(long time) {
+		return search(time, Integer.MIN_VALUE);
+	}
+
+	void insert(long time, int slot) {
+		int position = search(time, slot);
+
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			slots = Arrays.copyOf(slots, size * 2);
+		}
+
+		System.arraycopy(times, position, times, position + 1, size - position);
+		System.arraycopy(slots, position, slots, position + 1, size - position);
+		times[position] = time;
+		slots[position] = slot;
+		size++;
+	}
+
+	boolean remove(long time, int slot) {
+		int position = search(time, slot);
+		boolean found = position < size && times[position] == time && slots[position] == slot;
+
+		if (found) {
+			System.arraycopy(times, position + 1, times, position, size - position - 1);
+			System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+			size--;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds the position of the first entry not before a time and slot.
+	 */
+	private int search(long time, int slot) {
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (times[middle] < time || (times[middle] == time && slots[middle] < slot)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+}
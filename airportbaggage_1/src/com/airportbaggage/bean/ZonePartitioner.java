@@ -0,0 +1,19 @@
+package com.airportbaggage.bean;
+
+/**
+ * Assigns the baggage points of a conveyer network to zones, such as
+ * terminals or concourses, for a {@link PartitionedRouteTable}.
+ * 
+ * @author Shafik Mohammad
+ */
+public interface ZonePartitioner {
+
+	/**
+	 * Gets the zone a baggage point belongs to.
+	 * 
+	 * @param baggagePoint
+	 *            The baggage point.
+	 * @return A String that uniquely identifies the zone.
+	 */
+	String getZoneId(BaggagePoint baggagePoint);
+}
\ No newline at end of file
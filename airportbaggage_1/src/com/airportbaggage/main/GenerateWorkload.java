@@ -0,0 +1,56 @@
+package com.airportbaggage.main;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+import com.airportbaggage.util.WorkloadGenerator;
+
+/**
+ * Writes a synthetic workload in the input file format, for load and
+ * performance testing.
+ * 
+ * Usage: GenerateWorkload output-file [bag-count [seed [baggage-point-count
+ * [flight-count]]]]
+ * 
+ * @author Shafik Mohammad
+ */
+public class GenerateWorkload {
+
+	static final Logger LOGGER = Logger.getLogger(GenerateWorkload.class.getName());
+
+	private static final long DEFAULT_SEED = 1L;
+
+	/**
+	 * @param args
+	 *            The output file, then optionally the bag count, the seed, the
+	 *            baggage point count and the flight count.
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 1) {
+			LOGGER.severe("Usage: GenerateWorkload output-file [bag-count [seed [baggage-point-count [flight-count]]]]");
+			return;
+		}
+
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator(args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED);
+
+			if (args.length > 1) {
+				generator.setBagCount(Long.parseLong(args[1]));
+			}
+			if (args.length > 3) {
+				generator.setBaggagePointCount(Integer.parseInt(args[3]));
+			}
+			if (args.length > 4) {
+				generator.setFlightCount(Integer.parseInt(args[4]));
+			}
+
+			generator.generate(Paths.get(args[0]));
+		} catch (IOException e) {
+			LOGGER.severe("Could not write the workload. " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			LOGGER.severe("Could not generate the workload. " + e.getMessage());
+		}
+	}
+}
\ No newline at end of file
@@ -2,9 +2,9 @@ package com.airportbaggage.main;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Scanner;
 import java.util.logging.Logger;
 
 import com.airportbaggage.util.InputFileProcessing;
@@ -19,38 +19,42 @@ public class MainClass {
 
 	private static final String INPUT_FILE = "input.txt"; // Externalize later to a properties files
 	private static final String OUTPUT_FILE = "output.txt";
+	private static final String DEADLINE_ORDER = "deadline";
 	static final Logger LOGGER = Logger.getLogger(MainClass.class.getName());
 	
 	/**
 	 * @param args
+	 *            Optionally the input file, then the order of the output:
+	 *            "deadline" lists the bags in the order they must be
+	 *            dispatched, least slack before departure first; otherwise
+	 *            bags are listed in input order.
 	 */
 	public static void main(String[] args) {
 
-		// 1.Read the complete input file 
-		Scanner scanner = new Scanner( MainClass.class.getResourceAsStream(INPUT_FILE));
-		String inputString = new String();
-		while(scanner.hasNextLine()){
-			inputString = inputString + scanner.nextLine();
-		}
-		System.out.println("inputString data: " + inputString); // <TODO> - Remove SOPs
-		LOGGER.fine("inputString data: " + inputString);
-		
-		// 2. Check if the input file data is not empty, invoke the process method 
-		if (inputString != null) {
-			InputFileProcessing processor = new InputFileProcessing();
-			try {
-				processor.processInputFile(inputString);
-			} catch (Exception e) {
-				LOGGER.severe("Could not inputFileReader the conveyor system. " + e.getMessage());
-			}
-			try {
-				Files.write(Paths.get(new File("").getAbsolutePath().concat(OUTPUT_FILE)),
-						processor.routeBags().getBytes());
-			} catch (IOException e) {
-				//LOGGER.severe("Could not write output data. " + e.getMessage());
-			} catch (Exception e) {
-				LOGGER.severe("Could not route the bags. " + e.getMessage());
+		// 1. Stream the input file, from the path given as the first argument or
+		// the bundled input file
+		InputFileProcessing processor = new InputFileProcessing();
+		try {
+			if (args.length > 0) {
+				processor.processInputFile(Paths.get(args[0]));
+			} else {
+				try (InputStream inputStream = MainClass.class.getResourceAsStream(INPUT_FILE)) {
+					processor.processInputFile(inputStream);
+				}
 			}
+		} catch (Exception e) {
+			LOGGER.severe("Could not inputFileReader the conveyor system. " + e.getMessage());
+		}
+
+		// 2. Route the bags of the processed input
+		try {
+			Files.write(Paths.get(new File("").getAbsolutePath().concat(OUTPUT_FILE)),
+					(args.length > 1 && DEADLINE_ORDER.equals(args[1]) ? processor.routeBagsByDeadline()
+							: processor.routeBags()).getBytes());
+		} catch (IOException e) {
+			//LOGGER.severe("Could not write output data. " + e.getMessage());
+		} catch (Exception e) {
+			LOGGER.severe("Could not route the bags. " + e.getMessage());
 		}
 	}
 
@@ -0,0 +1,68 @@
+package com.airportbaggage.main;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.server.RoutingServer;
+import com.airportbaggage.util.InputFileProcessing;
+
+/**
+ * Runs a routing server on the loopback address for the conveyor system and
+ * departures of an input file, until the process is stopped.
+ * 
+ * Usage: RoutingService input-file [port [parallelism]]
+ * 
+ * @author Shafik Mohammad
+ */
+public class RoutingService {
+
+	static final Logger LOGGER = Logger.getLogger(RoutingService.class.getName());
+
+	private static final int DEFAULT_PORT = 7070;
+
+	/**
+	 * @param args
+	 *            The input file, then optionally the port and the number of
+	 *            threads computing routes.
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 1) {
+			LOGGER.severe("Usage: RoutingService input-file [port [parallelism]]");
+			return;
+		}
+
+		try {
+			InputFileProcessing processor = new InputFileProcessing();
+			processor.processInputFile(Paths.get(args[0]));
+
+			BagRouter bagRouter = new BagRouter(
+					args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+			bagRouter.initialize(processor.getConveyerNetwork().compile());
+
+			final RoutingServer server = new RoutingServer(processor, bagRouter,
+					args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						server.close();
+					} catch (IOException e) {
+						LOGGER.warning("Could not close the routing server. " + e.getMessage());
+					}
+				}
+			}));
+
+			server.awaitClose();
+		} catch (IOException e) {
+			LOGGER.severe("Could not start the routing server. " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			LOGGER.severe("Could not start the routing server. " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
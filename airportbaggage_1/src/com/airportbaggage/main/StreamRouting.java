@@ -0,0 +1,115 @@
+package com.airportbaggage.main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.pipeline.RoutingInstruction;
+import com.airportbaggage.pipeline.ScanPipeline;
+import com.airportbaggage.util.InputFileProcessing;
+
+/**
+ * Routes the bags of an input file by streaming its bag list through a scan
+ * pipeline, writing each routing instruction as soon as it is made. Only a
+ * few batches of scans and instructions are held at a time, instead of the
+ * routes of every bag until the end of the input.
+ * 
+ * Usage: StreamRouting input-file [output-file]
+ * 
+ * @author Shafik Mohammad
+ */
+public class StreamRouting {
+
+	static final Logger LOGGER = Logger.getLogger(StreamRouting.class.getName());
+
+	/**
+	 * @param args
+	 *            The input file, then optionally the output file; instructions
+	 *            are written to the standard output otherwise.
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 1) {
+			LOGGER.severe("Usage: StreamRouting input-file [output-file]");
+			return;
+		}
+
+		try (Writer output = new BufferedWriter(args.length > 1 ? Files.newBufferedWriter(Paths.get(args[1]))
+				: new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+			final InputFileProcessing processor = new InputFileProcessing();
+			final BagRouter bagRouter = new BagRouter(Runtime.getRuntime().availableProcessors());
+			final ScanPipeline pipeline = new ScanPipeline(processor, bagRouter, new InstructionWriter(output));
+
+			// the conveyor system and departures precede the bag list, so the
+			// router is initialized with the first bag
+			processor.processInputFile(Paths.get(args[0]), new Consumer<String>() {
+				private boolean initialized;
+
+				@Override
+				public void accept(String scan) {
+					if (!initialized) {
+						bagRouter.initialize(processor.getConveyerNetwork().compile());
+						initialized = true;
+					}
+
+					pipeline.submit(scan);
+				}
+			});
+
+			pipeline.close();
+		} catch (IOException e) {
+			LOGGER.severe("Could not route the bags. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes each routing instruction as a line of the output file
+	 */
+	private static class InstructionWriter implements Flow.Subscriber<RoutingInstruction> {
+
+		private final Writer output;
+
+		InstructionWriter(Writer output) {
+			this.output = output;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(RoutingInstruction instruction) {
+			try {
+				output.write(instruction.toString());
+				output.write('\n');
+			} catch (IOException e) {
+				// fails the pipeline, so closing it reports the error
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			LOGGER.severe("Could not route the bags. " + throwable.getMessage());
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				output.flush();
+			} catch (IOException e) {
+				LOGGER.severe("Could not write the routing instructions. " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.airportbaggage.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event spanning the initialization or update of the
+ * routes of a bag router, so route table builds can be lined up with garbage
+ * collections and latency spikes in a recording.
+ * 
+ * @author Shafik Mohammad
+ */
+@Name("com.airportbaggage.Initialize")
+@Label("Route Table Initialize")
+@Category({ "Airport Baggage", "Routing" })
+@Description("Computes the routes of a conveyer network and publishes them as a new snapshot")
+public class InitializeEvent extends Event {
+
+	@Label("Route Table")
+	private String routeTable;
+
+	@Label("Baggage Points")
+	private int baggagePointCount;
+
+	@Label("Connections")
+	private int connectionCount;
+
+	@Label("Incremental")
+	@Description("Whether only the routes affected by a changed connection were recomputed")
+	private boolean incremental;
+
+	@Label("Snapshot Version")
+	private long version;
+
+	public void setRouteTable(String routeTable) {
+		this.routeTable = routeTable;
+	}
+
+	public void setBaggagePointCount(int baggagePointCount) {
+		this.baggagePointCount = baggagePointCount;
+	}
+
+	public void setConnectionCount(int connectionCount) {
+		this.connectionCount = connectionCount;
+	}
+
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.airportbaggage.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets, in the
+ * manner of HdrHistogram: every power of two is split into 32 linear
+ * sub-buckets, so any recorded value, and any percentile, is reported within
+ * about 3% of its true value from 0 to hundreds of years, in a fixed 15 KB.
+ * 
+ * Values are recorded without locks by any number of threads. Reads are not
+ * atomic across buckets, so a percentile read while values are being recorded
+ * may or may not count the latest of them.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong totalCount;
+	private final AtomicLong totalValue;
+	private final AtomicLong maxValue;
+
+	/**
+	 * The default constructor.
+	 */
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(BUCKET_COUNT);
+		totalCount = new AtomicLong();
+		totalValue = new AtomicLong();
+		maxValue = new AtomicLong();
+	}
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanoseconds
+	 *            The latency in nanoseconds. Negative latencies, from clocks
+	 *            stepping back, are recorded as 0.
+	 */
+	public void record(long nanoseconds) {
+		long value = Math.max(0L, nanoseconds);
+
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+
+		long max = maxValue.get();
+
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+	/**
+	 * Gets the number of recorded latencies.
+	 * 
+	 * @return The count.
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Gets the sum of the recorded latencies.
+	 * 
+	 * @return The sum in nanoseconds.
+	 */
+	public long getTotal() {
+		return totalValue.get();
+	}
+
+	/**
+	 * Gets the largest recorded latency, exactly.
+	 * 
+	 * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getMax() {
+		return maxValue.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded latencies.
+	 * 
+	 * @return The mean in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public double getMean() {
+		long count = totalCount.get();
+
+		return 0 == count ? 0d : (double) totalValue.get() / count;
+	}
+
+	/**
+	 * Gets the latency at a percentile: the largest latency in the bucket
+	 * holding that share of the recorded latencies, capped at the maximum.
+	 * 
+	 * @param percentile
+	 *            The percentile, between 0 and 100, e.g. 99.9.
+	 * @return The latency in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+
+		if (!(percentile >= 0d && percentile <= 100d)) {
+			throw new IllegalArgumentException(String.format("Percentile %s must be between 0 and 100.", percentile));
+		}
+
+		long count = totalCount.get();
+		long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+		long seen = 0L;
+
+		for (int index = 0; index < BUCKET_COUNT && count > 0; index++) {
+			seen += counts.get(index);
+
+			if (seen >= rank) {
+				return Math.min(highestValueOf(index), maxValue.get());
+			}
+		}
+
+		return maxValue.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LatencyHistogram[count=%d, mean=%.0f, p50=%d, p99=%d, max=%d]", getCount(), getMean(),
+				getValueAtPercentile(50d), getValueAtPercentile(99d), getMax());
+	}
+
+	/**
+	 * Gets the bucket of a value: values below the sub-bucket count have a
+	 * bucket each, larger values share a bucket with those agreeing in the
+	 * five bits after their leading one.
+	 */
+	static int indexOf(long value) {
+
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+	}
+
+	/**
+	 * Gets the largest value that falls into a bucket.
+	 */
+	static long highestValueOf(int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		long lowestValue = (long) (SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT) << shift;
+
+		return lowestValue + (1L << shift) - 1;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.airportbaggage.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports the metrics of a component in the Prometheus text format, to an
+ * HTTP endpoint that is scraped, to a file that is rewritten periodically for
+ * an agent to pick up, or both.
+ * 
+ * The endpoint and the file are served by daemon threads of their own, never
+ * by the threads doing the work being measured.
+ * 
+ * @author Shafik Mohammad
+ */
+public class MetricsExporter implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(MetricsExporter.class.getName());
+
+	private static final String METRICS_PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final MetricsSource source;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private ScheduledExecutorService fileWriter;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param source
+	 *            The component whose metrics are exported.
+	 */
+	public MetricsExporter(MetricsSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * Gets the current metrics.
+	 * 
+	 * @return The metrics in the Prometheus text format.
+	 */
+	public String scrape() {
+		StringBuilder output = new StringBuilder();
+
+		try {
+			source.writeMetrics(new MetricsWriter(output));
+		} catch (IOException e) {
+			// a StringBuilder never fails to append
+			throw new IllegalStateException(e);
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * Writes the current metrics to a file. The file is replaced at once, so
+	 * readers never see it half written.
+	 * 
+	 * @param file
+	 *            The path of the file.
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		Path absoluteFile = file.toAbsolutePath();
+		Path temporaryFile = absoluteFile.resolveSibling(absoluteFile.getFileName() + ".tmp");
+
+		Files.write(temporaryFile, scrape().getBytes(StandardCharsets.UTF_8));
+		Files.move(temporaryFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Starts rewriting the metrics to a file at a fixed period.
+	 * 
+	 * @param file
+	 *            The path of the file.
+	 * @param period
+	 *            The period between writes.
+	 * @param unit
+	 *            The unit of the period.
+	 */
+	public synchronized void startFile(final Path file, long period, TimeUnit unit) {
+
+		if (null != fileWriter) {
+			throw new IllegalStateException("Metrics are already written to a file.");
+		}
+
+		fileWriter = Executors.newSingleThreadScheduledExecutor(daemonThreads("metrics-file"));
+		fileWriter.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write(file);
+				} catch (IOException e) {
+					LOGGER.warning("Could not write metrics to " + file + ". " + e.getMessage());
+				}
+			}
+		}, 0L, period, unit);
+	}
+
+	/**
+	 * Starts serving the metrics over HTTP, at the /metrics path.
+	 * 
+	 * @param address
+	 *            The address to listen on; port 0 picks a free port.
+	 * @return The address the endpoint listens on.
+	 * @throws IOException
+	 *             if the address cannot be bound
+	 */
+	public synchronized InetSocketAddress startEndpoint(InetSocketAddress address) throws IOException {
+
+		if (null != server) {
+			throw new IllegalStateException("Metrics are already served.");
+		}
+
+		server = HttpServer.create(address, 0);
+		serverExecutor = Executors.newSingleThreadExecutor(daemonThreads("metrics-endpoint"));
+		server.setExecutor(serverExecutor);
+		server.createContext(METRICS_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, body.length);
+
+				try (OutputStream responseBody = exchange.getResponseBody()) {
+					responseBody.write(body);
+				}
+			}
+		});
+		server.start();
+		LOGGER.info("Serving metrics at http://" + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + METRICS_PATH);
+
+		return server.getAddress();
+	}
+
+	/**
+	 * Stops serving the metrics and writing them to a file.
+	 */
+	@Override
+	public synchronized void close() {
+
+		if (null != server) {
+			server.stop(0);
+			serverExecutor.shutdownNow();
+			server = null;
+			serverExecutor = null;
+		}
+
+		if (null != fileWriter) {
+			fileWriter.shutdownNow();
+			fileWriter = null;
+		}
+	}
+
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+
+				return thread;
+			}
+		};
+	}
+}
\ No newline at end of file
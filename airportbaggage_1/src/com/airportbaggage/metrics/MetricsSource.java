@@ -0,0 +1,21 @@
+package com.airportbaggage.metrics;
+
+import java.io.IOException;
+
+/**
+ * A component whose metrics can be exported by a {@link MetricsExporter}.
+ * 
+ * @author Shafik Mohammad
+ */
+public interface MetricsSource {
+
+	/**
+	 * Writes the current value of every metric of the component.
+	 * 
+	 * @param writer
+	 *            The writer of the exported metrics.
+	 * @throws IOException
+	 *             if the metrics cannot be written
+	 */
+	void writeMetrics(MetricsWriter writer) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.airportbaggage.metrics;
+
+import java.io.IOException;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, which dashboards
+ * and agents scrape from an endpoint or read from a file. Latencies are
+ * written in seconds, as summaries with their percentiles as quantiles.
+ * 
+ * @author Shafik Mohammad
+ */
+public final class MetricsWriter {
+
+	private static final double NANOSECONDS_PER_SECOND = 1e9d;
+	private static final double[] PERCENTILES = { 50d, 90d, 99d, 99.9d };
+	private static final String[] QUANTILES = { "0.5", "0.9", "0.99", "0.999" };
+
+	private final Appendable output;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param output
+	 *            The output the metrics are written to.
+	 */
+	public MetricsWriter(Appendable output) {
+		this.output = output;
+	}
+
+	/**
+	 * Writes a counter, a value that only grows.
+	 * 
+	 * @param name
+	 *            The name of the metric, e.g. bag_router_routes_total.
+	 * @param help
+	 *            A description of the metric.
+	 * @param value
+	 *            The value.
+	 * @throws IOException
+	 *             if the metric cannot be written
+	 */
+	public void counter(String name, String help, long value) throws IOException {
+		header(name, help, "counter");
+		output.append(name).append(' ').append(Long.toString(value)).append('\n');
+	}
+
+	/**
+	 * Writes a gauge, a value that goes up and down.
+	 * 
+	 * @param name
+	 *            The name of the metric, e.g. bag_router_baggage_points.
+	 * @param help
+	 *            A description of the metric.
+	 * @param value
+	 *            The value.
+	 * @throws IOException
+	 *             if the metric cannot be written
+	 */
+	public void gauge(String name, String help, double value) throws IOException {
+		header(name, help, "gauge");
+		output.append(name).append(' ').append(format(value)).append('\n');
+	}
+
+	/**
+	 * Writes the 50th, 90th, 99th and 99.9th percentiles, count and sum of a
+	 * latency histogram as a summary in seconds.
+	 * 
+	 * @param name
+	 *            The name of the metric, e.g. bag_router_route_seconds.
+	 * @param help
+	 *            A description of the metric.
+	 * @param histogram
+	 *            The histogram of latencies in nanoseconds.
+	 * @throws IOException
+	 *             if the metric cannot be written
+	 */
+	public void summary(String name, String help, LatencyHistogram histogram) throws IOException {
+		header(name, help, "summary");
+
+		for (int quantile = 0; quantile < QUANTILES.length; quantile++) {
+			output.append(name).append("{quantile=\"").append(QUANTILES[quantile]).append("\"} ")
+					.append(format(histogram.getValueAtPercentile(PERCENTILES[quantile]) / NANOSECONDS_PER_SECOND))
+					.append('\n');
+		}
+
+		output.append(name).append("_count ").append(Long.toString(histogram.getCount())).append('\n');
+		output.append(name).append("_sum ").append(format(histogram.getTotal() / NANOSECONDS_PER_SECOND))
+				.append('\n');
+	}
+
+	private void header(String name, String help, String type) throws IOException {
+		output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static String format(double value) {
+		String formatted;
+
+		if (Double.isNaN(value)) {
+			formatted = "NaN";
+		} else if (Double.isInfinite(value)) {
+			formatted = value > 0 ? "+Inf" : "-Inf";
+		} else if (value == Math.rint(value) && Math.abs(value) < 1e15d) {
+			formatted = Long.toString((long) value);
+		} else {
+			formatted = Double.toString(value);
+		}
+
+		return formatted;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.airportbaggage.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event spanning the routing of a batch of bags by a
+ * bag router.
+ * 
+ * @author Shafik Mohammad
+ */
+@Name("com.airportbaggage.RouteBatch")
+@Label("Route Batch")
+@Category({ "Airport Baggage", "Routing" })
+@Description("Routes a batch of bags against one routing snapshot")
+public class RouteBatchEvent extends Event {
+
+	@Label("Route Table")
+	private String routeTable;
+
+	@Label("Bags")
+	private int bagCount;
+
+	@Label("Unconnected Bags")
+	private int unconnectedCount;
+
+	@Label("Snapshot Version")
+	private long version;
+
+	public void setRouteTable(String routeTable) {
+		this.routeTable = routeTable;
+	}
+
+	public void setBagCount(int bagCount) {
+		this.bagCount = bagCount;
+	}
+
+	public void setUnconnectedCount(int unconnectedCount) {
+		this.unconnectedCount = unconnectedCount;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.airportbaggage.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stage that groups items into batches, so the stages after it pay their
+ * per-item overhead, such as a hand-off between threads or a route lookup,
+ * once per batch. A batch is published when it is full, and otherwise once
+ * per linger period, so items do not wait long for a batch to fill while
+ * scans are sparse.
+ * 
+ * @author Shafik Mohammad
+ */
+class MicroBatcher<T> extends PipelineStage<T, List<T>> {
+
+	private final int batchSize;
+	private final ScheduledFuture<?> lingerFlush;
+	private List<T> batch;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param executor
+	 *            The executor delivering the batches to the next stage.
+	 * @param bufferCapacity
+	 *            The maximum number of batches held for the next stage.
+	 * @param batchSize
+	 *            The maximum number of items per batch.
+	 * @param scheduler
+	 *            The scheduler publishing partial batches.
+	 * @param lingerMillis
+	 *            The period at which partial batches are published, in
+	 *            milliseconds.
+	 */
+	MicroBatcher(Executor executor, int bufferCapacity, int batchSize, ScheduledExecutorService scheduler,
+			long lingerMillis) {
+		super("batch", executor, bufferCapacity);
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<T>(batchSize);
+		this.lingerFlush = scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				flush();
+			}
+		}, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	protected synchronized void process(T item) {
+		batch.add(item);
+
+		if (batch.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	@Override
+	protected void finish() {
+		lingerFlush.cancel(false);
+		flush();
+	}
+
+	private synchronized void flush() {
+
+		if (!batch.isEmpty() && !isClosed()) {
+			List<T> fullBatch = batch;
+			batch = new ArrayList<T>(batchSize);
+			submit(fullBatch);
+		}
+	}
+}
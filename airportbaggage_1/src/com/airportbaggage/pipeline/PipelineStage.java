@@ -0,0 +1,85 @@
+package com.airportbaggage.pipeline;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.logging.Logger;
+
+/**
+ * A stage of a pipeline: it subscribes to the stage before it and publishes
+ * what it makes of each item to the stage after it. Items are requested one
+ * at a time, and publishing blocks while the next stage's buffer is full, so
+ * a slow stage holds back every stage before it instead of letting items pile
+ * up.
+ * 
+ * @author Shafik Mohammad
+ */
+abstract class PipelineStage<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O> {
+
+	private static final Logger LOGGER = Logger.getLogger(PipelineStage.class.getName());
+
+	private final String name;
+	private Flow.Subscription subscription;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param name
+	 *            The name of the stage, for logging.
+	 * @param executor
+	 *            The executor delivering the published items to the next
+	 *            stage.
+	 * @param bufferCapacity
+	 *            The maximum number of published items held for the next
+	 *            stage, rounded up to a power of two.
+	 */
+	PipelineStage(String name, Executor executor, int bufferCapacity) {
+		super(executor, bufferCapacity);
+		this.name = name;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(1);
+	}
+
+	@Override
+	public void onNext(I item) {
+
+		try {
+			process(item);
+		} catch (RuntimeException e) {
+			// one bad item must not stop the stream
+			LOGGER.warning("Stage " + name + " could not process an item. " + e.getMessage());
+		}
+
+		subscription.request(1);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		LOGGER.severe("Stage " + name + " received an error. " + throwable.getMessage());
+		closeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		finish();
+		close();
+	}
+
+	/**
+	 * Processes an item, publishing any number of items to the next stage.
+	 * 
+	 * @param item
+	 *            The item received from the stage before.
+	 */
+	protected abstract void process(I item);
+
+	/**
+	 * Publishes what the stage still holds once the stage before completed.
+	 */
+	protected void finish() {
+	}
+}
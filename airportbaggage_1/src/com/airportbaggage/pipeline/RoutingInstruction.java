@@ -0,0 +1,55 @@
+package com.airportbaggage.pipeline;
+
+import com.airportbaggage.bean.CheckedBag;
+
+/**
+ * The route a scanned bag has to take to the departure gate of its flight.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RoutingInstruction {
+
+	private final CheckedBag bag;
+	private final String route;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param bag
+	 *            The routed bag.
+	 * @param route
+	 *            A String holding a delimiter-separated list of baggage points
+	 *            that forms the shortest route.
+	 */
+	public RoutingInstruction(CheckedBag bag, String route) {
+		this.bag = bag;
+		this.route = route;
+	}
+
+	/**
+	 * Gets the routed bag.
+	 * 
+	 * @return The bag.
+	 */
+	public CheckedBag getBag() {
+		return bag;
+	}
+
+	/**
+	 * Gets the route of the bag.
+	 * 
+	 * @return A String holding a delimiter-separated list of baggage points
+	 *         that forms the shortest route.
+	 */
+	public String getRoute() {
+		return route;
+	}
+
+	/**
+	 * Formats the instruction as a line of the output file.
+	 */
+	@Override
+	public String toString() {
+		return bag.getId() + ' ' + route;
+	}
+}
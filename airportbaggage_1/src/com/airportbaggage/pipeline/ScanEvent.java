@@ -0,0 +1,19 @@
+package com.airportbaggage.pipeline;
+
+/**
+ * A bag scanned at a baggage point, as parsed from a scan line.
+ * 
+ * @author Shafik Mohammad
+ */
+final class ScanEvent {
+
+	final String bagId;
+	final String entryPointId;
+	final String flightId;
+
+	ScanEvent(String bagId, String entryPointId, String flightId) {
+		this.bagId = bagId;
+		this.entryPointId = entryPointId;
+		this.flightId = flightId;
+	}
+}
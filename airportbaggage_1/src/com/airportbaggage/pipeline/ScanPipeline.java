@@ -0,0 +1,347 @@
+package com.airportbaggage.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.CompiledConveyerNetwork;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.bean.ScheduledFlight;
+import com.airportbaggage.metrics.MetricsSource;
+import com.airportbaggage.metrics.MetricsWriter;
+import com.airportbaggage.util.InputFileProcessing;
+
+/**
+ * A continuous pipeline from bag scans to routing instructions. Scan lines, in
+ * the format of the input file's bag list, flow through bounded stages:
+ * 
+ * <pre>
+ * batch -> parse -> register -> route -> instructions
+ * </pre>
+ * 
+ * Scans are grouped into micro-batches first, so every later stage hands
+ * over, and the router looks up the shortest path tree of each entry point,
+ * once per batch rather than once per scan. Each stage holds at most a few
+ * batches for the next one, and {@link #submit(String)} blocks while the first
+ * stage is full, so a burst of scans is held back at the scanners instead of
+ * piling up in memory.
+ * 
+ * Bags are registered in the in-memory conveyer network and routed against
+ * the current snapshot of the bag router, which has to be initialized before
+ * scans are submitted. Scans naming an unknown baggage point or flight, or a
+ * flight whose departure gate is not in the network, are logged and dropped.
+ * 
+ * @author Shafik Mohammad
+ */
+public class ScanPipeline implements Closeable, MetricsSource {
+
+	private static final Logger LOGGER = Logger.getLogger(ScanPipeline.class.getName());
+
+	private static final int DEFAULT_BATCH_SIZE = 256;
+	private static final long DEFAULT_LINGER_MILLIS = 10L;
+	private static final int DEFAULT_BUFFER_CAPACITY = 4;
+
+	private final InputFileProcessing processor;
+	private final ConveyerNetwork conveyerNetwork;
+	private final BagRouter bagRouter;
+
+	private final ExecutorService executor;
+	private final ScheduledExecutorService scheduler;
+	private final SubmissionPublisher<String> scans;
+	private final CompletableFuture<Void> completion;
+
+	private final AtomicLong scanCount;
+	private final AtomicLong rejectedCount;
+	private final AtomicLong routedCount;
+
+	/**
+	 * The canonical constructor. Starts the stages.
+	 * 
+	 * @param processor
+	 *            The input file processing holding the conveyer network and
+	 *            the scheduled flights.
+	 * @param bagRouter
+	 *            The bag router, initialized with the conveyer network.
+	 * @param instructions
+	 *            The subscriber receiving a routing instruction for every
+	 *            registered bag.
+	 * @param batchSize
+	 *            The maximum number of scans per micro-batch. Must be at least
+	 *            1.
+	 * @param lingerMillis
+	 *            The period at which partial micro-batches are passed on, in
+	 *            milliseconds. Must be at least 1.
+	 * @param bufferCapacity
+	 *            The maximum number of micro-batches each stage holds for the
+	 *            next one. Must be at least 1.
+	 */
+	public ScanPipeline(InputFileProcessing processor, BagRouter bagRouter,
+			Flow.Subscriber<? super RoutingInstruction> instructions, int batchSize, long lingerMillis,
+			int bufferCapacity) {
+
+		if (batchSize < 1 || lingerMillis < 1 || bufferCapacity < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Batch size %d, linger %d ms and buffer capacity %d must be at least 1.", batchSize,
+					lingerMillis, bufferCapacity));
+		}
+
+		this.processor = processor;
+		this.conveyerNetwork = processor.getConveyerNetwork();
+		this.bagRouter = bagRouter;
+		this.scanCount = new AtomicLong();
+		this.rejectedCount = new AtomicLong();
+		this.routedCount = new AtomicLong();
+		this.completion = new CompletableFuture<Void>();
+
+		this.executor = Executors.newCachedThreadPool(newThreadFactory("scan-pipeline-"));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory("scan-pipeline-linger-"));
+
+		MicroBatcher<String> batcher = new MicroBatcher<String>(executor, bufferCapacity, batchSize, scheduler,
+				lingerMillis);
+		PipelineStage<List<String>, List<ScanEvent>> parser = new PipelineStage<List<String>, List<ScanEvent>>(
+				"parse", executor, bufferCapacity) {
+			@Override
+			protected void process(List<String> lines) {
+				List<ScanEvent> scanEvents = parse(lines);
+
+				if (!scanEvents.isEmpty()) {
+					submit(scanEvents);
+				}
+			}
+		};
+		PipelineStage<List<ScanEvent>, List<CheckedBag>> registrar = new PipelineStage<List<ScanEvent>, List<CheckedBag>>(
+				"register", executor, bufferCapacity) {
+			@Override
+			protected void process(List<ScanEvent> scanEvents) {
+				List<CheckedBag> bags = register(scanEvents);
+
+				if (!bags.isEmpty()) {
+					submit(bags);
+				}
+			}
+		};
+		PipelineStage<List<CheckedBag>, RoutingInstruction> router = new PipelineStage<List<CheckedBag>, RoutingInstruction>(
+				"route", executor, batchSize) {
+			@Override
+			protected void process(List<CheckedBag> bags) {
+				for (Map.Entry<CheckedBag, String> route : ScanPipeline.this.bagRouter.route(bags).entrySet()) {
+					submit(new RoutingInstruction(route.getKey(), route.getValue()));
+				}
+
+				routedCount.addAndGet(bags.size());
+			}
+		};
+
+		this.scans = new SubmissionPublisher<String>(executor, batchSize);
+		scans.subscribe(batcher);
+		batcher.subscribe(parser);
+		parser.subscribe(registrar);
+		registrar.subscribe(router);
+		router.subscribe(new CompletingSubscriber(instructions));
+	}
+
+	/**
+	 * A constructor with default batching and buffering.
+	 * 
+	 * @param processor
+	 *            The input file processing holding the conveyer network and
+	 *            the scheduled flights.
+	 * @param bagRouter
+	 *            The bag router, initialized with the conveyer network.
+	 * @param instructions
+	 *            The subscriber receiving a routing instruction for every
+	 *            registered bag.
+	 */
+	public ScanPipeline(InputFileProcessing processor, BagRouter bagRouter,
+			Flow.Subscriber<? super RoutingInstruction> instructions) {
+		this(processor, bagRouter, instructions, DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MILLIS, DEFAULT_BUFFER_CAPACITY);
+	}
+
+	/**
+	 * Submits a bag scan, blocking while the pipeline is full.
+	 * 
+	 * @param scan
+	 *            A line holding the bag id, the id of the baggage point where
+	 *            the bag was scanned and the flight id, separated by
+	 *            whitespace.
+	 */
+	public void submit(String scan) {
+		scans.submit(scan);
+		scanCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of scans submitted.
+	 * 
+	 * @return The scan count.
+	 */
+	public long getScanCount() {
+		return scanCount.get();
+	}
+
+	/**
+	 * Gets the number of scans dropped because they were malformed or could
+	 * not be registered.
+	 * 
+	 * @return The rejected count.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Gets the number of bags routed.
+	 * 
+	 * @return The routed count.
+	 */
+	public long getRoutedCount() {
+		return routedCount.get();
+	}
+
+	@Override
+	public void writeMetrics(MetricsWriter writer) throws IOException {
+		writer.counter("scan_pipeline_scans_total", "Bag scans submitted.", scanCount.get());
+		writer.counter("scan_pipeline_rejected_total", "Bag scans dropped.", rejectedCount.get());
+		writer.counter("scan_pipeline_routed_total", "Bags routed.", routedCount.get());
+		writer.gauge("scan_pipeline_lag", "Bag scans submitted but not yet routed or dropped.",
+				scanCount.get() - rejectedCount.get() - routedCount.get());
+	}
+
+	/**
+	 * Stops accepting scans and waits until every submitted scan has been
+	 * routed or dropped and the instructions subscriber has completed.
+	 * 
+	 * @throws IOException
+	 *             if a stage or the instructions subscriber failed
+	 */
+	@Override
+	public void close() throws IOException {
+		scans.close();
+
+		try {
+			completion.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IOException("Scan pipeline failed. " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			scheduler.shutdownNow();
+			executor.shutdown();
+		}
+
+		LOGGER.info(String.format("Scan pipeline closed: scans=%d, routed=%d, rejected=%d", scanCount.get(),
+				routedCount.get(), rejectedCount.get()));
+	}
+
+	private List<ScanEvent> parse(List<String> lines) {
+		List<ScanEvent> scanEvents = new ArrayList<ScanEvent>(lines.size());
+
+		for (String line : lines) {
+			String[] fields = line.trim().split("\\s+");
+
+			if (fields.length < 3) {
+				LOGGER.warning("Ignoring incomplete bag scan: " + line);
+				rejectedCount.incrementAndGet();
+			} else {
+				scanEvents.add(new ScanEvent(fields[0], fields[1], fields[2]));
+			}
+		}
+
+		return scanEvents;
+	}
+
+	private List<CheckedBag> register(List<ScanEvent> scanEvents) {
+		CompiledConveyerNetwork network = bagRouter.getSnapshot().getNetwork();
+		List<CheckedBag> bags = new ArrayList<CheckedBag>(scanEvents.size());
+
+		for (ScanEvent scanEvent : scanEvents) {
+			int entryPoint = network.indexOf(scanEvent.entryPointId);
+			ScheduledFlight scheduledFlight = processor.getScheduledFlight(scanEvent.flightId);
+
+			if (entryPoint < 0 || null == scheduledFlight || null == scheduledFlight.getDepartureGate()
+					|| network.indexOf(scheduledFlight.getDepartureGate()) < 0) {
+				LOGGER.warning("Ignoring bag scan with unknown baggage point or flight: " + scanEvent.bagId);
+				rejectedCount.incrementAndGet();
+			} else {
+				conveyerNetwork.addBag(scanEvent.bagId, network.getBaggagePoint(entryPoint), scheduledFlight);
+				bags.add(conveyerNetwork.getBag(scanEvent.bagId));
+			}
+		}
+
+		return bags;
+	}
+
+	private static ThreadFactory newThreadFactory(final String namePrefix) {
+		return new ThreadFactory() {
+			private final AtomicLong threadCount = new AtomicLong();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Passes the instructions on to the subscriber, and completes the
+	 * pipeline once the subscriber has completed
+	 */
+	private class CompletingSubscriber implements Flow.Subscriber<RoutingInstruction> {
+
+		private final Flow.Subscriber<? super RoutingInstruction> instructions;
+
+		CompletingSubscriber(Flow.Subscriber<? super RoutingInstruction> instructions) {
+			this.instructions = instructions;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			instructions.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(RoutingInstruction instruction) {
+			try {
+				instructions.onNext(instruction);
+			} catch (RuntimeException e) {
+				// the subscription is cancelled, so completion would never come
+				completion.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			try {
+				instructions.onError(throwable);
+			} finally {
+				completion.completeExceptionally(throwable);
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				instructions.onComplete();
+			} finally {
+				completion.complete(null);
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.airportbaggage.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A client of a {@link RoutingServer}, holding one connection. A client is
+ * meant to be used by one thread at a time; open a client per scanner.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RoutingClient implements Closeable {
+
+	private static final String OK = "OK";
+	private static final String ERR = "ERR";
+
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final Writer writer;
+
+	/**
+	 * The canonical constructor. Connects to the server.
+	 * 
+	 * @param address
+	 *            The address the server listens on.
+	 * @throws IOException
+	 *             if the server cannot be reached
+	 */
+	public RoutingClient(InetSocketAddress address) throws IOException {
+		socket = new Socket(address.getAddress(), address.getPort());
+		socket.setTcpNoDelay(true);
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A constructor that connects to a port of the loopback address.
+	 * 
+	 * @param port
+	 *            The port the server listens on.
+	 * @throws IOException
+	 *             if the server cannot be reached
+	 */
+	public RoutingClient(int port) throws IOException {
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Gets the shortest route between two baggage points.
+	 * 
+	 * @param sourceId
+	 *            A String that uniquely identifies the baggage point from
+	 *            which the bag has to be routed.
+	 * @param destinationId
+	 *            A String that uniquely identifies the baggage point to which
+	 *            the bag has to be routed.
+	 * @return The route, formatted as in the output file.
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public String route(String sourceId, String destinationId) throws IOException {
+		return request("ROUTE " + sourceId + ' ' + destinationId);
+	}
+
+	/**
+	 * Registers a bag, or updates a registered one, and gets its route to the
+	 * departure gate of its flight.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @param entryPointId
+	 *            A String that uniquely identifies the baggage point where
+	 *            the bag was scanned.
+	 * @param flightId
+	 *            A String that uniquely identifies the flight that will carry
+	 *            the bag.
+	 * @return The bag id followed by the route, formatted as in the output
+	 *         file.
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public String addBag(String bagId, String entryPointId, String flightId) throws IOException {
+		return request("BAG " + bagId + ' ' + entryPointId + ' ' + flightId);
+	}
+
+	/**
+	 * Gets the route of a registered bag to the departure gate of its flight.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The bag id followed by the route, formatted as in the output
+	 *         file.
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public String routeBag(String bagId) throws IOException {
+		return request("ROUTEBAG " + bagId);
+	}
+
+	/**
+	 * Checks that the server answers.
+	 * 
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public void ping() throws IOException {
+		request("PING");
+	}
+
+	/**
+	 * Sends a request line and waits for its answer.
+	 * 
+	 * @param request
+	 *            The request, without a line terminator.
+	 * @return The answer, without the OK status.
+	 * @throws IOException
+	 *             if the connection fails
+	 * @throws IllegalArgumentException
+	 *             if the server rejects the request
+	 */
+	public String request(String request) throws IOException {
+		writer.write(request);
+		writer.write('\n');
+		writer.flush();
+
+		String answer = reader.readLine();
+
+		if (null == answer) {
+			throw new EOFException("Connection closed by the routing server.");
+		} else if (answer.startsWith(ERR)) {
+			throw new IllegalArgumentException(answer.substring(Math.min(answer.length(), ERR.length() + 1)));
+		}
+
+		return answer.substring(Math.min(answer.length(), OK.length() + 1));
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			writer.write("QUIT\n");
+			writer.flush();
+		} catch (IOException e) {
+			// the server may be gone already
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,435 @@
+package com.airportbaggage.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.bean.BaggagePoint;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.CompiledConveyerNetwork;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.bean.ScheduledFlight;
+import com.airportbaggage.metrics.MetricsSource;
+import com.airportbaggage.metrics.MetricsWriter;
+import com.airportbaggage.util.InputFileProcessing;
+
+/**
+ * A long-running router that answers route requests and registers bags over a
+ * line protocol on a local socket, for scanners and sort stations. Every
+ * request is one line of whitespace-separated fields, answered with one line
+ * starting with OK or ERR:
+ * 
+ * <pre>
+ * ROUTE source-point destination-point   OK route
+ * BAG bag-id entry-point flight-id       OK bag-id route
+ * ROUTEBAG bag-id                        OK bag-id route
+ * PING                                   OK
+ * QUIT                                   (closes the connection)
+ * </pre>
+ * 
+ * Routes are formatted as in the output file. Bags are registered in the
+ * in-memory conveyer network and dispatched to the departure gate of their
+ * flight at once; ROUTE and ROUTEBAG only look routes up, so they do not add
+ * to the load a congestion-aware route table routes against. Clients may
+ * send requests without waiting for the answers, which come back in order.
+ * 
+ * Each connection is served by a thread of its own: a virtual thread on Java
+ * runtimes that have them, so tens of thousands of mostly idle connections
+ * cost little more than their buffers, and otherwise a thread of a cached
+ * pool.
+ * 
+ * @author Shafik Mohammad
+ */
+public class RoutingServer implements Closeable, MetricsSource {
+
+	private static final Logger LOGGER = Logger.getLogger(RoutingServer.class.getName());
+
+	private static final int BUFFER_SIZE = 1024;
+	private static final int MAX_LINE_LENGTH = 1024;
+	private static final int BACKLOG = 1024;
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 5L;
+
+	private static final byte[] OK = "OK".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ERR = "ERR".getBytes(StandardCharsets.US_ASCII);
+
+	private final InputFileProcessing processor;
+	private final ConveyerNetwork conveyerNetwork;
+	private final BagRouter bagRouter;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService connectionExecutor;
+	private final Thread acceptor;
+	private final Set<Socket> connections;
+
+	private final AtomicLong connectionCount;
+	private final AtomicLong requestCount;
+	private final AtomicLong errorCount;
+
+	private volatile boolean closed;
+
+	/**
+	 * The canonical constructor. Binds the server socket and starts accepting
+	 * connections.
+	 * 
+	 * @param processor
+	 *            The input file processing holding the conveyer network and
+	 *            the scheduled flights.
+	 * @param bagRouter
+	 *            The bag router, initialized with the conveyer network.
+	 * @param address
+	 *            The address to listen on; port 0 picks a free port.
+	 * @throws IOException
+	 *             if the server socket cannot be bound
+	 */
+	public RoutingServer(InputFileProcessing processor, BagRouter bagRouter, InetSocketAddress address)
+			throws IOException {
+
+		this.processor = processor;
+		this.conveyerNetwork = processor.getConveyerNetwork();
+		this.bagRouter = bagRouter;
+		this.connections = ConcurrentHashMap.<Socket> newKeySet();
+		this.connectionCount = new AtomicLong();
+		this.requestCount = new AtomicLong();
+		this.errorCount = new AtomicLong();
+
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.bind(address, BACKLOG);
+		this.connectionExecutor = newConnectionExecutor();
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "routing-server-acceptor");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+
+		LOGGER.info("Routing server listening on: " + getAddress());
+	}
+
+	/**
+	 * A constructor that listens on a port of the loopback address.
+	 * 
+	 * @param processor
+	 *            The input file processing holding the conveyer network and
+	 *            the scheduled flights.
+	 * @param bagRouter
+	 *            The bag router, initialized with the conveyer network.
+	 * @param port
+	 *            The port to listen on; 0 picks a free port.
+	 * @throws IOException
+	 *             if the server socket cannot be bound
+	 */
+	public RoutingServer(InputFileProcessing processor, BagRouter bagRouter, int port) throws IOException {
+		this(processor, bagRouter, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Gets the address the server listens on.
+	 * 
+	 * @return The socket address, with the bound port.
+	 */
+	public InetSocketAddress getAddress() {
+		return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+	}
+
+	/**
+	 * Gets the number of connections currently open.
+	 * 
+	 * @return The open connection count.
+	 */
+	public int getOpenConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Gets the number of requests answered since the server started.
+	 * 
+	 * @return The request count.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	@Override
+	public void writeMetrics(MetricsWriter writer) throws IOException {
+		writer.counter("routing_server_connections_total", "Connections accepted.", connectionCount.get());
+		writer.gauge("routing_server_connections_open", "Connections currently open.", connections.size());
+		writer.counter("routing_server_requests_total", "Requests answered.", requestCount.get());
+		writer.counter("routing_server_errors_total", "Requests answered with an error.", errorCount.get());
+	}
+
+	/**
+	 * Waits until the server is closed.
+	 * 
+	 * @throws InterruptedException
+	 *             if the waiting thread is interrupted
+	 */
+	public void awaitClose() throws InterruptedException {
+		acceptor.join();
+	}
+
+	/**
+	 * Stops accepting connections, closes the open ones and waits for their
+	 * threads to finish.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+
+		for (Socket connection : connections) {
+			closeQuietly(connection);
+		}
+
+		connectionExecutor.shutdown();
+
+		try {
+			acceptor.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+			connectionExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		LOGGER.info("Routing server closed after requests: " + requestCount.get());
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				final Socket connection = serverSocket.accept();
+				connection.setTcpNoDelay(true);
+				connections.add(connection);
+				connectionCount.incrementAndGet();
+
+				connectionExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(connection);
+					}
+				});
+			} catch (IOException e) {
+				if (!closed) {
+					LOGGER.warning("Could not accept a connection. " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void serve(Socket connection) {
+		try {
+			InputStream input = new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE);
+			OutputStream output = new BufferedOutputStream(connection.getOutputStream(), BUFFER_SIZE);
+			byte[] line = new byte[MAX_LINE_LENGTH];
+			boolean open = true;
+
+			while (open) {
+				int length = readLine(input, line);
+				open = length >= 0;
+
+				if (open && length > line.length) {
+					errorCount.incrementAndGet();
+					output.write(ERR);
+					output.write(String.format(" Request longer than %d bytes.\n", line.length)
+							.getBytes(StandardCharsets.UTF_8));
+				} else if (open) {
+					String[] fields = new String(line, 0, length, StandardCharsets.UTF_8).trim().split("\\s+");
+					open = !"QUIT".equals(fields[0]);
+
+					if (open) {
+						answer(fields, output);
+					}
+				}
+
+				if (open) {
+					requestCount.incrementAndGet();
+
+					// answer pipelined requests in one write
+					if (input.available() == 0) {
+						output.flush();
+					}
+				}
+			}
+
+			output.flush();
+		} catch (SocketException e) {
+			// closed by the client, or by close()
+			LOGGER.fine("Connection closed: " + e.getMessage());
+		} catch (IOException e) {
+			LOGGER.warning("Could not serve a connection. " + e.getMessage());
+		} finally {
+			connections.remove(connection);
+			closeQuietly(connection);
+		}
+	}
+
+	private void answer(String[] fields, OutputStream output) throws IOException {
+		String answer;
+		boolean error = false;
+
+		try {
+			answer = answer(fields);
+		} catch (IllegalArgumentException e) {
+			answer = e.getMessage();
+			error = true;
+		}
+
+		if (error) {
+			errorCount.incrementAndGet();
+		}
+
+		output.write(error ? ERR : OK);
+
+		if (!answer.isEmpty()) {
+			output.write(' ');
+			output.write(answer.getBytes(StandardCharsets.UTF_8));
+		}
+
+		output.write('\n');
+	}
+
+	private String answer(String[] fields) {
+		String command = fields[0];
+		String answer;
+
+		if ("ROUTE".equals(command) && fields.length == 3) {
+			CompiledConveyerNetwork network = bagRouter.getSnapshot().getNetwork();
+			answer = bagRouter.route(getBaggagePoint(network, fields[1]), getBaggagePoint(network, fields[2]));
+		} else if ("BAG".equals(command) && fields.length == 4) {
+			CompiledConveyerNetwork network = bagRouter.getSnapshot().getNetwork();
+			BaggagePoint entryPoint = getBaggagePoint(network, fields[2]);
+			ScheduledFlight scheduledFlight = processor.getScheduledFlight(fields[3]);
+
+			if (null == scheduledFlight) {
+				throw new IllegalArgumentException(String.format("Flight %s cannot be found.", fields[3]));
+			}
+
+			if (null == scheduledFlight.getDepartureGate()) {
+				throw new IllegalArgumentException(String.format("Flight %s has no departure gate.", fields[3]));
+			}
+
+			// an unroutable bag is refused before it is registered
+			getBaggagePoint(network, scheduledFlight.getDepartureGate().getId());
+			conveyerNetwork.addBag(fields[1], entryPoint, scheduledFlight);
+			answer = fields[1] + ' ' + dispatch(conveyerNetwork.getBag(fields[1]));
+		} else if ("ROUTEBAG".equals(command) && fields.length == 2) {
+			CheckedBag bag = conveyerNetwork.getBag(fields[1]);
+
+			if (null == bag) {
+				throw new IllegalArgumentException(String.format("Bag %s cannot be found.", fields[1]));
+			}
+
+			if (null == bag.getEntryPoint() || null == bag.getScheduledFlight()
+					|| null == bag.getScheduledFlight().getDepartureGate()) {
+				throw new IllegalArgumentException(
+						String.format("Bag %s has no entry point or departure gate.", fields[1]));
+			}
+
+			// the bag was dispatched when it was registered
+			answer = fields[1] + ' '
+					+ bagRouter.route(bag.getEntryPoint(), bag.getScheduledFlight().getDepartureGate());
+		} else if ("PING".equals(command) && fields.length == 1) {
+			answer = "";
+		} else {
+			throw new IllegalArgumentException(String.format("Unknown request %s.", String.join(" ", fields)));
+		}
+
+		return answer;
+	}
+
+	private String dispatch(CheckedBag bag) {
+		return bagRouter.route(Collections.singletonList(bag)).get(bag);
+	}
+
+	private static BaggagePoint getBaggagePoint(CompiledConveyerNetwork network, String baggagePointId) {
+		int baggagePoint = network.indexOf(baggagePointId);
+
+		if (baggagePoint < 0) {
+			throw new IllegalArgumentException(String.format("Baggage point %s cannot be found.", baggagePointId));
+		}
+
+		return network.getBaggagePoint(baggagePoint);
+	}
+
+	/**
+	 * Reads a line without its terminator into a buffer.
+	 * 
+	 * @return The length of the line; a length beyond the buffer if the line
+	 *         does not fit, in which case the line is skipped; or -1 at the end
+	 *         of the input.
+	 */
+	private static int readLine(InputStream input, byte[] line) throws IOException {
+		int length = 0;
+		int value = input.read();
+
+		for (; value >= 0 && value != '\n'; value = input.read()) {
+			if (value != '\r') {
+				if (length < line.length) {
+					line[length] = (byte) value;
+				}
+
+				length++;
+			}
+		}
+
+		return value < 0 && 0 == length ? -1 : length;
+	}
+
+	private static void closeQuietly(Socket connection) {
+		try {
+			connection.close();
+		} catch (IOException e) {
+			LOGGER.fine("Could not close a connection. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates an executor that runs every connection on a new virtual thread,
+	 * looked up reflectively so the server also runs on runtimes without
+	 * virtual threads, where it falls back to a cached pool of daemon threads.
+	 */
+	private static ExecutorService newConnectionExecutor() {
+		ExecutorService executor = null;
+
+		try {
+			Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			executor = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+			LOGGER.info("Serving connections on virtual threads.");
+		} catch (ReflectiveOperationException e) {
+			LOGGER.info("Virtual threads are not available, serving connections on a thread pool.");
+
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicLong threadCount = new AtomicLong();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "routing-server-connection-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return executor;
+	}
+}
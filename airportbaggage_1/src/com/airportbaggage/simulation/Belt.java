@@ -0,0 +1,33 @@
+package com.airportbaggage.simulation;
+
+/**
+ * The speed and capacity of the belt of a conveyer segment.
+ * 
+ * @author Shafik Mohammad
+ */
+final class Belt {
+
+	/**
+	 * The distance a bag travels per minute
+	 */
+	final double speed;
+
+	/**
+	 * The maximum number of bags on the belt at the same time
+	 */
+	final int capacity;
+
+	Belt(double speed, int capacity) {
+
+		if (!(speed > 0d) || Double.isInfinite(speed)) {
+			throw new IllegalArgumentException(String.format("Belt speed %s must be positive and finite.", speed));
+		}
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format("Belt capacity %d must be at least 1.", capacity));
+		}
+
+		this.speed = speed;
+		this.capacity = capacity;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,450 @@
+package com.airportbaggage.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.CompiledConveyerNetwork;
+import com.airportbaggage.bean.RouteTable;
+import com.airportbaggage.bean.ShortestPathTree;
+
+/**
+ * A discrete-event simulation of bags moving through a conveyer network. Each
+ * bag is injected at its entry point at a given time and follows a shortest
+ * route of the router's current snapshot to the departure gate of its flight.
+ * Every segment between two connected baggage points has a belt with a speed
+ * and a capacity; a bag reaching a full belt waits in front of it, in arrival
+ * order, until a bag leaves the belt. Each direction of a connection is a
+ * separate belt.
+ * 
+ * Time advances from event to event, each being a bag reaching the end of a
+ * belt, so a run costs time proportional to the number of segments the bags
+ * travel rather than to the length of the simulated day.
+ * 
+ * @author Shafik Mohammad
+ */
+public class ConveyerSimulation {
+
+	private static final Logger LOGGER = Logger.getLogger(ConveyerSimulation.class.getName());
+
+	/**
+	 * The arrival time of a bag that could not be routed
+	 */
+	public static final long NOT_ARRIVED = Long.MIN_VALUE;
+
+	private static final double MILLISECONDS_PER_MINUTE = 60000d;
+
+	private static final double DEFAULT_BELT_SPEED = 1d;
+	private static final int DEFAULT_BELT_CAPACITY = 10;
+	private static final int INITIAL_BAG_CAPACITY = 64;
+
+	private static final Comparator<SegmentReport> SATURATION_ORDER = new Comparator<SegmentReport>() {
+		@Override
+		public int compare(SegmentReport segment, SegmentReport otherSegment) {
+			int order = Long.compare(otherSegment.getSaturatedTime(), segment.getSaturatedTime());
+
+			return 0 != order ? order : Long.compare(otherSegment.getWaitTime(), segment.getWaitTime());
+		}
+	};
+
+	private final BagRouter bagRouter;
+
+	private Belt defaultBelt;
+
+	/**
+	 * belts differing from the default, indexed by the ids of the baggage
+	 * points they connect
+	 */
+	private final Map<String, Belt> belts;
+
+	private CheckedBag[] bags;
+	private long[] injectionTimes;
+	private int bagCount;
+
+	/**
+	 * The canonical constructor. Belts move bags one unit of distance per
+	 * minute, and hold a default number of bags.
+	 * 
+	 * @param bagRouter
+	 *            The bag router whose current snapshot gives the routes of
+	 *            the bags.
+	 */
+	public ConveyerSimulation(BagRouter bagRouter) {
+		this.bagRouter = bagRouter;
+		this.defaultBelt = new Belt(DEFAULT_BELT_SPEED, DEFAULT_BELT_CAPACITY);
+		this.belts = new HashMap<String, Belt>();
+		this.bags = new CheckedBag[INITIAL_BAG_CAPACITY];
+		this.injectionTimes = new long[INITIAL_BAG_CAPACITY];
+	}
+
+	/**
+	 * Sets the speed and capacity of every belt not set individually.
+	 * 
+	 * @param speed
+	 *            The distance a bag travels per minute. Must be positive.
+	 * @param capacity
+	 *            The maximum number of bags on a belt at the same time. Must
+	 *            be at least 1.
+	 */
+	public void setDefaultBelt(double speed, int capacity) {
+		defaultBelt = new Belt(speed, capacity);
+	}
+
+	/**
+	 * Sets the speed and capacity of the belts, in both directions, between
+	 * two connected baggage points.
+	 * 
+	 * @param baggagePointId
+	 *            A String that uniquely identifies a baggage point.
+	 * @param connectedBaggagePointId
+	 *            A String that uniquely identifies another baggage point.
+	 * @param speed
+	 *            The distance a bag travels per minute. Must be positive.
+	 * @param capacity
+	 *            The maximum number of bags on a belt at the same time. Must
+	 *            be at least 1.
+	 */
+	public void setBelt(String baggagePointId, String connectedBaggagePointId, double speed, int capacity) {
+		Belt belt = new Belt(speed, capacity);
+
+		belts.put(beltKey(baggagePointId, connectedBaggagePointId), belt);
+		belts.put(beltKey(connectedBaggagePointId, baggagePointId), belt);
+	}
+
+	/**
+	 * Adds a bag to the next run, to be put on the conveyer network at its
+	 * entry point at a given time.
+	 * 
+	 * @param bag
+	 *            The bag. It needs an entry point and a scheduled flight with
+	 *            a departure gate; if either is not in the conveyer network
+	 *            of a run, the bag does not arrive.
+	 * @param injectionTime
+	 *            The time the bag is put on the conveyer network.
+	 */
+	public void inject(CheckedBag bag, Date injectionTime) {
+
+		if (null == bag.getEntryPoint() || null == bag.getScheduledFlight()
+				|| null == bag.getScheduledFlight().getDepartureGate()) {
+			throw new IllegalArgumentException(
+					String.format("Bag %s has no entry point or departure gate.", bag.getId()));
+		}
+
+		if (bagCount == bags.length) {
+			bags = Arrays.copyOf(bags, bagCount + (bagCount >>> 1));
+			injectionTimes = Arrays.copyOf(injectionTimes, bags.length);
+		}
+
+		bags[bagCount] = bag;
+		injectionTimes[bagCount++] = injectionTime.getTime();
+	}
+
+	/**
+	 * Simulates the injected bags moving to their departure gates.
+	 * 
+	 * @return The report of the run.
+	 */
+	public SimulationReport run() {
+		return new Run(bagRouter.getSnapshot().getRouteTable()).simulate();
+	}
+
+	private static String beltKey(String baggagePointId, String connectedBaggagePointId) {
+		return baggagePointId + ' ' + connectedBaggagePointId;
+	}
+
+	/**
+	 * The state of one simulation run, indexed by bag and by connection of the
+	 * compiled conveyer network
+	 */
+	private class Run {
+		final RouteTable routeTable;
+		final CompiledConveyerNetwork network;
+		final EventQueue events;
+
+		/**
+		 * the next connection towards each departure gate, indexed by gate and
+		 * baggage point; -1 at the gate and where it cannot be reached
+		 */
+		final int[][] gateConnections;
+
+		final int[] sources;
+		final int[] destinations;
+		final int[] segments;
+		final long[] arrivalTimes;
+		final long[] waitStarts;
+		final int[] nextWaiting;
+
+		final long[] travelTimes;
+		final int[] capacities;
+		final int[] occupancies;
+		final int[] waitingHeads;
+		final int[] waitingTails;
+		final int[] queueLengths;
+		final long[] carriedCounts;
+		final int[] peakOccupancies;
+		final int[] peakQueueLengths;
+		final long[] saturatedSince;
+		final long[] saturatedTimes;
+		final long[] waitTimes;
+
+		Run(RouteTable routeTable) {
+			this.routeTable = routeTable;
+			this.network = routeTable.getNetwork();
+			this.events = new EventQueue(bagCount);
+			this.gateConnections = new int[network.size()][];
+			this.sources = new int[bagCount];
+			this.destinations = new int[bagCount];
+			this.segments = new int[bagCount];
+			this.arrivalTimes = new long[bagCount];
+			this.waitStarts = new long[bagCount];
+			this.nextWaiting = new int[bagCount];
+
+			int connectionCount = network.getConnectionCount();
+			this.travelTimes = new long[connectionCount];
+			this.capacities = new int[connectionCount];
+			this.occupancies = new int[connectionCount];
+			this.waitingHeads = new int[connectionCount];
+			this.waitingTails = new int[connectionCount];
+			this.queueLengths = new int[connectionCount];
+			this.carriedCounts = new long[connectionCount];
+			this.peakOccupancies = new int[connectionCount];
+			this.peakQueueLengths = new int[connectionCount];
+			this.saturatedSince = new long[connectionCount];
+			this.saturatedTimes = new long[connectionCount];
+			this.waitTimes = new long[connectionCount];
+
+			for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+				for (int connection = network.getFirstConnection(baggagePoint); connection < network
+						.getLastConnection(baggagePoint); connection++) {
+					Belt belt = belts.get(beltKey(network.getBaggagePoint(baggagePoint).getId(),
+							network.getBaggagePoint(network.getTarget(connection)).getId()));
+
+					if (null == belt) {
+						belt = defaultBelt;
+					}
+
+					travelTimes[connection] = Math
+							.round(network.getDistance(connection) / belt.speed * MILLISECONDS_PER_MINUTE);
+					capacities[connection] = belt.capacity;
+					waitingHeads[connection] = -1;
+				}
+			}
+		}
+
+		SimulationReport simulate() {
+
+			int routableCount = 0;
+
+			for (int bag = 0; bag < bagCount; bag++) {
+				sources[bag] = network.indexOf(bags[bag].getEntryPoint());
+				destinations[bag] = network.indexOf(bags[bag].getScheduledFlight().getDepartureGate());
+				arrivalTimes[bag] = NOT_ARRIVED;
+
+				// a bag that cannot be placed on the network never arrives
+				if (sources[bag] < 0 || destinations[bag] < 0) {
+					LOGGER.warning(String.format("Bag %s has an entry point or departure gate that cannot be found.",
+							bags[bag].getId()));
+				} else {
+					routableCount++;
+				}
+			}
+
+			int[] injectionOrder = getInjectionOrder(routableCount);
+
+			// bags are injected straight from the sorted injections rather
+			// than through the event queue, which then only holds the bags on
+			// the belts
+			long eventCount = 0;
+			int injected = 0;
+
+			while (injected < routableCount || !events.isEmpty()) {
+				int bag;
+				long time;
+				int baggagePoint;
+				eventCount++;
+
+				if (injected < routableCount
+						&& (events.isEmpty() || injectionTimes[injectionOrder[injected]] <= events.peekTime())) {
+					bag = injectionOrder[injected++];
+					time = injectionTimes[bag];
+					baggagePoint = sources[bag];
+				} else {
+					bag = events.poll();
+					time = events.getTime(bag);
+					baggagePoint = network.getTarget(segments[bag]);
+					leave(segments[bag], time);
+				}
+
+				advance(bag, baggagePoint, time);
+			}
+
+			LOGGER.fine("Simulated bags: " + bagCount + ", events: " + eventCount);
+
+			return new SimulationReport(Arrays.copyOf(bags, bagCount), arrivalTimes, getSegmentReports(),
+					eventCount);
+		}
+
+		/**
+		 * Orders the bags that can be placed on the network by injection time,
+		 * keeping the order of injection among equal times. The times are
+		 * sorted as primitives and ranked, and the bags then placed by a
+		 * counting sort on their rank, so no boxed index or comparator is
+		 * needed however many bags a run has.
+		 */
+		private int[] getInjectionOrder(int routableCount) {
+			long[] times = Arrays.copyOf(injectionTimes, bagCount);
+			Arrays.sort(times);
+
+			int timeCount = 0;
+
+			for (int time = 0; time < times.length; time++) {
+				if (0 == timeCount || times[timeCount - 1] != times[time]) {
+					times[timeCount++] = times[time];
+				}
+			}
+
+			int[] ranks = new int[bagCount];
+			int[] rankStarts = new int[timeCount + 1];
+
+			for (int bag = 0; bag < bagCount; bag++) {
+				if (sources[bag] >= 0 && destinations[bag] >= 0) {
+					ranks[bag] = Arrays.binarySearch(times, 0, timeCount, injectionTimes[bag]);
+					rankStarts[ranks[bag] + 1]++;
+				}
+			}
+
+			for (int rank = 0; rank < timeCount; rank++) {
+				rankStarts[rank + 1] += rankStarts[rank];
+			}
+
+			int[] injectionOrder = new int[routableCount];
+
+			for (int bag = 0; bag < bagCount; bag++) {
+				if (sources[bag] >= 0 && destinations[bag] >= 0) {
+					injectionOrder[rankStarts[ranks[bag]]++] = bag;
+				}
+			}
+
+			return injectionOrder;
+		}
+
+		/**
+		 * Moves a bag standing at a baggage point onto the next belt of its
+		 * route, or into the queue in front of it if it is full.
+		 */
+		private void advance(int bag, int baggagePoint, long time) {
+			int destination = destinations[bag];
+			int connection = baggagePoint == destination ? -1 : getGateConnections(destination)[baggagePoint];
+
+			// a bag that cannot reach its gate stays where it is
+			if (baggagePoint == destination) {
+				arrivalTimes[bag] = time;
+			} else if (connection >= 0 && occupancies[connection] < capacities[connection]) {
+				enter(bag, connection, time);
+			} else if (connection >= 0) {
+				wait(bag, connection, time);
+			}
+		}
+
+		private void enter(int bag, int connection, long time) {
+			segments[bag] = connection;
+			carriedCounts[connection]++;
+
+			if (++occupancies[connection] > peakOccupancies[connection]) {
+				peakOccupancies[connection] = occupancies[connection];
+			}
+
+			if (occupancies[connection] == capacities[connection]) {
+				saturatedSince[connection] = time;
+			}
+
+			events.offer(bag, time + travelTimes[connection]);
+		}
+
+		private void wait(int bag, int connection, long time) {
+			waitStarts[bag] = time;
+			nextWaiting[bag] = -1;
+
+			if (waitingHeads[connection] < 0) {
+				waitingHeads[connection] = bag;
+			} else {
+				nextWaiting[waitingTails[connection]] = bag;
+			}
+
+			waitingTails[connection] = bag;
+
+			if (++queueLengths[connection] > peakQueueLengths[connection]) {
+				peakQueueLengths[connection] = queueLengths[connection];
+			}
+		}
+
+		/**
+		 * Takes a bag off the end of a belt, letting the first waiting bag on.
+		 */
+		private void leave(int connection, long time) {
+
+			if (occupancies[connection]-- == capacities[connection]) {
+				saturatedTimes[connection] += time - saturatedSince[connection];
+			}
+
+			int bag = waitingHeads[connection];
+
+			if (bag >= 0) {
+				waitingHeads[connection] = nextWaiting[bag];
+				queueLengths[connection]--;
+				waitTimes[connection] += time - waitStarts[bag];
+				enter(bag, connection, time);
+			}
+		}
+
+		/**
+		 * Gets the next connection of every baggage point towards a gate. In
+		 * an undirected network, the predecessor of a baggage point in the
+		 * shortest path tree rooted at the gate is its next hop towards it.
+		 */
+		private int[] getGateConnections(int destination) {
+
+			if (null == gateConnections[destination]) {
+				ShortestPathTree gateTree = routeTable.getShortestPathTree(destination);
+				int[] connections = new int[network.size()];
+
+				for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+					int next = gateTree.getPredecessor(baggagePoint);
+					connections[baggagePoint] = next < 0 ? -1 : network.findConnection(baggagePoint, next);
+				}
+
+				gateConnections[destination] = connections;
+			}
+
+			return gateConnections[destination];
+		}
+
+		private List<SegmentReport> getSegmentReports() {
+			List<SegmentReport> segmentReports = new ArrayList<SegmentReport>();
+
+			for (int baggagePoint = 0; baggagePoint < network.size(); baggagePoint++) {
+				for (int connection = network.getFirstConnection(baggagePoint); connection < network
+						.getLastConnection(baggagePoint); connection++) {
+					if (carriedCounts[connection] > 0) {
+						segmentReports.add(new SegmentReport(network.getBaggagePoint(baggagePoint),
+								network.getBaggagePoint(network.getTarget(connection)), capacities[connection],
+								carriedCounts[connection], peakOccupancies[connection],
+								peakQueueLengths[connection], saturatedTimes[connection], waitTimes[connection]));
+					}
+				}
+			}
+
+			Collections.sort(segmentReports, SATURATION_ORDER);
+
+			return segmentReports;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.airportbaggage.simulation;
+
+/**
+ * The pending events of a simulation, ordered by time and, at equal times, by
+ * the order they were scheduled in. A bag has at most one pending event, so
+ * events are identified by the index of their bag and held in primitive
+ * arrays sized for the bags up front: scheduling and polling an event never
+ * allocates. The heap is 4-ary, half as deep as a binary one, with the
+ * children of an event next to each other in memory.
+ * 
+ * @author Shafik Mohammad
+ */
+final class EventQueue {
+
+	private static final int ARITY = 4;
+
+	private final int[] heap;
+	private final long[] times;
+	private final long[] sequences;
+	private int size;
+	private long sequence;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param bagCount
+	 *            The number of bags events can be scheduled for.
+	 */
+	EventQueue(int bagCount) {
+		heap = new int[bagCount];
+		times = new long[bagCount];
+		sequences = new long[bagCount];
+	}
+
+	boolean isEmpty() {
+		return 0 == size;
+	}
+
+	/**
+	 * Schedules the next event of a bag, which must have no pending event.
+	 */
+	void offer(int bag, long time) {
+		times[bag] = time;
+		sequences[bag] = sequence++;
+		siftUp(size++, bag);
+	}
+
+	/**
+	 * Gets the time of the earliest event.
+	 */
+	long peekTime() {
+		return times[heap[0]];
+	}
+
+	/**
+	 * Removes the earliest event.
+	 * 
+	 * @return The index of the bag of the event.
+	 */
+	int poll() {
+		int bag = heap[0];
+
+		if (--size > 0) {
+			siftDown(0, heap[size]);
+		}
+
+		return bag;
+	}
+
+	/**
+	 * Gets the time of the pending event of a bag, or of the bag's last event
+	 * once it was polled.
+	 */
+	long getTime(int bag) {
+		return times[bag];
+	}
+
+	private boolean precedes(int bag, int otherBag) {
+		return times[bag] < times[otherBag] || times[bag] == times[otherBag] && sequences[bag] < sequences[otherBag];
+	}
+
+	private void siftUp(int position, int bag) {
+
+		while (position > 0) {
+			int parent = (position - 1) / ARITY;
+
+			if (!precedes(bag, heap[parent])) {
+				break;
+			}
+
+			heap[position] = heap[parent];
+			position = parent;
+		}
+
+		heap[position] = bag;
+	}
+
+	private void siftDown(int position, int bag) {
+
+		while (ARITY * position + 1 < size) {
+			int firstChild = ARITY * position + 1;
+			int child = firstChild;
+			int lastChild = Math.min(firstChild + ARITY, size);
+
+			for (int sibling = firstChild + 1; sibling < lastChild; sibling++) {
+				if (precedes(heap[sibling], heap[child])) {
+					child = sibling;
+				}
+			}
+
+			if (!precedes(heap[child], bag)) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = bag;
+	}
+}
\ No newline at end of file
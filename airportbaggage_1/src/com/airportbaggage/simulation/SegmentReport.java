@@ -0,0 +1,137 @@
+package com.airportbaggage.simulation;
+
+import com.airportbaggage.bean.BaggagePoint;
+
+/**
+ * The load of one conveyer segment over a simulation run. A segment carries
+ * bags in one direction, from a baggage point to a connected one.
+ * 
+ * @author Shafik Mohammad
+ */
+public class SegmentReport {
+
+	private final BaggagePoint baggagePoint;
+	private final BaggagePoint connectedBaggagePoint;
+	private final int capacity;
+	private final long carriedCount;
+	private final int peakOccupancy;
+	private final int peakQueueLength;
+	private final long saturatedTime;
+	private final long waitTime;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param baggagePoint
+	 *            The baggage point where bags enter the segment.
+	 * @param connectedBaggagePoint
+	 *            The baggage point where bags leave the segment.
+	 * @param capacity
+	 *            The maximum number of bags on the segment at the same time.
+	 * @param carriedCount
+	 *            The number of bags the segment carried.
+	 * @param peakOccupancy
+	 *            The largest number of bags on the segment at the same time.
+	 * @param peakQueueLength
+	 *            The largest number of bags waiting to enter the segment at
+	 *            the same time.
+	 * @param saturatedTime
+	 *            The time, in milliseconds, the segment was at capacity.
+	 * @param waitTime
+	 *            The total time, in milliseconds, bags waited to enter the
+	 *            segment.
+	 */
+	public SegmentReport(BaggagePoint baggagePoint, BaggagePoint connectedBaggagePoint, int capacity,
+			long carriedCount, int peakOccupancy, int peakQueueLength, long saturatedTime, long waitTime) {
+
+		this.baggagePoint = baggagePoint;
+		this.connectedBaggagePoint = connectedBaggagePoint;
+		this.capacity = capacity;
+		this.carriedCount = carriedCount;
+		this.peakOccupancy = peakOccupancy;
+		this.peakQueueLength = peakQueueLength;
+		this.saturatedTime = saturatedTime;
+		this.waitTime = waitTime;
+	}
+
+	/**
+	 * Gets the baggage point where bags enter the segment.
+	 * 
+	 * @return The baggage point.
+	 */
+	public BaggagePoint getBaggagePoint() {
+		return baggagePoint;
+	}
+
+	/**
+	 * Gets the baggage point where bags leave the segment.
+	 * 
+	 * @return The connected baggage point.
+	 */
+	public BaggagePoint getConnectedBaggagePoint() {
+		return connectedBaggagePoint;
+	}
+
+	/**
+	 * Gets the maximum number of bags on the segment at the same time.
+	 * 
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of bags the segment carried.
+	 * 
+	 * @return The carried count.
+	 */
+	public long getCarriedCount() {
+		return carriedCount;
+	}
+
+	/**
+	 * Gets the largest number of bags on the segment at the same time.
+	 * 
+	 * @return The peak occupancy.
+	 */
+	public int getPeakOccupancy() {
+		return peakOccupancy;
+	}
+
+	/**
+	 * Gets the largest number of bags waiting to enter the segment at the
+	 * same time.
+	 * 
+	 * @return The peak queue length.
+	 */
+	public int getPeakQueueLength() {
+		return peakQueueLength;
+	}
+
+	/**
+	 * Gets the time the segment was at capacity, turning bags away.
+	 * 
+	 * @return The saturated time, in milliseconds.
+	 */
+	public long getSaturatedTime() {
+		return saturatedTime;
+	}
+
+	/**
+	 * Gets the total time bags waited in front of the segment while it was at
+	 * capacity.
+	 * 
+	 * @return The wait time, in milliseconds.
+	 */
+	public long getWaitTime() {
+		return waitTime;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s : carried=%d, peak=%d/%d, queued=%d, saturated=%dms, waited=%dms",
+				baggagePoint.getId(), connectedBaggagePoint.getId(), carriedCount, peakOccupancy, capacity,
+				peakQueueLength, saturatedTime, waitTime);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.airportbaggage.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.ScheduledFlight;
+
+/**
+ * The outcome of a simulation run: when each bag reached the departure gate
+ * of its flight, and how loaded each conveyer segment was on the way.
+ * 
+ * @author Shafik Mohammad
+ */
+public class SimulationReport {
+
+	private final CheckedBag[] bags;
+
+	/**
+	 * arrival time at the departure gate, in milliseconds since the epoch,
+	 * indexed by bag; {@link ConveyerSimulation#NOT_ARRIVED} for bags that
+	 * could not be routed
+	 */
+	private final long[] arrivalTimes;
+
+	private final Map<String, Integer> bagIndexes;
+	private final List<SegmentReport> segments;
+	private final long eventCount;
+	private final int lateCount;
+	private final int unroutableCount;
+
+	/**
+	 * The canonical constructor.
+	 * 
+	 * @param bags
+	 *            The simulated bags.
+	 * @param arrivalTimes
+	 *            The arrival times of the bags at their departure gates,
+	 *            indexed like the bags.
+	 * @param segments
+	 *            The reports of the conveyer segments, most saturated first.
+	 * @param eventCount
+	 *            The number of events processed.
+	 */
+	SimulationReport(CheckedBag[] bags, long[] arrivalTimes, List<SegmentReport> segments, long eventCount) {
+
+		this.bags = bags;
+		this.arrivalTimes = arrivalTimes;
+		this.segments = Collections.unmodifiableList(segments);
+		this.eventCount = eventCount;
+		this.bagIndexes = new HashMap<String, Integer>(bags.length * 2);
+
+		int late = 0;
+		int unroutable = 0;
+
+		for (int bag = 0; bag < bags.length; bag++) {
+			bagIndexes.put(bags[bag].getId(), bag);
+
+			if (ConveyerSimulation.NOT_ARRIVED == arrivalTimes[bag]) {
+				unroutable++;
+			} else if (isLate(bag)) {
+				late++;
+			}
+		}
+
+		this.lateCount = late;
+		this.unroutableCount = unroutable;
+	}
+
+	/**
+	 * Gets the number of simulated bags.
+	 * 
+	 * @return The bag count.
+	 */
+	public int getBagCount() {
+		return bags.length;
+	}
+
+	/**
+	 * Gets the number of bags that reached their departure gate after their
+	 * flight departed.
+	 * 
+	 * @return The late bag count.
+	 */
+	public int getLateCount() {
+		return lateCount;
+	}
+
+	/**
+	 * Gets the number of bags whose entry point is not connected to their
+	 * departure gate.
+	 * 
+	 * @return The unroutable bag count.
+	 */
+	public int getUnroutableCount() {
+		return unroutableCount;
+	}
+
+	/**
+	 * Gets the number of events processed during the run.
+	 * 
+	 * @return The event count.
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Gets the time a bag reached the departure gate of its flight.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The arrival time, or null if the bag could not be routed.
+	 */
+	public Date getArrivalTime(String bagId) {
+		int bag = indexOf(bagId);
+
+		return ConveyerSimulation.NOT_ARRIVED == arrivalTimes[bag] ? null : new Date(arrivalTimes[bag]);
+	}
+
+	/**
+	 * Gets the time between a bag reaching the departure gate and the flight
+	 * departing; negative if the bag was late.
+	 * 
+	 * @param bagId
+	 *            A String that uniquely identifies the bag.
+	 * @return The margin, in milliseconds, or null if the bag could not be
+	 *         routed or its flight has no departure time.
+	 */
+	public Long getMargin(String bagId) {
+		int bag = indexOf(bagId);
+		long departureTime = bags[bag].getScheduledFlight().getDepartureTimeMillis();
+
+		return ConveyerSimulation.NOT_ARRIVED == arrivalTimes[bag] || ScheduledFlight.NO_TIME == departureTime ? null
+				: Long.valueOf(departureTime - arrivalTimes[bag]);
+	}
+
+	/**
+	 * Gets the bags that reached their departure gate after their flight
+	 * departed, in the order they were injected.
+	 * 
+	 * @return An unmodifiable list of late bags.
+	 */
+	public List<CheckedBag> getLateBags() {
+		List<CheckedBag> lateBags = new ArrayList<CheckedBag>(lateCount);
+
+		for (int bag = 0; bag < bags.length; bag++) {
+			if (ConveyerSimulation.NOT_ARRIVED != arrivalTimes[bag] && isLate(bag)) {
+				lateBags.add(bags[bag]);
+			}
+		}
+
+		return Collections.unmodifiableList(lateBags);
+	}
+
+	/**
+	 * Gets the reports of the conveyer segments that carried bags, the
+	 * segments that were at capacity longest first.
+	 * 
+	 * @return An unmodifiable list of segment reports.
+	 */
+	public List<SegmentReport> getSegments() {
+		return segments;
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer report = new StringBuffer();
+		report.append(String.format("bags=%d, late=%d, unroutable=%d, events=%d", bags.length, lateCount,
+				unroutableCount, eventCount));
+
+		for (SegmentReport segment : segments) {
+			if (segment.getSaturatedTime() > 0) {
+				report.append('\n').append(segment);
+			}
+		}
+
+		return report.toString();
+	}
+
+	private boolean isLate(int bag) {
+		long departureTime = bags[bag].getScheduledFlight().getDepartureTimeMillis();
+
+		return ScheduledFlight.NO_TIME != departureTime && arrivalTimes[bag] > departureTime;
+	}
+
+	private int indexOf(String bagId) {
+		Integer bag = bagIndexes.get(bagId);
+
+		if (null == bag) {
+			throw new IllegalArgumentException(String.format("Bag %s was not simulated.", bagId));
+		}
+
+		return bag;
+	}
+}
\ No newline at end of file
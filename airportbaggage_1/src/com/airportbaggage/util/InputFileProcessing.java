@@ -1,23 +1,142 @@
 package com.airportbaggage.util;
 
-import java.util.Scanner;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+import com.airportbaggage.bean.Airport;
+import com.airportbaggage.bean.BagRouter;
+import com.airportbaggage.bean.BagScheduler;
+import com.airportbaggage.bean.CachedRouteTable;
+import com.airportbaggage.bean.CheckedBag;
+import com.airportbaggage.bean.ConveyerNetwork;
+import com.airportbaggage.bean.ScheduledFlight;
+import com.airportbaggage.bean.StandardAirport;
+import com.airportbaggage.bean.StandardGate;
+import com.airportbaggage.bean.StandardScheduledFlight;
+
 /**
- * This file is to read the 
+ * This file is to read the input, one line at a time, and add the conveyor
+ * system, departures and bags it holds to the beans. The input is streamed
+ * through a fixed-size buffer, so the whole file is never held in memory.
  * @author Shafik Mohammad
  *
  */
 public class InputFileProcessing {
 	static final Logger LOGGER = Logger.getLogger(InputFileProcessing.class.getName());
-	
+
 	private static final String INPUT_DELIMITER_PREFIX = "# Section:";
+	private static final byte[] INPUT_DELIMITER_PREFIX_BYTES = INPUT_DELIMITER_PREFIX.getBytes(StandardCharsets.UTF_8);
+
+	private static final String LOCAL_AIRPORT_ID = "LOCAL";
+	private static final String ARRIVAL_FLIGHT_ID = "ARRIVAL";
+	private static final String BAGGAGE_CLAIM_ID = "BaggageClaim";
+
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_FIELDS = 4;
+	private static final int ROUTE_CACHE_CAPACITY = 64;
 
-	
 	private static final int INPUT_CONVEYER_NETWORK = 1;
 	private static final int INPUT_DEPARTURE_LIST = 2;
 	private static final int INPUT_BAG_LIST = 3;
 
+	private final ConveyerNetwork conveyerNetwork;
+	private final Airport airport;
+
+	/**
+	 * Routes bags from the few entry points they are scanned at, so only the
+	 * routes of recently used entry points are kept
+	 */
+	private final BagRouter bagRouter = new BagRouter(new CachedRouteTable(ROUTE_CACHE_CAPACITY));
+
+	/**
+	 * The flight of arriving bags, which leave the conveyor system at the
+	 * baggage claim
+	 */
+	private final ScheduledFlight arrivalFlight;
+
+	/**
+	 * start and end offsets of the fields of the current input line
+	 */
+	private final int[] fieldStarts = new int[MAX_FIELDS];
+	private final int[] fieldEnds = new int[MAX_FIELDS];
+	private final Calendar departureTime = Calendar.getInstance();
+
+	private int inputSectionIndex;
+
+	/**
+	 * receives the lines of the bag list instead of adding them, if set
+	 */
+	private Consumer<String> bagListConsumer;
+
+	/**
+	 * The default constructor. Input is added to an empty conveyer network and
+	 * airport.
+	 */
+	public InputFileProcessing() {
+		this(new ConveyerNetwork(), new StandardAirport(LOCAL_AIRPORT_ID));
+	}
+
+	/**
+	 * The canonical constructor.
+	 *
+	 * @param conveyerNetwork
+	 *            The conveyer network the conveyor system and bags are added
+	 *            to.
+	 * @param airport
+	 *            The airport the departures are added to.
+	 */
+	public InputFileProcessing(ConveyerNetwork conveyerNetwork, Airport airport) {
+		this.conveyerNetwork = conveyerNetwork;
+		this.airport = airport;
+		this.arrivalFlight = new StandardScheduledFlight(ARRIVAL_FLIGHT_ID, airport, airport,
+				new StandardGate(BAGGAGE_CLAIM_ID), null, null, null);
+	}
+
+	/**
+	 * Gets the conveyer network the conveyor system and bags are added to.
+	 *
+	 * @return The conveyer network.
+	 */
+	public ConveyerNetwork getConveyerNetwork() {
+		return conveyerNetwork;
+	}
+
+	/**
+	 * Gets the airport the departures are added to.
+	 *
+	 * @return The airport.
+	 */
+	public Airport getAirport() {
+		return airport;
+	}
+
+	/**
+	 * Gets the scheduled flight a bag list refers to, including the arrival
+	 * flight that carries bags to the baggage claim.
+	 *
+	 * @param flightId
+	 *            A String that uniquely identifies the flight.
+	 * @return The flight, if found; null, otherwise.
+	 */
+	public ScheduledFlight getScheduledFlight(String flightId) {
+		return ARRIVAL_FLIGHT_ID.equals(flightId) ? arrivalFlight : airport.getScheduledFlight(flightId);
+	}
+
 	/**
 	 * Process the input file, separate the Conveyer items, departure items and bagItems
 	 * Add all these items to the bean.
@@ -25,78 +144,356 @@ public class InputFileProcessing {
 	 */
 	public void processInputFile(String inputString) {
 
-		// ensure that the scanner resource closes after use
-		try (Scanner lineScanner = new Scanner(inputString)) {
-			// read from the console, one line at a time
-			lineScanner.useDelimiter(INPUT_DELIMITER_PREFIX);
-
-			int inputSectionIndex = 0;
-
-			do {
-				// trim leading and trailing whitespace
-				String inputLine = lineScanner.next().trim();
-
-				// is this a new section?
-				if (!inputLine.isEmpty()) {
-					inputSectionIndex++;
-					// non-empty line
-					System.out.println("inputSectionIndex:"+inputSectionIndex);// <TODO> - Remove SOPs
-
-					switch (inputSectionIndex) {
-					case 0:
-						// log input that will be ignored since first section
-						// hasn't started
-						System.out.println("INPUT_CONVEYER_NETWORK:"+inputLine);// <TODO> - Remove SOPs
-						LOGGER.info("Ignoring this input line since first section hasn't started: " + inputLine);
-						break;
-					case INPUT_CONVEYER_NETWORK:
-						System.out.println("INPUT_CONVEYER_NETWORK:"+inputLine);// <TODO> - Remove SOPs
-						addToConveyorNetwork(inputLine);
-						break;
-					case INPUT_DEPARTURE_LIST:
-						System.out.println("INPUT_DEPARTURE_LIST:"+inputLine);// <TODO> - Remove SOPs
-						addToDepartureList(inputLine);
-						break;
-					case INPUT_BAG_LIST:
-						System.out.println("INPUT_BAG_LIST:"+inputLine);// <TODO> - Remove SOPs
-						addToBagList(inputLine);
-						break;
-					default:
-						// log input that will be ignored since last section has
-						// finished
-						LOGGER.info("Ignoring this input line since all sections are processed: " + inputLine);
-						break;
-					}
-				}
-			} while (lineScanner.hasNext());
+		try {
+			processInputFile(new ByteArrayInputStream(inputString.getBytes(StandardCharsets.UTF_8)));
 		} catch (Exception e) {
 			LOGGER.severe("Could not process the input. " + e.getMessage());
-		}		
+		}
+	}
+
+	/**
+	 * Process the input file, reading it through a file channel.
+	 * @param inputFile
+	 * @throws IOException if the input file cannot be read
+	 */
+	public void processInputFile(Path inputFile) throws IOException {
+
+		// ensure that the channel closes after use
+		try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+			processInput(channel);
+		}
+	}
+
+	/**
+	 * Process the conveyor system and departures of the input file, and pass
+	 * each line of its bag list to a consumer instead of adding the bags, e.g.
+	 * to stream them through a scan pipeline.
+	 * @param inputFile
+	 * @param bagListConsumer receives the trimmed lines of the bag list
+	 * @throws IOException if the input file cannot be read
+	 */
+	public void processInputFile(Path inputFile, Consumer<String> bagListConsumer) throws IOException {
+
+		this.bagListConsumer = bagListConsumer;
+
+		try {
+			processInputFile(inputFile);
+		} finally {
+			this.bagListConsumer = null;
+		}
+	}
+
+	/**
+	 * Process the input read from a stream, e.g. a class path resource.
+	 * @param inputStream
+	 * @throws IOException if the input cannot be read
+	 */
+	public void processInputFile(InputStream inputStream) throws IOException {
+
+		// ensure that the channel closes after use
+		try (ReadableByteChannel channel = Channels.newChannel(inputStream)) {
+			processInput(channel);
+		}
+	}
+
+	private void processInput(ReadableByteChannel channel) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+		inputSectionIndex = 0;
+
+		while (channel.read(buffer) >= 0) {
+			byte[] bytes = buffer.array();
+			int lineStart = 0;
+
+			for (int position = 0; position < buffer.position(); position++) {
+				if ('\n' == bytes[position]) {
+					processLine(bytes, lineStart, position);
+					lineStart = position + 1;
+				}
+			}
+
+			if (0 == lineStart && !buffer.hasRemaining()) {
+				// a single line fills the buffer, make room for the rest of it
+				buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length * 2), bytes.length, bytes.length);
+			} else {
+				// keep the partial last line for the next read
+				System.arraycopy(bytes, lineStart, bytes, 0, buffer.position() - lineStart);
+				buffer.position(buffer.position() - lineStart);
+			}
+		}
+
+		// the last line may not end with a line break
+		processLine(buffer.array(), 0, buffer.position());
+	}
+
+	private void processLine(byte[] bytes, int start, int end) {
+
+		// trim leading and trailing whitespace
+		while (start < end && isWhitespace(bytes[start])) {
+			start++;
+		}
+		while (end > start && isWhitespace(bytes[end - 1])) {
+			end--;
+		}
+
+		if (start == end) {
+			return;
+		}
+
+		// is this a new section?
+		if (startsWith(bytes, start, end, INPUT_DELIMITER_PREFIX_BYTES)) {
+			inputSectionIndex++;
+			LOGGER.fine("inputSectionIndex:" + inputSectionIndex);
+			return;
+		}
+
+		int fieldCount = splitFields(bytes, start, end);
+
+		try {
+			processRecord(bytes, start, end, fieldCount);
+		} catch (IllegalArgumentException e) {
+			LOGGER.warning("Ignoring malformed input line: " + text(bytes, start, end) + ". " + e.getMessage());
+		}
 	}
 
-	private void addToBagList(String inputLine) {
-		// TODO Auto-generated method stub
-		
+	private void processRecord(byte[] bytes, int start, int end, int fieldCount) {
+
+		switch (inputSectionIndex) {
+		case 0:
+			// log input that will be ignored since first section
+			// hasn't started
+			LOGGER.info("Ignoring this input line since first section hasn't started: " + text(bytes, start, end));
+			break;
+		case INPUT_CONVEYER_NETWORK:
+			addToConveyorNetwork(bytes, fieldCount);
+			break;
+		case INPUT_DEPARTURE_LIST:
+			addToDepartureList(bytes, fieldCount);
+			break;
+		case INPUT_BAG_LIST:
+			if (null == bagListConsumer) {
+				addToBagList(bytes, fieldCount);
+			} else {
+				bagListConsumer.accept(text(bytes, start, end));
+			}
+			break;
+		default:
+			// log input that will be ignored since last section has
+			// finished
+			LOGGER.info("Ignoring this input line since all sections are processed: " + text(bytes, start, end));
+			break;
+		}
 	}
 
-	private void addToDepartureList(String inputLine) {
-		// TODO Auto-generated method stub
-		
+	private void addToBagList(byte[] bytes, int fieldCount) {
+
+		if (fieldCount < 3) {
+			LOGGER.warning("Ignoring incomplete bag: " + fields(bytes, fieldCount));
+			return;
+		}
+
+		String flightId = field(bytes, 2);
+		ScheduledFlight scheduledFlight = getScheduledFlight(flightId);
+
+		if (null == scheduledFlight) {
+			LOGGER.warning("Could not find a scheduled flight with id: " + flightId);
+		}
+
+		conveyerNetwork.addBag(field(bytes, 0), conveyerNetwork.getBaggagePoint(field(bytes, 1)), scheduledFlight);
+	}
+
+	private void addToDepartureList(byte[] bytes, int fieldCount) {
+
+		if (fieldCount < 4) {
+			LOGGER.warning("Ignoring incomplete departure: " + fields(bytes, fieldCount));
+			return;
+		}
+
+		int separator = indexOf(bytes, fieldStarts[3], fieldEnds[3], ':');
+
+		if (separator == fieldEnds[3]) {
+			throw new NumberFormatException("Departure time is not hours:minutes: " + field(bytes, 3));
+		}
+
+		double hours = parseNumber(bytes, fieldStarts[3], separator, ':');
+		double minutes = parseNumber(bytes, separator + 1, fieldEnds[3], ' ');
+
+		// the calendar is lenient, so it would roll 25:99 over to another time
+		if (!(hours >= 0 && hours <= 23 && minutes >= 0 && minutes <= 59) || hours != Math.floor(hours)
+				|| minutes != Math.floor(minutes)) {
+			throw new NumberFormatException("Departure time out of range: " + field(bytes, 3));
+		}
+
+		departureTime.clear();
+		departureTime.set(Calendar.HOUR_OF_DAY, (int) hours);
+		departureTime.set(Calendar.MINUTE, (int) minutes);
+
+		airport.addScheduledFlight(field(bytes, 0), field(bytes, 1), field(bytes, 2), departureTime.getTime());
 	}
 
-	private void addToConveyorNetwork(String inputLine) {
-		// TODO Auto-generated method stub
-		
+	private void addToConveyorNetwork(byte[] bytes, int fieldCount) {
+
+		if (fieldCount < 3) {
+			LOGGER.warning("Ignoring incomplete connection: " + fields(bytes, fieldCount));
+			return;
+		}
+
+		conveyerNetwork.addConnection(field(bytes, 0), field(bytes, 1),
+				parseNumber(bytes, fieldStarts[2], fieldEnds[2], ' '));
 	}
 
+	/**
+	 * Splits the trimmed line into whitespace-separated fields, recording
+	 * their offsets instead of copying them.
+	 */
+	private int splitFields(byte[] bytes, int start, int end) {
+		int fieldCount = 0;
+		int position = start;
+
+		while (position < end && fieldCount < MAX_FIELDS) {
+			fieldStarts[fieldCount] = position;
+
+			while (position < end && !isWhitespace(bytes[position])) {
+				position++;
+			}
+			fieldEnds[fieldCount++] = position;
+
+			while (position < end && isWhitespace(bytes[position])) {
+				position++;
+			}
+		}
+
+		return fieldCount;
+	}
+
+	/**
+	 * Parses a plain decimal number up to the terminator without creating a
+	 * String, falling back to {@link Double#parseDouble(String)} for any other
+	 * notation.
+	 */
+	private static double parseNumber(byte[] bytes, int start, int end, char terminator) {
+		long digits = 0;
+		long scale = 0;
+		int position = start;
+
+		for (; position < end && bytes[position] != terminator; position++) {
+			byte current = bytes[position];
+
+			if (current >= '0' && current <= '9' && position - start < 18) {
+				digits = digits * 10 + (current - '0');
+				scale *= 10;
+			} else if ('.' == current && 0 == scale) {
+				scale = 1;
+			} else {
+				return Double.parseDouble(text(bytes, start, indexOf(bytes, start, end, terminator)));
+			}
+		}
+
+		if (position == start) {
+			throw new NumberFormatException("Missing number: " + text(bytes, start, Math.max(start, end)));
+		}
+
+		return 0 == scale ? digits : (double) digits / scale;
+	}
+
+	/**
+	 * Checks for a space or control character. Bytes are signed, so the bytes
+	 * of multi-byte UTF-8 characters, which are negative, must not compare as
+	 * whitespace.
+	 */
+	private static boolean isWhitespace(byte value) {
+		return (value & 0xff) <= ' ';
+	}
+
+	private static int indexOf(byte[] bytes, int start, int end, char value) {
+		int position = start;
+
+		while (position < end && bytes[position] != value) {
+			position++;
+		}
+
+		return position;
+	}
+
+	private static boolean startsWith(byte[] bytes, int start, int end, byte[] prefix) {
+		boolean matches = end - start >= prefix.length;
+
+		for (int index = 0; matches && index < prefix.length; index++) {
+			matches = bytes[start + index] == prefix[index];
+		}
+
+		return matches;
+	}
+
+	private String field(byte[] bytes, int field) {
+		return text(bytes, fieldStarts[field], fieldEnds[field]);
+	}
+
+	private String fields(byte[] bytes, int fieldCount) {
+		return 0 == fieldCount ? "" : text(bytes, fieldStarts[0], fieldEnds[fieldCount - 1]);
+	}
+
+	private static String text(byte[] bytes, int start, int end) {
+		return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Routes the bags of the conveyer network to the departure gates of their
+	 * scheduled flights, one line per bag. Bags are routed as one batch, so
+	 * each distinct entry point is searched only once.
+	 * @return the routes of the bags, in the order the bags were added
+	 */
 	public String routeBags() {
+		List<CheckedBag> routableBags = getRoutableBags();
+		bagRouter.initialize(conveyerNetwork.compile());
+
+		return format(bagRouter.route(routableBags));
+	}
+
+	/**
+	 * Routes the bags of the conveyer network to the departure gates of their
+	 * scheduled flights, one line per bag, in the order they must be
+	 * dispatched: bags with the least time between their departure and the end
+	 * of their route come first.
+	 * @return the routes of the bags, in dispatch order
+	 */
+	public String routeBagsByDeadline() {
+		List<CheckedBag> routableBags = getRoutableBags();
+		bagRouter.initialize(conveyerNetwork.compile());
+
+		BagScheduler bagScheduler = new BagScheduler(bagRouter);
+		bagScheduler.schedule(routableBags);
+		List<CheckedBag> scheduledBags = new ArrayList<CheckedBag>(routableBags.size());
+
+		for (CheckedBag bag = bagScheduler.poll(); null != bag; bag = bagScheduler.poll()) {
+			scheduledBags.add(bag);
+		}
+
+		return format(bagRouter.route(scheduledBags));
+	}
+
+	private List<CheckedBag> getRoutableBags() {
+		List<CheckedBag> routableBags = new ArrayList<CheckedBag>();
+
+		for (CheckedBag bag : conveyerNetwork.getBags()) {
+			if (null == bag.getEntryPoint() || null == bag.getScheduledFlight()) {
+				LOGGER.warning("Ignoring bag without entry point or scheduled flight: " + bag.getId());
+			} else {
+				routableBags.add(bag);
+			}
+		}
+
+		return routableBags;
+	}
+
+	private static String format(Map<CheckedBag, String> routes) {
 		StringBuffer shortestPaths = new StringBuffer();
-		// Iterate the ConveyorNetwork bags with checked bags
-		// Compare with Destination Airport
-		// Map the source and destinattion airports
-		
+
+		for (Map.Entry<CheckedBag, String> route : routes.entrySet()) {
+			shortestPaths.append(route.getKey().getId()).append(' ').append(route.getValue()).append('\n');
+		}
 
 		return shortestPaths.toString();
 	}
-	
+
 }
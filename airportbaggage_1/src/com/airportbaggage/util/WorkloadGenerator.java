@@ -0,0 +1,453 @@
+package com.airportbaggage.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+/**
+ * Generates synthetic airport workloads in the three-section input format
+ * read by {@link InputFileProcessing}: a conveyor system, a departure list and
+ * a bag list. The same seed and settings always generate the same bytes.
+ * 
+ * The conveyor system is laid out as concourses, each a loop of gates with a
+ * few chords across it and its own ticketing point, joined to each other and
+ * to a central sorter that also serves the baggage claim. Bags enter at
+ * ticketing points or, as transfers, at gates, and pick their entry point and
+ * flight from Zipf distributions whose skew can be set; a skew of 0 picks
+ * uniformly. A share of the bags are arrivals, which enter at a gate and
+ * leave at the baggage claim.
+ * 
+ * Lines are encoded straight into a reused byte buffer, so generating is
+ * bound by the disk rather than by formatting.
+ * 
+ * @author Shafik Mohammad
+ */
+public class WorkloadGenerator {
+
+	private static final Logger LOGGER = Logger.getLogger(WorkloadGenerator.class.getName());
+
+	private static final String CONVEYOR_SECTION = "# Section: Conveyor System\n";
+	private static final String DEPARTURES_SECTION = "# Section: Departures\n";
+	private static final String BAGS_SECTION = "# Section: Bags\n";
+
+	private static final String SORTER_ID = "Sorter";
+	private static final String BAGGAGE_CLAIM_ID = "BaggageClaim";
+	private static final String ARRIVAL_FLIGHT_ID = "ARRIVAL";
+
+	private static final String[] CARRIERS = { "UA", "AA", "DL", "BA", "LH", "AF", "EK", "QF" };
+	private static final String[] DESTINATIONS = { "JFK", "LAX", "MIA", "MHT", "ORD", "SFO", "SEA", "BOS", "ATL",
+			"DFW", "DEN", "LHR", "CDG", "FRA", "DXB", "SYD" };
+
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+	private static final int GATES_PER_CONCOURSE = 40;
+	private static final int CHORDS_PER_CONCOURSE = 4;
+	private static final int MINUTES_PER_HOUR = 60;
+	private static final int FIRST_DEPARTURE_MINUTE = 5 * MINUTES_PER_HOUR;
+	private static final int LAST_DEPARTURE_MINUTE = 23 * MINUTES_PER_HOUR + 59;
+	private static final int MIN_BAG_ID_WIDTH = 4;
+
+	private final long seed;
+	private int baggagePointCount = 1000;
+	private int flightCount = 1000;
+	private long bagCount = 100000L;
+	private double arrivalShare = 0.1d;
+	private double entryPointSkew = 1d;
+	private double flightSkew = 0.5d;
+
+	private ByteBuffer buffer;
+	private WritableByteChannel channel;
+
+	/**
+	 * Samples indexes from a Zipf distribution by binary search over the
+	 * cumulative weights, so sampling costs the logarithm of the number of
+	 * items
+	 */
+	private static class ZipfDistribution {
+		final double[] cumulativeWeights;
+
+		ZipfDistribution(int size, double skew) {
+			cumulativeWeights = new double[size];
+			double total = 0d;
+
+			for (int rank = 0; rank < size; rank++) {
+				total += 1d / Math.pow(rank + 1, skew);
+				cumulativeWeights[rank] = total;
+			}
+		}
+
+		int sample(SplittableRandom random) {
+			double weight = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+			int index = Arrays.binarySearch(cumulativeWeights, weight);
+
+			return Math.min(cumulativeWeights.length - 1, index < 0 ? -index - 1 : index);
+		}
+	}
+
+	/**
+	 * The canonical constructor. The generator starts with a thousand baggage
+	 * points, a thousand flights and a hundred thousand bags.
+	 * 
+	 * @param seed
+	 *            The seed of every random choice.
+	 */
+	public WorkloadGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the approximate number of baggage points in the conveyor system,
+	 * rounded to whole concourses.
+	 * 
+	 * @param baggagePointCount
+	 *            The number of baggage points. Must be at least 1.
+	 */
+	public void setBaggagePointCount(int baggagePointCount) {
+		this.baggagePointCount = checkPositive("Baggage point count", baggagePointCount);
+	}
+
+	/**
+	 * Sets the number of departing flights.
+	 * 
+	 * @param flightCount
+	 *            The number of flights. Must be at least 1.
+	 */
+	public void setFlightCount(int flightCount) {
+		this.flightCount = checkPositive("Flight count", flightCount);
+	}
+
+	/**
+	 * Sets the number of bags.
+	 * 
+	 * @param bagCount
+	 *            The number of bags. Cannot be negative.
+	 */
+	public void setBagCount(long bagCount) {
+
+		if (bagCount < 0) {
+			throw new IllegalArgumentException(String.format("Bag count %d cannot be negative.", bagCount));
+		}
+
+		this.bagCount = bagCount;
+	}
+
+	/**
+	 * Sets the share of bags that arrive rather than depart.
+	 * 
+	 * @param arrivalShare
+	 *            The share of arriving bags, between 0 and 1.
+	 */
+	public void setArrivalShare(double arrivalShare) {
+
+		if (!(arrivalShare >= 0d && arrivalShare <= 1d)) {
+			throw new IllegalArgumentException(
+					String.format("Arrival share %s must be between 0 and 1.", arrivalShare));
+		}
+
+		this.arrivalShare = arrivalShare;
+	}
+
+	/**
+	 * Sets how strongly bags favour the busiest entry points. Ticketing points
+	 * rank before gates.
+	 * 
+	 * @param entryPointSkew
+	 *            The Zipf exponent of the entry points; 0 picks them
+	 *            uniformly. Cannot be negative.
+	 */
+	public void setEntryPointSkew(double entryPointSkew) {
+		this.entryPointSkew = checkSkew("Entry point skew", entryPointSkew);
+	}
+
+	/**
+	 * Sets how strongly bags favour the busiest flights.
+	 * 
+	 * @param flightSkew
+	 *            The Zipf exponent of the flights; 0 picks them uniformly.
+	 *            Cannot be negative.
+	 */
+	public void setFlightSkew(double flightSkew) {
+		this.flightSkew = checkSkew("Flight skew", flightSkew);
+	}
+
+	/**
+	 * Generates the workload into a file, replacing its contents.
+	 * 
+	 * @param outputFile
+	 *            The path of the file.
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void generate(Path outputFile) throws IOException {
+
+		try (FileChannel fileChannel = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			generate(fileChannel);
+		}
+	}
+
+	/**
+	 * Generates the workload into a stream. The stream is left open.
+	 * 
+	 * @param outputStream
+	 *            The stream.
+	 * @throws IOException
+	 *             if the stream cannot be written
+	 */
+	public void generate(OutputStream outputStream) throws IOException {
+		generate(Channels.newChannel(outputStream));
+		outputStream.flush();
+	}
+
+	private void generate(WritableByteChannel channel) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+
+		try {
+			List<byte[]> ticketingPoints = new ArrayList<byte[]>();
+			List<byte[]> gates = new ArrayList<byte[]>();
+
+			write(CONVEYOR_SECTION);
+			writeConveyorSystem(random, ticketingPoints, gates);
+
+			write(DEPARTURES_SECTION);
+			byte[][] flights = writeDepartures(random, gates);
+
+			write(BAGS_SECTION);
+			writeBags(random, ticketingPoints, gates, flights);
+
+			flush();
+		} finally {
+			this.channel = null;
+			this.buffer = null;
+		}
+
+		LOGGER.fine("Generated bags: " + bagCount + ", flights: " + flightCount);
+	}
+
+	private void writeConveyorSystem(SplittableRandom random, List<byte[]> ticketingPoints, List<byte[]> gates)
+			throws IOException {
+
+		int concourseCount = Math.max(1,
+				(int) Math.round((double) (baggagePointCount - 2) / (GATES_PER_CONCOURSE + 1)));
+		int gatesPerConcourse = Math.max(1, Math.min(GATES_PER_CONCOURSE, baggagePointCount - 3));
+		byte[] sorter = encode(SORTER_ID);
+		byte[] previousFirstGate = null;
+
+		writeConnection(sorter, encode(BAGGAGE_CLAIM_ID), 2 + random.nextInt(4));
+
+		for (int concourse = 0; concourse < concourseCount; concourse++) {
+			String concourseName = concourseName(concourse);
+			byte[][] concourseGates = new byte[gatesPerConcourse][];
+
+			for (int gate = 0; gate < gatesPerConcourse; gate++) {
+				concourseGates[gate] = encode(concourseName + (gate + 1));
+				gates.add(concourseGates[gate]);
+			}
+
+			// a loop of gates, with a few chords across it
+			for (int gate = 1; gate < gatesPerConcourse; gate++) {
+				writeConnection(concourseGates[gate - 1], concourseGates[gate], 1 + random.nextInt(3));
+			}
+
+			if (gatesPerConcourse > 2) {
+				writeConnection(concourseGates[gatesPerConcourse - 1], concourseGates[0], 1 + random.nextInt(3));
+
+				for (int chord = 0; chord < CHORDS_PER_CONCOURSE; chord++) {
+					int gate = random.nextInt(gatesPerConcourse);
+					int connectedGate = random.nextInt(gatesPerConcourse);
+
+					if (Math.abs(gate - connectedGate) > 1) {
+						writeConnection(concourseGates[gate], concourseGates[connectedGate], 2 + random.nextInt(5));
+					}
+				}
+			}
+
+			byte[] ticketingPoint = encode("Concourse_" + concourseName + "_Ticketing");
+			ticketingPoints.add(ticketingPoint);
+			writeConnection(ticketingPoint, concourseGates[random.nextInt(gatesPerConcourse)], 3 + random.nextInt(4));
+			writeConnection(sorter, concourseGates[0], 4 + random.nextInt(5));
+
+			// neighbouring concourses are joined directly as well as through
+			// the sorter
+			if (null != previousFirstGate) {
+				writeConnection(previousFirstGate, concourseGates[gatesPerConcourse - 1], 3 + random.nextInt(6));
+			}
+
+			previousFirstGate = concourseGates[0];
+		}
+	}
+
+	private byte[][] writeDepartures(SplittableRandom random, List<byte[]> gates) throws IOException {
+		byte[][] flights = new byte[flightCount][];
+
+		for (int flight = 0; flight < flightCount; flight++) {
+			int minute = FIRST_DEPARTURE_MINUTE + random.nextInt(LAST_DEPARTURE_MINUTE - FIRST_DEPARTURE_MINUTE + 1);
+			flights[flight] = encode(CARRIERS[flight % CARRIERS.length] + (10 + flight / CARRIERS.length));
+
+			write(flights[flight]);
+			write(' ');
+			write(gates.get(random.nextInt(gates.size())));
+			write(' ');
+			write(DESTINATIONS[random.nextInt(DESTINATIONS.length)]);
+			write(' ');
+			writeNumber(minute / MINUTES_PER_HOUR, 2);
+			write(':');
+			writeNumber(minute % MINUTES_PER_HOUR, 2);
+			write('\n');
+		}
+
+		// the busiest flights are spread over the day, not the first listed
+		for (int flight = flights.length - 1; flight > 0; flight--) {
+			int swapped = random.nextInt(flight + 1);
+			byte[] swappedFlight = flights[swapped];
+			flights[swapped] = flights[flight];
+			flights[flight] = swappedFlight;
+		}
+
+		return flights;
+	}
+
+	private void writeBags(SplittableRandom random, List<byte[]> ticketingPoints, List<byte[]> gates,
+			byte[][] flights) throws IOException {
+
+		List<byte[]> entryPoints = new ArrayList<byte[]>(ticketingPoints);
+		entryPoints.addAll(gates);
+
+		ZipfDistribution entryPointDistribution = new ZipfDistribution(entryPoints.size(), entryPointSkew);
+		ZipfDistribution flightDistribution = new ZipfDistribution(flights.length, flightSkew);
+		byte[] arrivalFlight = encode(ARRIVAL_FLIGHT_ID);
+		int bagIdWidth = Math.max(MIN_BAG_ID_WIDTH, Long.toString(bagCount).length());
+
+		for (long bag = 1; bag <= bagCount; bag++) {
+			writeNumber(bag, bagIdWidth);
+			write(' ');
+
+			if (random.nextDouble() < arrivalShare) {
+				write(gates.get(random.nextInt(gates.size())));
+				write(' ');
+				write(arrivalFlight);
+			} else {
+				write(entryPoints.get(entryPointDistribution.sample(random)));
+				write(' ');
+				write(flights[flightDistribution.sample(random)]);
+			}
+
+			write('\n');
+		}
+	}
+
+	private void writeConnection(byte[] baggagePoint, byte[] connectedBaggagePoint, int distance)
+			throws IOException {
+		write(baggagePoint);
+		write(' ');
+		write(connectedBaggagePoint);
+		write(' ');
+		writeNumber(distance, 1);
+		write('\n');
+	}
+
+	/**
+	 * Writes a non-negative number in decimal, padded with zeros to a width.
+	 */
+	private void writeNumber(long number, int width) throws IOException {
+		int digits = 1;
+
+		for (long remaining = number / 10; remaining > 0; remaining /= 10) {
+			digits++;
+		}
+
+		ensureRemaining(Math.max(digits, width));
+
+		for (int padding = digits; padding < width; padding++) {
+			buffer.put((byte) '0');
+		}
+
+		int end = buffer.position() + digits;
+		byte[] bytes = buffer.array();
+
+		for (int position = end - 1; position >= end - digits; position--) {
+			bytes[position] = (byte) ('0' + number % 10);
+			number /= 10;
+		}
+
+		buffer.position(end);
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		ensureRemaining(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private void write(String text) throws IOException {
+		write(encode(text));
+	}
+
+	private void write(char character) throws IOException {
+		ensureRemaining(1);
+		buffer.put((byte) character);
+	}
+
+	private void ensureRemaining(int length) throws IOException {
+		if (buffer.remaining() < length) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Names concourses A to Z, then AA, AB and so on.
+	 */
+	private static String concourseName(int concourse) {
+		StringBuffer name = new StringBuffer();
+
+		for (int remaining = concourse + 1; remaining > 0; remaining = (remaining - 1) / 26) {
+			name.insert(0, (char) ('A' + (remaining - 1) % 26));
+		}
+
+		return name.toString();
+	}
+
+	private static byte[] encode(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int checkPositive(String name, int value) {
+
+		if (value < 1) {
+			throw new IllegalArgumentException(String.format("%s %d must be at least 1.", name, value));
+		}
+
+		return value;
+	}
+
+	private static double checkSkew(String name, double skew) {
+
+		if (!(skew >= 0d) || Double.isInfinite(skew)) {
+			throw new IllegalArgumentException(String.format("%s %s cannot be negative.", name, skew));
+		}
+
+		return skew;
+	}
+}